@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.rhino.Node;
+
+import java.io.IOException;
+
+/**
+ * Measures the heap that the ASTs of a corpus hold, to compare layouts of
+ * {@link Node}. The corpus is parsed several times, and the growth of the
+ * heap is divided by the number of nodes.
+ * <p>
+ * JMH measures time and allocation, not the retained heap, so this one has
+ * its own main method. Run it from the benchmarks jar, before and after
+ * changing the layout:
+ * <pre>
+ * java -cp target/benchmarks.jar \
+ *     com.google.javascript.jscomp.AstHeapBenchmark [corpus...]
+ * </pre>
+ */
+public final class AstHeapBenchmark {
+  private static final int COPIES = 5;
+
+  private AstHeapBenchmark() {}
+
+  public static void main(String[] args) throws Exception {
+    String[] corpora = args.length > 0
+        ? args : new String[] {BenchmarkCorpus.REAL, BenchmarkCorpus.GENERATED};
+    for (String corpus : corpora) {
+      measure(corpus);
+    }
+  }
+
+  private static void measure(String corpus)
+      throws IOException, InterruptedException {
+    // The first parse reads the files, so that their code isn't measured.
+    long nodes = countNodes(parse(corpus));
+
+    long before = usedMemory();
+    Node[] roots = new Node[COPIES];
+    for (int i = 0; i < COPIES; i++) {
+      roots[i] = parse(corpus);
+    }
+    long after = usedMemory();
+
+    long bytes = (after - before) / roots.length;
+    System.out.println(corpus + ": " + nodes + " nodes, "
+        + bytes / 1024 + " KB per AST, " + bytes / nodes + " bytes per node");
+  }
+
+  /** Parses the externs and the inputs of a corpus, and returns the root. */
+  private static Node parse(String corpus) throws IOException {
+    return BenchmarkCorpus.parse(corpus, BenchmarkCorpus.createOptions())
+        .getRoot();
+  }
+
+  private static long countNodes(Node n) {
+    long count = 1;
+    for (Node child = n.getFirstChild(); child != null;
+         child = child.getNext()) {
+      count += countNodes(child);
+    }
+    return count;
+  }
+
+  private static long usedMemory() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
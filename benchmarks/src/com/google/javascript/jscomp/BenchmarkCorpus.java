@@ -0,0 +1,289 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+/**
+ * The inputs of the benchmarks. They are the same in every run, so that the
+ * results of two runs can be compared.
+ * <p>
+ * The "real" corpus is the SunSpider files of {@code test_files}. The
+ * "generated" corpus is a large program of annotated classes, made from a
+ * fixed seed, which gives the type checkers and the optimizations more to do
+ * than the small SunSpider files. The "branched" corpus is a few large
+ * functions with many variables and branches, the worst case of the flow
+ * scopes of the type inference.
+ */
+final class BenchmarkCorpus {
+  static final String REAL = "real";
+  static final String GENERATED = "generated";
+  static final String BRANCHED = "branched";
+
+  private static final ImmutableList<String> REAL_FILES = ImmutableList.of(
+      "3d-cube.js",
+      "3d-morph.js",
+      "3d-raytrace.js",
+      "access-binary-trees.js",
+      "access-fannkuch.js",
+      "access-nbody.js",
+      "access-nsieve.js",
+      "bitops-3bit-bits-in-byte.js",
+      "bitops-bits-in-byte.js",
+      "bitops-bitwise-and.js",
+      "bitops-nsieve-bits.js",
+      "controlflow-recursive.js",
+      "crypto-aes.js",
+      "crypto-md5.js",
+      "crypto-sha1.js",
+      "date-format-tofte.js",
+      "date-format-xparb.js",
+      "function-closure.js",
+      "function-correct-args.js",
+      "function-empty.js",
+      "function-excess-args.js",
+      "function-missing-args.js",
+      "function-sum.js",
+      "loop-empty-resolve.js",
+      "loop-empty.js",
+      "loop-sum.js",
+      "math-cordic.js",
+      "math-partial-sums.js",
+      "math-spectral-norm.js",
+      "string-base64.js",
+      "string-fasta.js",
+      "string-tagcloud.js",
+      "string-unpack-code.js",
+      "string-validate-input.js");
+
+  private static final long SEED = 20151021L;
+  private static final int GENERATED_MODULES = 20;
+  private static final int GENERATED_CLASSES_PER_MODULE = 15;
+  private static final int BRANCHED_FUNCTIONS = 10;
+  private static final int BRANCHED_VARIABLES = 60;
+  private static final int BRANCHED_STATEMENTS = 1500;
+
+  static {
+    // The warnings of the compilations would be logged at every invocation.
+    Compiler.setLoggingLevel(Level.OFF);
+  }
+
+  private BenchmarkCorpus() {}
+
+  static List<SourceFile> getExterns() throws IOException {
+    return CommandLineRunner.getDefaultExterns();
+  }
+
+  static List<SourceFile> getInputs(String corpus) throws IOException {
+    switch (corpus) {
+      case REAL:
+        ImmutableList.Builder<SourceFile> inputs = ImmutableList.builder();
+        for (String name : REAL_FILES) {
+          inputs.add(SourceFile.fromCode(name, Resources.toString(
+              Resources.getResource(
+                  BenchmarkCorpus.class, "/test_files/" + name),
+              UTF_8)));
+        }
+        return inputs.build();
+      case GENERATED:
+        return ImmutableList.of(
+            SourceFile.fromCode("generated.js", generate(new Random(SEED))));
+      case BRANCHED:
+        return ImmutableList.of(SourceFile.fromCode(
+            "branched.js", generateBranched(new Random(SEED))));
+      default:
+        throw new IllegalArgumentException("Unknown corpus: " + corpus);
+    }
+  }
+
+  /**
+   * The options that all the benchmarks start from. The optimization
+   * benchmarks add the options of a compilation level.
+   */
+  static CompilerOptions createOptions() {
+    CompilerOptions options = new CompilerOptions();
+    options.setLanguageIn(CompilerOptions.LanguageMode.ECMASCRIPT5);
+    return options;
+  }
+
+  /**
+   * Creates a compiler for a corpus and parses it.
+   */
+  static Compiler parse(String corpus, CompilerOptions options)
+      throws IOException {
+    Compiler compiler = new Compiler();
+    compiler.init(getExterns(), getInputs(corpus), options);
+    compiler.parse();
+    if (compiler.hasErrors()) {
+      throw new IllegalStateException(
+          "Cannot parse the " + corpus + " corpus: "
+          + compiler.getErrors()[0]);
+    }
+    return compiler;
+  }
+
+  /**
+   * Makes a program of namespaced classes whose methods call each other, with
+   * loops, closures, unused methods and an exported entry point.
+   */
+  private static String generate(Random random) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("/** @const */ var app = {};\n");
+    for (int m = 0; m < GENERATED_MODULES; m++) {
+      String module = "app.module" + m;
+      sb.append("/** @const */ ").append(module).append(" = {};\n");
+      for (int c = 0; c < GENERATED_CLASSES_PER_MODULE; c++) {
+        String name = module + ".Class" + c;
+        sb.append("\n/**\n * @param {number} x\n * @constructor\n */\n")
+            .append(name).append(" = function(x) {\n")
+            .append("  /** @private {number} */\n")
+            .append("  this.x_ = x;\n")
+            .append("  /** @type {!Array<string>} */\n")
+            .append("  this.names = [];\n")
+            .append("};\n");
+
+        sb.append("\n/**\n * @param {number} n\n * @return {number}\n */\n")
+            .append(name).append(".prototype.sum = function(n) {\n")
+            .append("  var total = 0;\n")
+            .append("  for (var i = 0; i < n; i++) {\n")
+            .append("    total += this.x_ * i + ").append(random.nextInt(100))
+            .append(";\n")
+            .append("  }\n")
+            .append("  return total;\n")
+            .append("};\n");
+
+        sb.append("\n/**\n * @param {string} name\n * @return {string}\n */\n")
+            .append(name).append(".prototype.describe = function(name) {\n")
+            .append("  var self = this;\n")
+            .append("  this.names.push(name);\n")
+            .append("  return this.names.map(function(n) {\n")
+            .append("    return n + ':' + self.x_;\n")
+            .append("  }).join(',');\n")
+            .append("};\n");
+
+        // Calls a class defined earlier, so that the call graph goes across
+        // the modules.
+        sb.append("\n/**\n * @param {number} n\n * @return {number}\n */\n")
+            .append(name).append(".prototype.run = function(n) {\n");
+        if (m == 0 && c == 0) {
+          sb.append("  return this.sum(n);\n");
+        } else {
+          int otherModule = random.nextInt(c == 0 ? m : m + 1);
+          int otherClass = random.nextInt(
+              otherModule == m ? c : GENERATED_CLASSES_PER_MODULE);
+          String other = "app.module" + otherModule + ".Class" + otherClass;
+          sb.append("  var other = new ").append(other).append("(n);\n")
+              .append("  if (n % 2 == 0) {\n")
+              .append("    return other.run(n - 1) + this.sum(n);\n")
+              .append("  }\n")
+              .append("  return other.describe('n' + n).length;\n");
+        }
+        sb.append("};\n");
+
+        // Never called, so that there is something to remove.
+        sb.append("\n/** @return {number} */\n")
+            .append(name).append(".prototype.unused = function() {\n")
+            .append("  return this.x_ * ").append(random.nextInt(100))
+            .append(";\n")
+            .append("};\n");
+      }
+    }
+
+    sb.append("\nwindow['run'] = function(n) {\n")
+        .append("  var total = 0;\n");
+    for (int m = 0; m < GENERATED_MODULES; m++) {
+      int c = random.nextInt(GENERATED_CLASSES_PER_MODULE);
+      sb.append("  total += new app.module").append(m).append(".Class")
+          .append(c).append("(n).run(n);\n");
+    }
+    sb.append("  return total;\n")
+        .append("};\n");
+    return sb.toString();
+  }
+
+  /**
+   * Makes functions whose variables take numbers, strings and nulls in long
+   * runs of nested conditions and loops, so that the type inference joins
+   * many flows of many variables.
+   */
+  private static String generateBranched(Random random) {
+    StringBuilder sb = new StringBuilder();
+    for (int f = 0; f < BRANCHED_FUNCTIONS; f++) {
+      sb.append("\n/**\n * @param {number} n\n * @return {number}\n */\n")
+          .append("function branched").append(f).append("(n) {\n");
+      for (int v = 0; v < BRANCHED_VARIABLES; v++) {
+        sb.append("  var v").append(v).append(" = 0;\n");
+      }
+      // Whether each open block is an if without an else yet.
+      boolean[] canElse = new boolean[BRANCHED_STATEMENTS];
+      int depth = 0;
+      for (int i = 0; i < BRANCHED_STATEMENTS; i++) {
+        String indent = "  " + Strings.repeat("  ", depth);
+        String v = "v" + random.nextInt(BRANCHED_VARIABLES);
+        switch (random.nextInt(depth < 8 ? 6 : 4)) {
+          case 0:
+            sb.append(indent).append(v).append(" = n + ")
+                .append(random.nextInt(100)).append(";\n");
+            break;
+          case 1:
+            sb.append(indent).append(v).append(" = 'n' + n;\n");
+            break;
+          case 2:
+            sb.append(indent).append(v).append(" = null;\n");
+            break;
+          case 3:
+            if (depth > 0 && canElse[depth - 1]) {
+              sb.append(indent.substring(2)).append("} else {\n");
+              canElse[depth - 1] = false;
+            } else if (depth > 0) {
+              depth--;
+              sb.append(indent.substring(2)).append("}\n");
+            }
+            break;
+          case 4:
+            sb.append(indent).append("if (n % ").append(random.nextInt(7) + 2)
+                .append(" == 0) {\n");
+            canElse[depth++] = true;
+            break;
+          default:
+            sb.append(indent).append("for (var i").append(i)
+                .append(" = 0; i").append(i).append(" < n; i").append(i)
+                .append("++) {\n");
+            canElse[depth++] = false;
+            break;
+        }
+      }
+      for (; depth > 0; depth--) {
+        sb.append(Strings.repeat("  ", depth)).append("}\n");
+      }
+      sb.append("  return n;\n")
+          .append("}\n")
+          .append("window['branched").append(f).append("'] = branched")
+          .append(f).append(";\n");
+    }
+    return sb.toString();
+  }
+}
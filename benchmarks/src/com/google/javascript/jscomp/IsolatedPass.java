@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A pass of {@link DefaultPassConfig}, with a compilation that ran the passes
+ * that come before it. The benchmarks prepare a new one for each invocation,
+ * so that only the pass is measured, always on the same tree.
+ */
+final class IsolatedPass {
+  private final Compiler compiler;
+  private final PassFactory factory;
+
+  private IsolatedPass(Compiler compiler, PassFactory factory) {
+    this.compiler = compiler;
+    this.factory = factory;
+  }
+
+  /**
+   * Parses a corpus and runs the checks that come before the named check.
+   */
+  static IsolatedPass beforeCheck(
+      String corpus, CompilerOptions options, String passName)
+      throws IOException {
+    Compiler compiler = BenchmarkCorpus.parse(corpus, options);
+    return runUntil(compiler, compiler.getPassConfig().getChecks(), passName);
+  }
+
+  /**
+   * Parses a corpus, runs all the checks and the optimizations that come
+   * before the named optimization.
+   */
+  static IsolatedPass beforeOptimization(
+      String corpus, CompilerOptions options, String passName)
+      throws IOException {
+    Compiler compiler = BenchmarkCorpus.parse(corpus, options);
+    compiler.check();
+    if (compiler.hasErrors()) {
+      throw new IllegalStateException(
+          "Cannot check the " + corpus + " corpus: "
+          + compiler.getErrors()[0]);
+    }
+    compiler.normalize();
+    return runUntil(
+        compiler, compiler.getPassConfig().getOptimizations(), passName);
+  }
+
+  private static IsolatedPass runUntil(
+      Compiler compiler, List<PassFactory> passes, String passName) {
+    for (int i = 0; i < passes.size(); i++) {
+      if (passes.get(i).getName().equals(passName)) {
+        PhaseOptimizer optimizer = new PhaseOptimizer(compiler, null, null);
+        optimizer.consume(passes.subList(0, i));
+        optimizer.process(compiler.externsRoot, compiler.getJsRoot());
+        return new IsolatedPass(compiler, passes.get(i));
+      }
+    }
+    throw new IllegalArgumentException(
+        "The options don't run a pass named " + passName);
+  }
+
+  Compiler getCompiler() {
+    return compiler;
+  }
+
+  void run() {
+    factory.create(compiler).process(
+        compiler.externsRoot, compiler.getJsRoot());
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.ErrorReporter;
+import com.google.javascript.rhino.Node;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ParserRunner#parse} on the sources of a corpus, from the
+ * code to the tree with its JSDoc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ParserBenchmark {
+  @Param({BenchmarkCorpus.REAL, BenchmarkCorpus.GENERATED})
+  public String corpus;
+
+  private List<SourceFile> inputs;
+  private Config config;
+  private final ErrorReporter reporter = new ErrorReporter() {
+    @Override
+    public void warning(
+        String message, String sourceName, int line, int lineOffset) {}
+
+    @Override
+    public void error(
+        String message, String sourceName, int line, int lineOffset) {
+      throw new IllegalStateException(
+          sourceName + ":" + line + ": " + message);
+    }
+  };
+
+  @Setup
+  public void setUp() throws IOException {
+    inputs = BenchmarkCorpus.getInputs(corpus);
+    // Read the code now, so that only the parser is measured.
+    for (SourceFile input : inputs) {
+      input.getCode();
+    }
+    config = ParserRunner.createConfig(
+        false, Config.LanguageMode.ECMASCRIPT5, null);
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) throws IOException {
+    for (SourceFile input : inputs) {
+      Node root =
+          ParserRunner.parse(input, input.getCode(), config, reporter).ast;
+      blackhole.consume(root);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the passes of the type checker alone: {@link TypedScopeCreator}
+ * (resolveTypes), {@link TypeInference} (inferTypes) and {@link TypeCheck}
+ * (checkTypes).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TypeCheckingBenchmark {
+  @Param({BenchmarkCorpus.REAL, BenchmarkCorpus.GENERATED})
+  public String corpus;
+
+  @Param({
+      "resolveTypes",
+      "inferTypes",
+      "checkTypes"})
+  public String pass;
+
+  private IsolatedPass isolatedPass;
+
+  @Setup(Level.Invocation)
+  public void setUp() throws IOException {
+    CompilerOptions options = BenchmarkCorpus.createOptions();
+    options.setCheckTypes(true);
+    isolatedPass = IsolatedPass.beforeCheck(corpus, options, pass);
+  }
+
+  @Benchmark
+  public Compiler typeCheck() {
+    isolatedPass.run();
+    return isolatedPass.getCompiler();
+  }
+}
@@ -396,6 +396,12 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
     options.moduleRoots = config.moduleRoots;
     options.angularPass = config.angularPass;
     options.tracer = config.tracerMode;
+    options.setAstMemoryReport(config.astMemoryReport);
+    if (!config.passScheduleProfile.isEmpty()) {
+      options.setPassSchedule(PassSchedule.load(config.passScheduleProfile));
+    }
+    options.setPassScheduleProfiling(
+        !config.passScheduleProfileOutput.isEmpty());
     options.useNewTypeInference = config.useNewTypeInference;
   }
 
@@ -408,6 +414,20 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
    * compiler.
    */
   public final void run() {
+    int result = runAndGetExitStatus();
+
+    if (testMode) {
+      exitCodeReceiverForTesting.apply(result);
+    } else {
+      System.exit(result);
+    }
+  }
+
+  /**
+   * Runs the Compiler and returns the exit status that {@link #run()} would
+   * pass to System.exit(), without exiting.
+   */
+  final int runAndGetExitStatus() {
     int result = 0;
     int runs = 1;
     try {
@@ -415,18 +435,13 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
         result = doRun();
       }
     } catch (AbstractCommandLineRunner.FlagUsageException e) {
-      System.err.println(e.getMessage());
+      err.println(e.getMessage());
       result = -1;
     } catch (Throwable t) {
-      t.printStackTrace();
+      t.printStackTrace(err);
       result = -2;
     }
-
-    if (testMode) {
-      exitCodeReceiverForTesting.apply(result);
-    } else {
-      System.exit(result);
-    }
+    return result;
   }
 
   /**
@@ -960,6 +975,9 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
       // Output the variable and property name maps if requested.
       outputNameMaps();
 
+      // Add the measurements of the passes to the profile if requested.
+      outputPassScheduleProfile();
+
       // Output the manifest and bundle files if requested.
       outputManifest();
       outputBundle();
@@ -1289,6 +1307,21 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
     return basePath;
   }
 
+  /**
+   * Adds the measurements of the loopable passes to the pass schedule profile
+   * if the flag is set, creating the profile if it doesn't exist yet.
+   */
+  private void outputPassScheduleProfile() throws IOException {
+    String path = config.passScheduleProfileOutput;
+    if (path.isEmpty()) {
+      return;
+    }
+    PassSchedule profile = new File(path).exists()
+        ? PassSchedule.load(path) : new PassSchedule();
+    profile.record(compiler.tracker);
+    profile.save(path);
+  }
+
   /**
    * Outputs the variable and property name maps for the specified compiler if
    * the proper FLAGS are set.
@@ -2115,6 +2148,39 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
       return this;
     }
 
+    private boolean astMemoryReport = false;
+
+    /**
+     * Sets whether to report what the ASTs hold after parsing and after each
+     * pass.
+     */
+    CommandLineConfig setAstMemoryReport(boolean astMemoryReport) {
+      this.astMemoryReport = astMemoryReport;
+      return this;
+    }
+
+    private String passScheduleProfile = "";
+
+    /**
+     * Sets the profile that schedules the loopable optimization passes.
+     */
+    CommandLineConfig setPassScheduleProfile(String passScheduleProfile) {
+      this.passScheduleProfile = passScheduleProfile;
+      return this;
+    }
+
+    private String passScheduleProfileOutput = "";
+
+    /**
+     * Sets the profile to which the measurements of the loopable
+     * optimization passes are added.
+     */
+    CommandLineConfig setPassScheduleProfileOutput(
+        String passScheduleProfileOutput) {
+      this.passScheduleProfileOutput = passScheduleProfileOutput;
+      return this;
+    }
+
     private boolean useNewTypeInference = false;
 
     CommandLineConfig setNewTypeInference(boolean useNewTypeInference) {
@@ -277,6 +277,35 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
   /** Passes that do cross-scope modifications use this (eg, InlineVariables) */
   abstract void reportChangeToEnclosingScope(Node n);
 
+  /**
+   * Whether {@link #processScopesInParallel} uses more than one thread.
+   */
+  abstract boolean isParallelOptimizationEnabled();
+
+  /**
+   * Calls the callback on each of the given scope roots, which are the root of
+   * the AST or functions. They are processed on a pool of threads if the
+   * options allow it, and in order otherwise.
+   * <p>
+   * The callback must only change the code of the scope it is called on, not
+   * the functions nested in it. It may read these functions, since a scope
+   * is processed after the scopes nested in it. The diagnostics and code
+   * changes reported on a scope are reported on the calling thread once all
+   * scopes are processed, in the order of the scopes, as changes to that
+   * scope. The change handlers added by the callback only see the changes of
+   * its own scope.
+   */
+  abstract void processScopesInParallel(
+      List<Node> scopeRoots, NodeTraversal.FunctionCallback callback);
+
+  /**
+   * Returns the control flow graph of a scope, without the functions nested
+   * in it, with edge annotations. While the passes run, the graph of a
+   * function is shared by the passes until the function changes, so the
+   * passes must not change the graph itself. See ControlFlowGraphCache.
+   */
+  abstract ControlFlowGraph<Node> getControlFlowGraph(Node root);
+
   /**
    * Returns true if compiling in IDE mode.
    */
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.jscomp.parsing.parser.trees.Comment;
+import com.google.javascript.rhino.ErrorReporter;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.NodeSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Saves the trees built by the parser in a directory, so that the next
+ * compilations don't parse the files that didn't change.
+ * <p>
+ * A tree is saved under the hash of the code of the file and of the parser
+ * options, in the format of {@link NodeSerializer}, along with the warnings
+ * reported while parsing. The saved file is memory-mapped when the tree is
+ * read back, and the warnings are reported again, so the compilation is the
+ * same as when the file is parsed. Files with parse errors are not saved.
+ * <p>
+ * The cache is best effort: if a tree can't be saved or read, the file is
+ * parsed.
+ */
+final class AstCache {
+  private static final Logger logger =
+      Logger.getLogger(AstCache.class.getName());
+
+  private static final int MAGIC = 0x4A534143;  // "JSAC"
+  // Must change whenever the parser builds different trees.
+  private static final int VERSION = 1;
+
+  private final Path directory;
+
+  AstCache(String directory) {
+    this.directory = Paths.get(directory);
+  }
+
+  /**
+   * Parses a file like {@link ParserRunner#parse}, unless its tree was
+   * saved by a previous compilation.
+   */
+  ParserRunner.ParseResult parse(SourceFile sourceFile,
+      AbstractCompiler compiler) throws IOException {
+    String code = sourceFile.getCode();
+    AbstractCompiler.ConfigContext context = sourceFile.isExtern()
+        ? AbstractCompiler.ConfigContext.EXTERNS
+        : AbstractCompiler.ConfigContext.DEFAULT;
+    ErrorReporter reporter = compiler.getDefaultErrorReporter();
+    Path path = directory.resolve(
+        getKey(code, compiler.getOptions(), context) + ".ast");
+
+    Node root = read(path, sourceFile, reporter);
+    if (root != null) {
+      return new ParserRunner.ParseResult(root, ImmutableList.<Comment>of());
+    }
+
+    RecordingErrorReporter recorder = new RecordingErrorReporter(reporter);
+    ParserRunner.ParseResult result = ParserRunner.parse(
+        sourceFile, code, compiler.getParserConfig(context), recorder);
+    if (result.ast != null && !recorder.hasErrors) {
+      write(path, result.ast, sourceFile, recorder.warnings);
+    }
+    return result;
+  }
+
+  /**
+   * The name of the saved tree. It depends on everything that changes the
+   * tree built by the parser.
+   */
+  private static String getKey(String code, CompilerOptions options,
+      AbstractCompiler.ConfigContext context) {
+    Hasher hasher = Hashing.sha1().newHasher()
+        .putInt(VERSION)
+        .putString(code, UTF_8)
+        .putString(options.getLanguageIn().name(), UTF_8)
+        .putBoolean(context == AbstractCompiler.ConfigContext.EXTERNS)
+        .putBoolean(options.isParseJsDocDocumentation());
+    if (options.extraAnnotationNames != null) {
+      for (String name : new TreeSet<>(options.extraAnnotationNames)) {
+        hasher.putString(name, UTF_8).putByte((byte) 0);
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  private static Node read(
+      Path path, SourceFile sourceFile, ErrorReporter reporter) {
+    ByteBuffer buffer;
+    try (FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Cannot read " + path, e);
+      return null;
+    }
+
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        return null;
+      }
+      List<Warning> warnings = new ArrayList<>();
+      for (int count = buffer.getInt(); count > 0; count--) {
+        int line = buffer.getInt();
+        int lineOffset = buffer.getInt();
+        byte[] message = new byte[buffer.getInt()];
+        buffer.get(message);
+        warnings.add(
+            new Warning(new String(message, UTF_8), line, lineOffset));
+      }
+      Node root = NodeSerializer.deserialize(buffer, sourceFile);
+      for (Warning warning : warnings) {
+        reporter.warning(warning.message, sourceFile.getName(), warning.line,
+            warning.lineOffset);
+      }
+      return root;
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.FINE, "Cannot read " + path, e);
+      return null;
+    }
+  }
+
+  private void write(Path path, Node root, SourceFile sourceFile,
+      List<Warning> warnings) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(warnings.size());
+      for (Warning warning : warnings) {
+        byte[] message = warning.message.getBytes(UTF_8);
+        out.writeInt(warning.line);
+        out.writeInt(warning.lineOffset);
+        out.writeInt(message.length);
+        out.write(message);
+      }
+      NodeSerializer.serialize(root, sourceFile, out);
+      out.flush();
+
+      // Other compilations may read the directory at the same time, so the
+      // tree is written to a temporary file first.
+      Files.createDirectories(directory);
+      Path temp = Files.createTempFile(directory, "tmp", ".ast");
+      try {
+        try (OutputStream file = Files.newOutputStream(temp)) {
+          bytes.writeTo(file);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Cannot write " + path, e);
+    }
+  }
+
+  private static final class Warning {
+    final String message;
+    final int line;
+    final int lineOffset;
+
+    Warning(String message, int line, int lineOffset) {
+      this.message = message;
+      this.line = line;
+      this.lineOffset = lineOffset;
+    }
+  }
+
+  /**
+   * Reports the diagnostics of the parser, and records them so that they can
+   * be reported again when the tree is read back.
+   */
+  private static final class RecordingErrorReporter implements ErrorReporter {
+    private final ErrorReporter delegate;
+    final List<Warning> warnings = new ArrayList<>();
+    boolean hasErrors = false;
+
+    RecordingErrorReporter(ErrorReporter delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void warning(
+        String message, String sourceName, int line, int lineOffset) {
+      warnings.add(new Warning(message, line, lineOffset));
+      delegate.warning(message, sourceName, line, lineOffset);
+    }
+
+    @Override
+    public void error(
+        String message, String sourceName, int line, int lineOffset) {
+      hasErrors = true;
+      delegate.error(message, sourceName, line, lineOffset);
+    }
+  }
+}
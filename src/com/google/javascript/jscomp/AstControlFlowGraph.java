@@ -0,0 +1,698 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Preconditions;
+import com.google.javascript.jscomp.graph.Annotation;
+import com.google.javascript.jscomp.graph.GraphNode;
+import com.google.javascript.rhino.Node;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The control flow graph of an AST, built by {@link ControlFlowAnalysis}.
+ * <p>
+ * The graph doesn't change once it's built, so it is stored in arrays: the
+ * nodes are numbered in the order of their priorities, and the edges are
+ * stored once ordered by source and once ordered by destination, so that the
+ * edges of a node are a range of each array. The graph nodes are found from
+ * their AST nodes, by identity, in an open addressing table. The methods that
+ * add or remove nodes or edges throw.
+ * <p>
+ * The nodes are ordered by the pre-order traversal of the AST, see
+ * {@link Builder#build}, which is the order of
+ * {@link #getOptionalNodeComparator}.
+ */
+final class AstControlFlowGraph extends ControlFlowGraph<Node> {
+
+  private static final Comparator<DiGraphNode<Node, Branch>> FORWARD =
+      new Comparator<DiGraphNode<Node, Branch>>() {
+    @Override
+    public int compare(
+        DiGraphNode<Node, Branch> n1, DiGraphNode<Node, Branch> n2) {
+      return ((CfgNode) n1).id - ((CfgNode) n2).id;
+    }
+  };
+
+  private static final Comparator<DiGraphNode<Node, Branch>> BACKWARD =
+      new Comparator<DiGraphNode<Node, Branch>>() {
+    @Override
+    public int compare(
+        DiGraphNode<Node, Branch> n1, DiGraphNode<Node, Branch> n2) {
+      return ((CfgNode) n2).id - ((CfgNode) n1).id;
+    }
+  };
+
+  // The nodes by id. The implicit return is the last one.
+  private final CfgNode[] nodes;
+  private final List<DiGraphNode<Node, Branch>> nodeList;
+
+  // The edges, ordered by source.
+  private final CfgEdge[] edges;
+  private final List<DiGraphEdge<Node, Branch>> edgeList;
+
+  // The ids of the nodes by AST node, see Builder#find.
+  private final Node[] keys;
+  private final int[] ids;
+
+  private AstControlFlowGraph(CfgNode[] nodes, CfgEdge[] edges,
+      CfgNode entry, Node[] keys, int[] ids) {
+    super(entry, nodes[nodes.length - 1]);
+    this.nodes = nodes;
+    this.nodeList = Collections.unmodifiableList(
+        Arrays.<DiGraphNode<Node, Branch>>asList(nodes));
+    this.edges = edges;
+    this.edgeList = Collections.unmodifiableList(
+        Arrays.<DiGraphEdge<Node, Branch>>asList(edges));
+    this.keys = keys;
+    this.ids = ids;
+  }
+
+  /**
+   * Returns a node comparator based on the pre-order traversal of the AST.
+   * @param isForward x 'before' y in the pre-order traversal implies
+   * x 'less than' y (if true) and x 'greater than' y (if false).
+   */
+  @Override
+  public Comparator<DiGraphNode<Node, Branch>> getOptionalNodeComparator(
+      boolean isForward) {
+    return isForward ? FORWARD : BACKWARD;
+  }
+
+  @Override
+  public DiGraphNode<Node, Branch> getDirectedGraphNode(Node nodeValue) {
+    if (nodeValue == null) {
+      return getImplicitReturn();
+    }
+    int id = Builder.find(keys, ids, nodeValue);
+    return id < 0 ? null : nodes[id];
+  }
+
+  private DiGraphNode<Node, Branch> getNodeOrFail(Node nodeValue) {
+    DiGraphNode<Node, Branch> node = getDirectedGraphNode(nodeValue);
+    if (node == null) {
+      throw new IllegalArgumentException(
+          nodeValue + " does not exist in graph");
+    }
+    return node;
+  }
+
+  @Override
+  public Iterable<DiGraphNode<Node, Branch>> getDirectedGraphNodes() {
+    return nodeList;
+  }
+
+  @Override
+  public Collection<DiGraphNode<Node, Branch>> getNodes() {
+    return nodeList;
+  }
+
+  @Override
+  public List<DiGraphEdge<Node, Branch>> getEdges() {
+    return edgeList;
+  }
+
+  @Override
+  public List<DiGraphEdge<Node, Branch>> getOutEdges(Node nodeValue) {
+    return getNodeOrFail(nodeValue).getOutEdges();
+  }
+
+  @Override
+  public List<DiGraphEdge<Node, Branch>> getInEdges(Node nodeValue) {
+    return getNodeOrFail(nodeValue).getInEdges();
+  }
+
+  @Override
+  public List<DiGraphNode<Node, Branch>> getDirectedPredNodes(Node nodeValue) {
+    return getDirectedPredNodes(getDirectedGraphNode(nodeValue));
+  }
+
+  @Override
+  public List<DiGraphNode<Node, Branch>> getDirectedSuccNodes(Node nodeValue) {
+    return getDirectedSuccNodes(getDirectedGraphNode(nodeValue));
+  }
+
+  @Override
+  public List<GraphvizEdge> getGraphvizEdges() {
+    return Collections.unmodifiableList(Arrays.<GraphvizEdge>asList(edges));
+  }
+
+  @Override
+  public List<GraphvizNode> getGraphvizNodes() {
+    return Collections.unmodifiableList(Arrays.<GraphvizNode>asList(nodes));
+  }
+
+  @Override
+  public GraphNode<Node, Branch> createNode(Node value) {
+    return getNodeOrFail(value);
+  }
+
+  @Override
+  public LinkedDirectedGraphNode<Node, Branch> createDirectedGraphNode(
+      Node nodeValue) {
+    throw new UnsupportedOperationException(
+        "The control flow graph can't be changed");
+  }
+
+  @Override
+  public void connect(Node srcValue, Branch edgeValue, Node destValue) {
+    throw new UnsupportedOperationException(
+        "The control flow graph can't be changed");
+  }
+
+  @Override
+  public void connect(DiGraphNode<Node, Branch> src, Branch edgeValue,
+      DiGraphNode<Node, Branch> dest) {
+    throw new UnsupportedOperationException(
+        "The control flow graph can't be changed");
+  }
+
+  @Override
+  public void connectIfNotConnectedInDirection(
+      Node srcValue, Branch edgeValue, Node destValue) {
+    throw new UnsupportedOperationException(
+        "The control flow graph can't be changed");
+  }
+
+  @Override
+  public void disconnect(Node n1, Node n2) {
+    throw new UnsupportedOperationException(
+        "The control flow graph can't be changed");
+  }
+
+  @Override
+  public void disconnectInDirection(Node srcValue, Node destValue) {
+    throw new UnsupportedOperationException(
+        "The control flow graph can't be changed");
+  }
+
+  /**
+   * Builds an {@link AstControlFlowGraph}. The nodes are numbered in the
+   * order they are added while the graph is built, and the edges are kept
+   * in int arrays, chained by source.
+   */
+  static final class Builder {
+    private static final int NONE = -1;
+
+    private final boolean edgeAnnotations;
+
+    // The AST nodes by id; the implicit return has the id 0.
+    private Node[] values = new Node[16];
+    private int nodeCount = 0;
+    private final int entry;
+
+    // The ids of the nodes by AST node, in an open addressing table.
+    private Node[] keys = new Node[32];
+    private int[] ids = new int[32];
+
+    // The first edge from each node, by id.
+    private int[] firstOutEdge = new int[16];
+
+    // The edges. The edges from a node are chained through nextOutEdge.
+    private int[] edgeSources = new int[16];
+    private int[] edgeDestinations = new int[16];
+    private Branch[] edgeBranches = new Branch[16];
+    private int[] nextOutEdge = new int[16];
+    private int edgeCount = 0;
+
+    /**
+     * @param entry The entry node.
+     * @param edgeAnnotations Whether to allow edge annotations.
+     */
+    Builder(Node entry, boolean edgeAnnotations) {
+      this.edgeAnnotations = edgeAnnotations;
+      addNode(null);
+      this.entry = getOrAddNode(entry);
+    }
+
+    Node getEntry() {
+      return values[entry];
+    }
+
+    /**
+     * Connects two nodes with an edge, unless they are already connected by
+     * an edge with the same branch, in either direction. The nodes are
+     * added if they are not in the graph.
+     *
+     * @param fromNode Source, or null for the implicit return.
+     * @param toNode Destination, or null for the implicit return.
+     */
+    void connectIfNotFound(Node fromNode, Branch branch, Node toNode) {
+      int from = getOrAddNode(fromNode);
+      int to = getOrAddNode(toNode);
+      if (isConnectedInDirection(from, branch, to)
+          || isConnectedInDirection(to, branch, from)) {
+        return;
+      }
+      if (edgeCount == edgeSources.length) {
+        int length = edgeCount * 2;
+        edgeSources = Arrays.copyOf(edgeSources, length);
+        edgeDestinations = Arrays.copyOf(edgeDestinations, length);
+        edgeBranches = Arrays.copyOf(edgeBranches, length);
+        nextOutEdge = Arrays.copyOf(nextOutEdge, length);
+      }
+      edgeSources[edgeCount] = from;
+      edgeDestinations[edgeCount] = to;
+      edgeBranches[edgeCount] = branch;
+      nextOutEdge[edgeCount] = firstOutEdge[from];
+      firstOutEdge[from] = edgeCount;
+      edgeCount++;
+    }
+
+    private boolean isConnectedInDirection(int from, Branch branch, int to) {
+      for (int e = firstOutEdge[from]; e != NONE; e = nextOutEdge[e]) {
+        if (edgeDestinations[e] == to && edgeBranches[e] == branch) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private int getOrAddNode(Node value) {
+      if (value == null) {
+        return 0;
+      }
+      int id = find(keys, ids, value);
+      return id == NONE ? addNode(value) : id;
+    }
+
+    private int addNode(Node value) {
+      if (nodeCount == values.length) {
+        values = Arrays.copyOf(values, nodeCount * 2);
+        firstOutEdge = Arrays.copyOf(firstOutEdge, nodeCount * 2);
+      }
+      int id = nodeCount++;
+      values[id] = value;
+      firstOutEdge[id] = NONE;
+      if (value != null) {
+        if (nodeCount * 2 > keys.length) {
+          rehash(keys.length * 2);
+        }
+        insert(keys, ids, value, id);
+      }
+      return id;
+    }
+
+    private void rehash(int capacity) {
+      Node[] newKeys = new Node[capacity];
+      int[] newIds = new int[capacity];
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] != null) {
+          insert(newKeys, newIds, keys[i], ids[i]);
+        }
+      }
+      keys = newKeys;
+      ids = newIds;
+    }
+
+    private static int slot(Node[] keys, Node value) {
+      int hash = System.identityHashCode(value);
+      return (hash ^ (hash >>> 16)) & (keys.length - 1);
+    }
+
+    private static void insert(Node[] keys, int[] ids, Node value, int id) {
+      int i = slot(keys, value);
+      while (keys[i] != null) {
+        i = (i + 1) & (keys.length - 1);
+      }
+      keys[i] = value;
+      ids[i] = id;
+    }
+
+    /** Returns the id of an AST node in the table, or NONE. */
+    static int find(Node[] keys, int[] ids, Node value) {
+      for (int i = slot(keys, value); keys[i] != null;
+           i = (i + 1) & (keys.length - 1)) {
+        if (keys[i] == value) {
+          return ids[i];
+        }
+      }
+      return NONE;
+    }
+
+    /**
+     * Orders the nodes, and builds the graph.
+     * <p>
+     * We order CFG nodes by looking at the AST positions. CFG nodes that
+     * come first lexically should be visited first, because they will often be
+     * executed first in the source program. The priority of a node is given
+     * by a search from the entry node that always visits the reached node that
+     * comes first in the AST.
+     *
+     * @param astOrder The AST nodes in the pre-order traversal of the AST.
+     * @param prioritizeFunctions Whether to also search from the functions
+     *     in the graph.
+     */
+    AstControlFlowGraph build(
+        List<Node> astOrder, boolean prioritizeFunctions) {
+      int[] positions = new int[nodeCount];
+      for (int i = 0; i < astOrder.size(); i++) {
+        int id = find(keys, ids, astOrder.get(i));
+        if (id != NONE) {
+          positions[id] = i;
+        }
+      }
+      positions[0] = astOrder.size(); // the implicit return is last.
+
+      int[] priorities = new int[nodeCount];
+      Arrays.fill(priorities, NONE);
+      int[] worklist = new int[edgeCount + 1];
+      int priorityCounter = prioritizeFrom(
+          entry, 0, positions, priorities, worklist);
+
+      if (prioritizeFunctions) {
+        // If we're traversing inner functions, we need to rank the
+        // priority of them too.
+        for (int id = 1; id < nodeCount; id++) {
+          if (values[id].isFunction()) {
+            Preconditions.checkState(
+                priorities[id] == NONE || id == entry);
+            priorityCounter = prioritizeFrom(
+                id, priorityCounter, positions, priorities, worklist);
+          }
+        }
+      }
+
+      // At this point, all reachable nodes have been given a priority, but
+      // unreachable nodes have not been given a priority. Put them last.
+      // Presumably, it doesn't really matter what priority they get, since
+      // this shouldn't happen in real code.
+      for (int id = 1; id < nodeCount; id++) {
+        if (priorities[id] == NONE) {
+          priorities[id] = priorityCounter++;
+        }
+      }
+
+      // Again, the implicit return node is always last.
+      priorities[0] = priorityCounter;
+
+      CfgNode[] nodes = new CfgNode[nodeCount];
+      for (int id = 0; id < nodeCount; id++) {
+        nodes[priorities[id]] = new CfgNode(values[id], priorities[id]);
+      }
+      // The edges of each node are a range of these arrays, see
+      // CfgNode#setEdges.
+      int[] outEdgeStarts = new int[nodeCount + 1];
+      int[] inEdgeStarts = new int[nodeCount + 1];
+      for (int e = 0; e < edgeCount; e++) {
+        outEdgeStarts[priorities[edgeSources[e]] + 1]++;
+        inEdgeStarts[priorities[edgeDestinations[e]] + 1]++;
+      }
+      for (int i = 0; i < nodeCount; i++) {
+        outEdgeStarts[i + 1] += outEdgeStarts[i];
+        inEdgeStarts[i + 1] += inEdgeStarts[i];
+      }
+      CfgEdge[] outEdges = new CfgEdge[edgeCount];
+      CfgEdge[] inEdges = new CfgEdge[edgeCount];
+      int[] outEdgeEnds = Arrays.copyOf(outEdgeStarts, nodeCount);
+      int[] inEdgeEnds = Arrays.copyOf(inEdgeStarts, nodeCount);
+      // The edges are added in order, so the edges of a node stay in the
+      // order they were added.
+      for (int e = 0; e < edgeCount; e++) {
+        int source = priorities[edgeSources[e]];
+        int destination = priorities[edgeDestinations[e]];
+        CfgEdge edge = new CfgEdge(nodes[source], edgeBranches[e],
+            nodes[destination], edgeAnnotations);
+        outEdges[outEdgeEnds[source]++] = edge;
+        inEdges[inEdgeEnds[destination]++] = edge;
+      }
+      for (int i = 0; i < nodeCount; i++) {
+        nodes[i].setEdges(
+            new EdgeList(outEdges, outEdgeStarts[i], outEdgeStarts[i + 1]),
+            new EdgeList(inEdges, inEdgeStarts[i], inEdgeStarts[i + 1]));
+      }
+
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] != null) {
+          ids[i] = priorities[ids[i]];
+        }
+      }
+      return new AstControlFlowGraph(
+          nodes, outEdges, nodes[priorities[entry]], keys, ids);
+    }
+
+    /**
+     * Given an entry node, find all the nodes reachable from that node
+     * and prioritize them. The worklist is a binary heap of ids, ordered by
+     * the positions of the nodes in the AST.
+     *
+     * @return The next priority.
+     */
+    private int prioritizeFrom(int start, int priorityCounter,
+        int[] positions, int[] priorities, int[] worklist) {
+      int size = 0;
+      worklist[size++] = start;
+      while (size > 0) {
+        int current = worklist[0];
+        int last = worklist[--size];
+        // Sift the last node down from the root.
+        int i = 0;
+        while (2 * i + 1 < size) {
+          int child = 2 * i + 1;
+          if (child + 1 < size
+              && positions[worklist[child + 1]] < positions[worklist[child]]) {
+            child++;
+          }
+          if (positions[last] <= positions[worklist[child]]) {
+            break;
+          }
+          worklist[i] = worklist[child];
+          i = child;
+        }
+        worklist[i] = last;
+
+        if (priorities[current] != NONE || current == 0) {
+          continue;
+        }
+        priorities[current] = priorityCounter++;
+
+        for (int e = firstOutEdge[current]; e != NONE; e = nextOutEdge[e]) {
+          // Sift the successor up from the end.
+          int successor = edgeDestinations[e];
+          int j = size++;
+          while (j > 0
+              && positions[worklist[(j - 1) / 2]] > positions[successor]) {
+            worklist[j] = worklist[(j - 1) / 2];
+            j = (j - 1) / 2;
+          }
+          worklist[j] = successor;
+        }
+      }
+      return priorityCounter;
+    }
+  }
+
+  /**
+   * A node of the graph. The edges of a node are ranges of the arrays of the
+   * graph.
+   */
+  private static final class CfgNode
+      implements DiGraphNode<Node, Branch>, GraphvizNode {
+    private final Node value;
+    private final int id;
+    private Annotation annotation;
+    private List<DiGraphEdge<Node, Branch>> outEdges;
+    private List<DiGraphEdge<Node, Branch>> inEdges;
+
+    CfgNode(Node value, int id) {
+      this.value = value;
+      this.id = id;
+    }
+
+    void setEdges(List<DiGraphEdge<Node, Branch>> outEdges,
+        List<DiGraphEdge<Node, Branch>> inEdges) {
+      this.outEdges = outEdges;
+      this.inEdges = inEdges;
+    }
+
+    @Override
+    public Node getValue() {
+      return value;
+    }
+
+    @Override
+    public List<DiGraphEdge<Node, Branch>> getOutEdges() {
+      return outEdges;
+    }
+
+    @Override
+    public List<DiGraphEdge<Node, Branch>> getInEdges() {
+      return inEdges;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <A extends Annotation> A getAnnotation() {
+      return (A) annotation;
+    }
+
+    @Override
+    public void setAnnotation(Annotation data) {
+      annotation = data;
+    }
+
+    @Override
+    public String getColor() {
+      return "white";
+    }
+
+    @Override
+    public String getId() {
+      return "CFG" + id;
+    }
+
+    @Override
+    public String getLabel() {
+      return String.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+      return getLabel();
+    }
+  }
+
+  /** An edge of the graph. */
+  private static final class CfgEdge
+      implements DiGraphEdge<Node, Branch>, GraphvizEdge {
+    private final CfgNode source;
+    private final Branch value;
+    private final CfgNode destination;
+    private final boolean annotated;
+    private Annotation annotation;
+
+    CfgEdge(CfgNode source, Branch value, CfgNode destination,
+        boolean annotated) {
+      this.source = source;
+      this.value = value;
+      this.destination = destination;
+      this.annotated = annotated;
+    }
+
+    @Override
+    public DiGraphNode<Node, Branch> getSource() {
+      return source;
+    }
+
+    @Override
+    public DiGraphNode<Node, Branch> getDestination() {
+      return destination;
+    }
+
+    @Override
+    public void setSource(DiGraphNode<Node, Branch> node) {
+      throw new UnsupportedOperationException(
+          "The control flow graph can't be changed");
+    }
+
+    @Override
+    public void setDestination(DiGraphNode<Node, Branch> node) {
+      throw new UnsupportedOperationException(
+          "The control flow graph can't be changed");
+    }
+
+    @Override
+    public GraphNode<Node, Branch> getNodeA() {
+      return source;
+    }
+
+    @Override
+    public GraphNode<Node, Branch> getNodeB() {
+      return destination;
+    }
+
+    @Override
+    public Branch getValue() {
+      return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <A extends Annotation> A getAnnotation() {
+      if (!annotated) {
+        throw new UnsupportedOperationException(
+            "Graph initialized with edge annotations turned off");
+      }
+      return (A) annotation;
+    }
+
+    @Override
+    public void setAnnotation(Annotation data) {
+      if (!annotated) {
+        throw new UnsupportedOperationException(
+            "Graph initialized with edge annotations turned off");
+      }
+      annotation = data;
+    }
+
+    @Override
+    public String getColor() {
+      return "black";
+    }
+
+    @Override
+    public String getLabel() {
+      return String.valueOf(value);
+    }
+
+    @Override
+    public String getNode1Id() {
+      return source.getId();
+    }
+
+    @Override
+    public String getNode2Id() {
+      return destination.getId();
+    }
+
+    @Override
+    public String toString() {
+      return source + " -> " + destination;
+    }
+  }
+
+  /** An immutable view of a range of an array of edges. */
+  private static final class EdgeList
+      extends AbstractList<DiGraphEdge<Node, Branch>> implements RandomAccess {
+    private final CfgEdge[] edges;
+    private final int start;
+    private final int end;
+
+    EdgeList(CfgEdge[] edges, int start, int end) {
+      this.edges = edges;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public DiGraphEdge<Node, Branch> get(int index) {
+      Preconditions.checkElementIndex(index, end - start);
+      return edges[start + index];
+    }
+
+    @Override
+    public int size() {
+      return end - start;
+    }
+  }
+}
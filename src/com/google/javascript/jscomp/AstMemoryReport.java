@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.javascript.rhino.AstStatistics;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.jstype.JSTypeRegistry;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+/**
+ * Reports what the ASTs hold after parsing and after each pass, to find out
+ * what takes the memory of big compilations and how it changes between
+ * versions of the compiler. It is enabled with
+ * {@link CompilerOptions#setAstMemoryReport}, and written in JSON after the
+ * JVM metrics:
+ * <pre>
+ * {"passes": [{
+ *   "pass": "parseInputs",
+ *   "usedHeapBytes": 104857600,
+ *   "nodes": 52030,
+ *   "nodesByToken": {"CALL": 4012, ...},
+ *   "propsByType": {"free_call": 2301, ...},
+ *   "propListItems": 724,
+ *   "jsDocInfos": 3120,
+ *   "types": 0,
+ *   "typesByClass": {},
+ *   "typeRegistry": {"namesToTypes": 412, ...}
+ * }, ...]}
+ * </pre>
+ * The type registry is only reported once it is created. The used heap is
+ * measured without a garbage collection, so it includes garbage.
+ */
+@GwtIncompatible("com.google.gson")
+final class AstMemoryReport {
+  private final JsonArray passes = new JsonArray();
+
+  /** Records what the ASTs hold after a pass. */
+  void recordPass(String passName, Node externsRoot, Node jsRoot,
+      JSTypeRegistry typeRegistry) {
+    AstStatistics stats = new AstStatistics();
+    if (externsRoot != null) {
+      stats.add(externsRoot);
+    }
+    if (jsRoot != null) {
+      stats.add(jsRoot);
+    }
+
+    Runtime runtime = Runtime.getRuntime();
+    JsonObject pass = new JsonObject();
+    pass.addProperty("pass", passName);
+    pass.addProperty(
+        "usedHeapBytes", runtime.totalMemory() - runtime.freeMemory());
+    pass.addProperty("nodes", stats.getNodeCount());
+    pass.add("nodesByToken", toJson(stats.getNodeCountsByToken()));
+    pass.add("propsByType", toJson(stats.getPropCountsByType()));
+    pass.addProperty("propListItems", stats.getPropListItemCount());
+    pass.addProperty("jsDocInfos", stats.getJSDocInfoCount());
+    pass.addProperty("types", stats.getTypeCount());
+    pass.add("typesByClass", toJson(stats.getTypeCountsByClass()));
+    if (typeRegistry != null) {
+      pass.add("typeRegistry", toJson(typeRegistry.getTableSizes()));
+    }
+    passes.add(pass);
+  }
+
+  private static JsonObject toJson(Map<String, Integer> counts) {
+    JsonObject object = new JsonObject();
+    for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+      object.addProperty(entry.getKey(), entry.getValue());
+    }
+    return object;
+  }
+
+  /** Returns the report, for testing. */
+  JsonObject toJson() {
+    JsonObject report = new JsonObject();
+    report.add("passes", passes);
+    return report;
+  }
+
+  void outputReport(PrintStream out) {
+    out.println(
+        new GsonBuilder().setPrettyPrinting().create().toJson(toJson()));
+    out.flush();
+  }
+}
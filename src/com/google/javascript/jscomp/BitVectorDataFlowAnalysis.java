@@ -0,0 +1,398 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.javascript.jscomp.ControlFlowGraph.Branch;
+import com.google.javascript.jscomp.DataFlowAnalysis.FlowState;
+import com.google.javascript.jscomp.DataFlowAnalysis.MaxIterationsExceededException;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
+import com.google.javascript.jscomp.graph.LatticeElement;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A data flow analysis of a problem whose facts are the bits of a bit vector,
+ * whose join is the union and whose flow through a node is
+ * {@code GEN | (IN & ~KILL)}, like the liveness of the local variables.
+ * <p>
+ * Unlike {@link DataFlowAnalysis}, the GEN and KILL sets of a node are
+ * computed once, and the states of all the nodes are the rows of two
+ * {@code long[]} matrices that are updated in place, so solving doesn't
+ * allocate. The nodes are numbered in the order of
+ * {@link ControlFlowGraph#getOptionalNodeComparator}, and the work list is a
+ * bit set of these numbers: the next node to flow through is the first
+ * pending one in that order, like with the ordered work set of
+ * {@link DataFlowAnalysis}.
+ * <p>
+ * Upon execution of the {@link #analyze()} method, the nodes of the graph are
+ * annotated with {@link FlowState}s whose lattices are views of the rows of
+ * the matrices, so the results read like the results of a
+ * {@link DataFlowAnalysis}.
+ *
+ * @param <N> The control flow graph's node value type.
+ * @param <L> Lattice element type.
+ */
+abstract class BitVectorDataFlowAnalysis
+    <N, L extends BitVectorDataFlowAnalysis.BitVectorLattice> {
+
+  private final ControlFlowGraph<N> cfg;
+
+  /**
+   * @param cfg The control flow graph to analyze.
+   */
+  BitVectorDataFlowAnalysis(ControlFlowGraph<N> cfg) {
+    this.cfg = cfg;
+  }
+
+  /**
+   * Returns the control flow graph that this analysis was performed on.
+   */
+  final ControlFlowGraph<N> getCfg() {
+    return cfg;
+  }
+
+  /**
+   * Checks whether the analysis is a forward flow analysis or backward flow
+   * analysis.
+   *
+   * @return {@code true} if it is a forward analysis.
+   */
+  abstract boolean isForward();
+
+  /**
+   * The number of bits of the states; all the bits set by
+   * {@link #computeGenKill} are below it.
+   */
+  abstract int getBitCount();
+
+  /**
+   * Computes the GEN and KILL sets of a node. Called once per node, before
+   * solving.
+   *
+   * @param node The node.
+   * @param gen The facts generated by {@code node} are added to this set.
+   * @param kill The facts killed by {@code node} are added to this set.
+   */
+  abstract void computeGenKill(N node, BitSet gen, BitSet kill);
+
+  /**
+   * Creates the lattice element that is a view of a row of a state matrix.
+   */
+  abstract L createLattice(long[] matrix, int row, int wordsPerRow);
+
+  /**
+   * Finds a fixed-point solution using at most
+   * {@link DataFlowAnalysis#MAX_STEPS} iterations.
+   *
+   * @see #analyze(int)
+   */
+  final void analyze() {
+    analyze(DataFlowAnalysis.MAX_STEPS);
+  }
+
+  /**
+   * Finds a fixed-point solution, and annotates the nodes of the graph with
+   * it. The states start empty, including the state at the entry of the
+   * graph.
+   *
+   * @param maxSteps Max number of iterations before the method stops and throw
+   *        a {@link MaxIterationsExceededException}.
+   */
+  final void analyze(int maxSteps) {
+    DiGraphNode<N, Branch>[] nodes = getOrderedNodes();
+    int nodeCount = nodes.length;
+    int wordsPerRow = (getBitCount() + 63) >>> 6;
+    long[] in = new long[nodeCount * wordsPerRow];
+    long[] out = new long[nodeCount * wordsPerRow];
+    // The state that is the join of the neighbors, and the state that is
+    // the result of the flow through the node.
+    long[] joined = isForward() ? in : out;
+    long[] flowed = isForward() ? out : in;
+
+    for (int i = 0; i < nodeCount; i++) {
+      nodes[i].setAnnotation(new FlowState<>(
+          createLattice(in, i, wordsPerRow),
+          createLattice(out, i, wordsPerRow)));
+    }
+
+    long[] gen = new long[nodeCount * wordsPerRow];
+    long[] kill = new long[nodeCount * wordsPerRow];
+    computeGenKill(nodes, wordsPerRow, gen, kill);
+
+    // The neighbors whose states are joined at a node, and the neighbors
+    // that depend on its state, as lists of node numbers.
+    int[] sourcesStart = new int[nodeCount + 1];
+    int[] dependentsStart = new int[nodeCount + 1];
+    int[] sources = getNeighbors(nodes, !isForward(), sourcesStart);
+    int[] dependents = getNeighbors(nodes, isForward(), dependentsStart);
+
+    int implicitReturn = getNumber(cfg.getImplicitReturn());
+    int entry = getNumber(cfg.getEntry());
+    long[] workList = new long[(nodeCount + 63) >>> 6];
+    for (int i = 0; i < nodeCount; i++) {
+      if (i != implicitReturn) {
+        workList[i >>> 6] |= 1L << i;
+      }
+    }
+
+    int firstWord = 0;
+    int step = 0;
+    while (true) {
+      while (firstWord < workList.length && workList[firstWord] == 0) {
+        firstWord++;
+      }
+      if (firstWord == workList.length) {
+        break;
+      }
+      if (step > maxSteps) {
+        throw new MaxIterationsExceededException(
+          "Analysis did not terminate after " + maxSteps + " iterations");
+      }
+      int i = (firstWord << 6)
+          + Long.numberOfTrailingZeros(workList[firstWord]);
+      workList[firstWord] &= workList[firstWord] - 1;
+
+      if (!isForward() || i != entry) {
+        join(joined, flowed, i, sources, sourcesStart, wordsPerRow);
+      }
+      if (flow(joined, flowed, gen, kill, i, wordsPerRow)) {
+        for (int k = dependentsStart[i]; k < dependentsStart[i + 1]; k++) {
+          int j = dependents[k];
+          if (j != implicitReturn) {
+            workList[j >>> 6] |= 1L << j;
+            firstWord = Math.min(firstWord, j >>> 6);
+          }
+        }
+      }
+      step++;
+    }
+    if (isForward()) {
+      join(joined, flowed, implicitReturn, sources, sourcesStart, wordsPerRow);
+    }
+  }
+
+  /**
+   * Returns the nodes of the graph in the order of its comparator, if it has
+   * one, and the number of a node is its index.
+   */
+  @SuppressWarnings("unchecked")
+  private DiGraphNode<N, Branch>[] getOrderedNodes() {
+    DiGraphNode<N, Branch>[] nodes =
+        Iterables.toArray(cfg.getDirectedGraphNodes(), DiGraphNode.class);
+    Comparator<DiGraphNode<N, Branch>> comparator =
+        cfg.getOptionalNodeComparator(isForward());
+    if (comparator != null) {
+      Arrays.sort(nodes, comparator);
+    }
+    return nodes;
+  }
+
+  /** The number of a node, found through the annotation of the node. */
+  private static int getNumber(DiGraphNode<?, Branch> node) {
+    FlowState<BitVectorLattice> state = node.getAnnotation();
+    return state.getIn().row;
+  }
+
+  private void computeGenKill(DiGraphNode<N, Branch>[] nodes, int wordsPerRow,
+      long[] gen, long[] kill) {
+    BitSet genSet = new BitSet(getBitCount());
+    BitSet killSet = new BitSet(getBitCount());
+    for (int i = 0; i < nodes.length; i++) {
+      if (nodes[i] == cfg.getImplicitReturn()) {
+        continue;
+      }
+      genSet.clear();
+      killSet.clear();
+      computeGenKill(nodes[i].getValue(), genSet, killSet);
+      Preconditions.checkState(genSet.length() <= getBitCount()
+          && killSet.length() <= getBitCount());
+      copy(genSet, gen, i * wordsPerRow);
+      copy(killSet, kill, i * wordsPerRow);
+    }
+  }
+
+  private static void copy(BitSet set, long[] matrix, int start) {
+    for (int b = set.nextSetBit(0); b >= 0; b = set.nextSetBit(b + 1)) {
+      matrix[start + (b >>> 6)] |= 1L << b;
+    }
+  }
+
+  /**
+   * Lists the predecessors or successors of every node.
+   *
+   * @param starts Receives where the neighbors of each node start in the
+   *     returned array, followed by the length of the array.
+   */
+  private int[] getNeighbors(DiGraphNode<N, Branch>[] nodes,
+      boolean successors, int[] starts) {
+    int count = 0;
+    for (int i = 0; i < nodes.length; i++) {
+      starts[i] = count;
+      count += successors
+          ? nodes[i].getOutEdges().size() : nodes[i].getInEdges().size();
+    }
+    starts[nodes.length] = count;
+    int[] neighbors = new int[count];
+    for (int i = 0; i < nodes.length; i++) {
+      int k = starts[i];
+      List<DiGraphEdge<N, Branch>> edges =
+          successors ? nodes[i].getOutEdges() : nodes[i].getInEdges();
+      for (DiGraphEdge<N, Branch> edge : edges) {
+        neighbors[k++] = getNumber(
+            successors ? edge.getDestination() : edge.getSource());
+      }
+    }
+    return neighbors;
+  }
+
+  /**
+   * Sets the joined state of a node to the union of the states that result
+   * from the flows through its sources. A node without sources keeps its
+   * state.
+   */
+  private static void join(long[] joined, long[] flowed, int node,
+      int[] sources, int[] sourcesStart, int wordsPerRow) {
+    int first = sourcesStart[node];
+    int end = sourcesStart[node + 1];
+    if (first == end) {
+      return;
+    }
+    int row = node * wordsPerRow;
+    for (int w = 0; w < wordsPerRow; w++) {
+      joined[row + w] = 0;
+    }
+    for (int k = first; k < end; k++) {
+      int sourceRow = sources[k] * wordsPerRow;
+      for (int w = 0; w < wordsPerRow; w++) {
+        joined[row + w] |= flowed[sourceRow + w];
+      }
+    }
+  }
+
+  /**
+   * Flows through a node.
+   *
+   * @return {@code true} if the state that results from the flow changed.
+   */
+  private static boolean flow(long[] joined, long[] flowed, long[] gen,
+      long[] kill, int node, int wordsPerRow) {
+    boolean changed = false;
+    int row = node * wordsPerRow;
+    for (int w = row; w < row + wordsPerRow; w++) {
+      long result = gen[w] | (joined[w] & ~kill[w]);
+      if (result != flowed[w]) {
+        flowed[w] = result;
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * The state at a point of the program: a row of a state matrix, that
+   * changes while the analysis runs.
+   */
+  static class BitVectorLattice implements LatticeElement {
+    private final long[] matrix;
+    private final int row;
+    private final int start;
+    private final int wordsPerRow;
+
+    BitVectorLattice(long[] matrix, int row, int wordsPerRow) {
+      this.matrix = matrix;
+      this.row = row;
+      this.start = row * wordsPerRow;
+      this.wordsPerRow = wordsPerRow;
+    }
+
+    /** Whether the bit at an index is set. */
+    boolean get(int index) {
+      Preconditions.checkElementIndex(index, wordsPerRow << 6);
+      return (matrix[start + (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns the index of the first set bit at or after an index, or -1 if
+     * there is none, like {@link BitSet#nextSetBit}.
+     */
+    int nextSetBit(int fromIndex) {
+      int w = fromIndex >>> 6;
+      if (w >= wordsPerRow) {
+        return -1;
+      }
+      long word = matrix[start + w] & (-1L << fromIndex);
+      while (word == 0) {
+        if (++w == wordsPerRow) {
+          return -1;
+        }
+        word = matrix[start + w];
+      }
+      return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /** Returns the bits from {@code 64 * index} to {@code 64 * index + 63}. */
+    long getWord(int index) {
+      Preconditions.checkElementIndex(index, wordsPerRow);
+      return matrix[start + index];
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof BitVectorLattice)) {
+        return false;
+      }
+      BitVectorLattice that = (BitVectorLattice) other;
+      if (this.wordsPerRow != that.wordsPerRow) {
+        return false;
+      }
+      for (int w = 0; w < wordsPerRow; w++) {
+        if (this.matrix[this.start + w] != that.matrix[that.start + w]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      long h = 1234;
+      for (int w = 0; w < wordsPerRow; w++) {
+        h ^= matrix[start + w] * (w + 1);
+      }
+      return (int) ((h >> 32) ^ h);
+    }
+
+    /** The indices of the set bits, like {@link BitSet#toString}. */
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("{");
+      for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+        if (sb.length() > 1) {
+          sb.append(", ");
+        }
+        sb.append(i);
+      }
+      return sb.append('}').toString();
+    }
+  }
+}
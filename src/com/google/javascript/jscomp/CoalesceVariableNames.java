@@ -25,18 +25,16 @@ import com.google.javascript.jscomp.LiveVariablesAnalysis.LiveVariableLattice;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.jscomp.NodeTraversal.ScopedCallback;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
-import com.google.javascript.jscomp.graph.GraphColoring;
 import com.google.javascript.jscomp.graph.GraphColoring.GreedyGraphColoring;
-import com.google.javascript.jscomp.graph.GraphNode;
-import com.google.javascript.jscomp.graph.LinkedUndirectedGraph;
-import com.google.javascript.jscomp.graph.UndiGraph;
 import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.Node;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -52,25 +50,17 @@ import java.util.TreeSet;
  * <p>The pass operates similar to a typical register allocator found in an
  * optimizing compiler by first computing live ranges with
  * {@link LiveVariablesAnalysis} and a variable interference graph. Then it uses
- * graph coloring in {@link GraphColoring} to determine which two variables can
- * be merge together safely.
+ * graph coloring, like {@link GreedyGraphColoring}, to determine which two
+ * variables can be merge together safely.
  *
  */
 class CoalesceVariableNames extends AbstractPostOrderCallback implements
     CompilerPass, ScopedCallback {
 
   private final AbstractCompiler compiler;
-  private final Deque<GraphColoring<Var, Void>> colorings;
+  private final Deque<InterferenceGraph> colorings;
   private final boolean usePseudoNames;
 
-  private static final Comparator<Var> coloringTieBreaker =
-      new Comparator<Var>() {
-    @Override
-    public int compare(Var v1, Var v2) {
-      return v1.index - v2.index;
-    }
-  };
-
   /**
    * @param usePseudoNames For debug purposes, when merging variable foo and bar
    * to foo, rename both variable to foo_bar.
@@ -119,16 +109,12 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
     }
     liveness.analyze();
 
-    UndiGraph<Var, Void> interferenceGraph =
+    InterferenceGraph interferenceGraph =
         computeVariableNamesInterferenceGraph(
             t, cfg, (Set<Var>) liveness.getEscapedLocals());
 
-    GraphColoring<Var, Void> coloring =
-        new GreedyGraphColoring<>(interferenceGraph,
-            coloringTieBreaker);
-
-    coloring.color();
-    colorings.push(coloring);
+    interferenceGraph.color();
+    colorings.push(interferenceGraph);
   }
 
   @Override
@@ -147,15 +133,14 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
       return;
     }
     Var var = t.getScope().getVar(n.getString());
-    GraphNode<Var, ?> vNode = colorings.peek().getGraph().getNode(var);
-    if (vNode == null) {
+    if (!colorings.peek().hasNode(var)) {
       // This is not a local.
       return;
     }
     Var coalescedVar = colorings.peek().getPartitionSuperNode(var);
 
     if (!usePseudoNames) {
-      if (vNode.getValue().equals(coalescedVar)) {
+      if (var.equals(coalescedVar)) {
         // The coalesced name is itself, nothing to do.
         return;
       }
@@ -178,7 +163,7 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
 
         // Look for all the variables that can be merged (in the graph by now)
         // and it is merged with the current coalescedVar.
-        if (colorings.peek().getGraph().getNode(iVar) != null &&
+        if (colorings.peek().hasNode(iVar) &&
             coalescedVar.equals(colorings.peek().getPartitionSuperNode(iVar))) {
           allMergedNames.add(iVar.name);
         }
@@ -198,19 +183,19 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
       n.setString(pseudoName);
       compiler.reportCodeChange();
 
-      if (!vNode.getValue().equals(coalescedVar) && parent.isVar()) {
+      if (!var.equals(coalescedVar) && parent.isVar()) {
         removeVarDeclaration(n);
       }
     }
   }
 
-  private UndiGraph<Var, Void> computeVariableNamesInterferenceGraph(
+  private InterferenceGraph computeVariableNamesInterferenceGraph(
       NodeTraversal t, ControlFlowGraph<Node> cfg, Set<Var> escaped) {
-    UndiGraph<Var, Void> interferenceGraph =
-        LinkedUndirectedGraph.create();
     Scope scope = t.getScope();
+    InterferenceGraph interferenceGraph = new InterferenceGraph(scope);
 
     // First create a node for each non-escaped variable.
+    List<Var> params = new ArrayList<>();
     for (Iterator<Var> i = scope.getVars(); i.hasNext();) {
       Var v = i.next();
       if (!escaped.contains(v)) {
@@ -222,12 +207,41 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
         // that is but, for now, we will respect the dead functions and not play
         // around with it.
         if (!v.getParentNode().isFunction()) {
-          interferenceGraph.createNode(v);
+          interferenceGraph.addNode(v);
+          if (v.getParentNode().isParamList()) {
+            params.add(v);
+          }
         }
       }
     }
 
-    // Go through each variable and try to connect them.
+    // The parameters are all connected.
+    for (int i = 0; i < params.size(); i++) {
+      for (int j = i + 1; j < params.size(); j++) {
+        interferenceGraph.connect(params.get(i), params.get(j));
+      }
+    }
+
+    // Go through every CFG node in the program. The variables that are live
+    // at the same time, before or after the node, are all connected.
+    List<DiGraphNode<Node, Branch>> cfgNodes = new ArrayList<>();
+    for (DiGraphNode<Node, Branch> cfgNode : cfg.getDirectedGraphNodes()) {
+      if (cfg.isImplicitReturn(cfgNode)) {
+        continue;
+      }
+      cfgNodes.add(cfgNode);
+      FlowState<LiveVariableLattice> state = cfgNode.getAnnotation();
+      interferenceGraph.connectAll(state.getIn());
+      interferenceGraph.connectAll(state.getOut());
+    }
+
+    // The remaining pairs v1 and v2 might not have an edge between them!
+    // woohoo. there's one last sanity check that we have to do: we have to
+    // check if there's a collision *within* the cfg node. Only the nodes that
+    // assign one of the variables can have one.
+    long[] assigned =
+        computeAssignedVariables(scope, cfgNodes, interferenceGraph);
+    int wordsPerRow = interferenceGraph.wordsPerRow;
     for (Iterator<Var> i1 = scope.getVars(); i1.hasNext();) {
       Var v1 = i1.next();
 
@@ -241,45 +255,22 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
         }
 
         if (!interferenceGraph.hasNode(v1) ||
-            !interferenceGraph.hasNode(v2)) {
+            !interferenceGraph.hasNode(v2) ||
+            interferenceGraph.isConnected(v1, v2)) {
           // Skip nodes that were not added. They are globals and escaped
           // locals. Also avoid merging a variable with itself.
           continue NEXT_VAR_PAIR;
         }
 
-        if (v1.getParentNode().isParamList() &&
-            v2.getParentNode().isParamList()) {
-          interferenceGraph.connectIfNotFound(v1, null, v2);
-          continue NEXT_VAR_PAIR;
-        }
-
-        // Go through every CFG node in the program and look at
-        // this variable pair. If they are both live at the same
-        // time, add an edge between them and continue to the next pair.
-        NEXT_CROSS_CFG_NODE:
-        for (DiGraphNode<Node, Branch> cfgNode : cfg.getDirectedGraphNodes()) {
-          if (cfg.isImplicitReturn(cfgNode)) {
-            continue NEXT_CROSS_CFG_NODE;
-          }
-
-          FlowState<LiveVariableLattice> state = cfgNode.getAnnotation();
-          // Check the live states and add edge when possible.
-          if ((state.getIn().isLive(v1) && state.getIn().isLive(v2)) ||
-              (state.getOut().isLive(v1) && state.getOut().isLive(v2))) {
-            interferenceGraph.connectIfNotFound(v1, null, v2);
-            continue NEXT_VAR_PAIR;
-          }
-        }
-
-        // v1 and v2 might not have an edge between them! woohoo. there's
-        // one last sanity check that we have to do: we have to check
-        // if there's a collision *within* the cfg node.
         NEXT_INTRA_CFG_NODE:
-        for (DiGraphNode<Node, Branch> cfgNode : cfg.getDirectedGraphNodes()) {
-          if (cfg.isImplicitReturn(cfgNode)) {
+        for (int k = 0; k < cfgNodes.size(); k++) {
+          int row = k * wordsPerRow;
+          if ((assigned[row + (v1.index >>> 6)] & (1L << v1.index)) == 0
+              && (assigned[row + (v2.index >>> 6)] & (1L << v2.index)) == 0) {
             continue NEXT_INTRA_CFG_NODE;
           }
 
+          DiGraphNode<Node, Branch> cfgNode = cfgNodes.get(k);
           FlowState<LiveVariableLattice> state = cfgNode.getAnnotation();
           boolean v1OutLive = state.getOut().isLive(v1);
           boolean v2OutLive = state.getOut().isLive(v2);
@@ -299,6 +290,34 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
     return interferenceGraph;
   }
 
+  /**
+   * Finds the variables of the graph that each CFG node assigns, as the rows
+   * of a bit matrix.
+   */
+  private long[] computeAssignedVariables(final Scope scope,
+      List<DiGraphNode<Node, Branch>> cfgNodes,
+      final InterferenceGraph interferenceGraph) {
+    final int wordsPerRow = interferenceGraph.wordsPerRow;
+    final long[] assigned = new long[cfgNodes.size() * wordsPerRow];
+    for (int k = 0; k < cfgNodes.size(); k++) {
+      final int row = k * wordsPerRow;
+      NodeTraversal.traverse(compiler, cfgNodes.get(k).getValue(),
+          new AbstractCfgNodeTraversalCallback() {
+            @Override
+            public void visit(NodeTraversal t, Node n, Node parent) {
+              String name = LiveRangeChecker.getAssignedName(n, parent);
+              if (name != null) {
+                Var v = scope.getVar(name);
+                if (interferenceGraph.hasNode(v)) {
+                  assigned[row + (v.index >>> 6)] |= 1L << v.index;
+                }
+              }
+            }
+          });
+    }
+    return assigned;
+  }
+
   /**
    * A simple wrapper calls to call two AbstractCfgNodeTraversalCallback
    * callback during the same traversal.  Both traversals must have the same
@@ -325,11 +344,11 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
       }
     }
 
-    boolean connectIfCrossed(UndiGraph<Var, Void> interferenceGraph) {
+    boolean connectIfCrossed(InterferenceGraph interferenceGraph) {
       if (callback1.crossed || callback2.crossed) {
         Var v1 = callback1.getDef();
         Var v2 = callback2.getDef();
-        interferenceGraph.connectIfNotFound(v1, null, v2);
+        interferenceGraph.connect(v1, v2);
         return true;
       }
       return false;
@@ -410,23 +429,31 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
     }
 
     private static boolean isAssignTo(Var var, Node n, Node parent) {
-      if (n.isName() && var.getName().equals(n.getString()) &&
-          parent != null) {
-        if (parent.isParamList()) {
+      return var.getName().equals(getAssignedName(n, parent));
+    }
+
+    /**
+     * Returns the name of the variable that a node assigns, or null if it
+     * isn't an assignment to a name.
+     */
+    static String getAssignedName(Node n, Node parent) {
+      if (n.isName()) {
+        if (parent == null) {
+          return null;
+        } else if (parent.isParamList()) {
           // In a function declaration, the formal parameters are assigned.
-          return true;
+          return n.getString();
         } else if (parent.isVar()) {
           // If this is a VAR declaration, if the name node has a child, we are
           // assigning to that name.
-          return n.hasChildren();
+          return n.hasChildren() ? n.getString() : null;
         }
-        return false; // Definitely a read.
+        return null; // Definitely a read.
       } else {
         // Lastly, any assignmentOP is also an assign.
         Node name = n.getFirstChild();
-        return name != null && name.isName() &&
-          var.getName().equals(name.getString()) &&
-          NodeUtil.isAssignmentOp(n);
+        return name != null && name.isName() && NodeUtil.isAssignmentOp(n)
+            ? name.getString() : null;
       }
     }
 
@@ -436,4 +463,141 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
           !NodeUtil.isVarOrSimpleAssignLhs(name, name.getParent());
     }
   }
+
+  /**
+   * The interference graph of the variables of a scope, and its coloring.
+   * The edges are the rows of a bit matrix indexed by {@link Var#index}, and
+   * the coloring is the one of {@link GreedyGraphColoring}, with the ties
+   * between the nodes of the same degree broken by their indices.
+   */
+  private static final class InterferenceGraph {
+    private final Scope scope;
+    private final int varCount;
+    private final int wordsPerRow;
+    // The variables that are nodes of the graph, by index, and as a bit set.
+    private final Var[] vars;
+    private final long[] nodes;
+    private final long[] edges;
+    // The color of each node, and the variable that represents each color,
+    // once it was asked for.
+    private int[] colors;
+    private Var[] colorToVar;
+
+    InterferenceGraph(Scope scope) {
+      this.scope = scope;
+      this.varCount = scope.getVarCount();
+      this.wordsPerRow = (varCount + 63) >>> 6;
+      this.vars = new Var[varCount];
+      this.nodes = new long[wordsPerRow];
+      this.edges = new long[varCount * wordsPerRow];
+    }
+
+    void addNode(Var v) {
+      vars[v.index] = v;
+      nodes[v.index >>> 6] |= 1L << v.index;
+    }
+
+    boolean hasNode(Var v) {
+      return v != null && v.scope == scope && vars[v.index] != null;
+    }
+
+    void connect(Var v1, Var v2) {
+      edges[v1.index * wordsPerRow + (v2.index >>> 6)] |= 1L << v2.index;
+      edges[v2.index * wordsPerRow + (v1.index >>> 6)] |= 1L << v1.index;
+    }
+
+    boolean isConnected(Var v1, Var v2) {
+      return (edges[v1.index * wordsPerRow + (v2.index >>> 6)]
+          & (1L << v2.index)) != 0;
+    }
+
+    /** Connects all the nodes of a set of live variables with each other. */
+    void connectAll(LiveVariableLattice live) {
+      long[] liveNodes = new long[wordsPerRow];
+      for (int w = 0; w < wordsPerRow; w++) {
+        liveNodes[w] = live.getWord(w) & nodes[w];
+      }
+      for (int w = 0; w < wordsPerRow; w++) {
+        for (long word = liveNodes[w]; word != 0; word &= word - 1) {
+          int i = (w << 6) + Long.numberOfTrailingZeros(word);
+          int row = i * wordsPerRow;
+          for (int w2 = 0; w2 < wordsPerRow; w2++) {
+            edges[row + w2] |= liveNodes[w2];
+          }
+          // A variable doesn't interfere with itself.
+          edges[row + w] &= ~(1L << i);
+        }
+      }
+    }
+
+    /**
+     * From the highest to lowest degree, assigns any uncolored node a color
+     * if none of its neighbors has been assigned that color.
+     */
+    void color() {
+      // Sort the nodes by decreasing degree, then by increasing index.
+      long[] keys = new long[varCount];
+      int nodeCount = 0;
+      for (int i = 0; i < varCount; i++) {
+        if (vars[i] != null) {
+          int degree = 0;
+          for (int w = 0; w < wordsPerRow; w++) {
+            degree += Long.bitCount(edges[i * wordsPerRow + w]);
+          }
+          keys[nodeCount++] = ((long) (varCount - degree) << 32) | i;
+        }
+      }
+      Arrays.sort(keys, 0, nodeCount);
+      int[] worklist = new int[nodeCount];
+      for (int k = 0; k < nodeCount; k++) {
+        worklist[k] = (int) keys[k];
+      }
+
+      colors = new int[varCount];
+      long[] colored = new long[wordsPerRow];
+      int count = 0;
+      do {
+        Arrays.fill(colored, 0);
+        int remaining = 0;
+        for (int k = 0; k < nodeCount; k++) {
+          int i = worklist[k];
+          if (isIndependentOf(i, colored)) {
+            colored[i >>> 6] |= 1L << i;
+            colors[i] = count;
+          } else {
+            worklist[remaining++] = i;
+          }
+        }
+        nodeCount = remaining;
+        count++;
+      } while (nodeCount > 0);
+      colorToVar = new Var[count];
+    }
+
+    private boolean isIndependentOf(int i, long[] subgraph) {
+      int row = i * wordsPerRow;
+      for (int w = 0; w < wordsPerRow; w++) {
+        if ((edges[row + w] & subgraph[w]) != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Using the coloring as partitions, finds the variable that represents
+     * the partition of a variable. The first to retrieve its partition
+     * becomes the representative, like in
+     * {@link GreedyGraphColoring#getPartitionSuperNode}.
+     */
+    Var getPartitionSuperNode(Var v) {
+      Preconditions.checkNotNull(colors,
+          "No coloring founded. color() should be called first.");
+      int color = colors[v.index];
+      if (colorToVar[color] == null) {
+        colorToVar[color] = v;
+      }
+      return colorToVar[color];
+    }
+  }
 }
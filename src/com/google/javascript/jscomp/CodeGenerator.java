@@ -56,7 +56,7 @@ class CodeGenerator {
   private final boolean trustedStrings;
   private final LanguageMode languageMode;
 
-  private CodeGenerator(CodeConsumer consumer) {
+  CodeGenerator(CodeConsumer consumer) {
     cc = consumer;
     outputCharsetEncoder = null;
     preferSingleQuotes = false;
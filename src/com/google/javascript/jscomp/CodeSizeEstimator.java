@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.rhino.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the size of the code that {@link CodeGenerator#forCostEstimation}
+ * prints for an AST, without printing the parts that didn't change since the
+ * previous estimate.
+ * <p>
+ * The size of every function body and every script is cached along with the
+ * time it was measured. A cached size is reused as long as the change time
+ * (see {@link Node#getChangeTime}) of its scope and of the functions nested in
+ * it is older than that time, so only the scopes changed by a pass are printed
+ * again. The result is always the same as printing the whole AST.
+ * <p>
+ * The estimator relies on the changes being attributed to the right scope, as
+ * {@link PhaseOptimizer} does in fixed-point loops. Changes that can't be
+ * attributed to a scope must be followed by a call to {@link #invalidate}.
+ */
+final class CodeSizeEstimator {
+  private static final int UNKNOWN_SIZE = -1;
+
+  private final Node root;
+
+  // The function bodies and scripts printed (or reused) by the last estimate.
+  private Map<Node, Unit> units = new HashMap<>();
+
+  private int lastEstimateTime;
+  private int lastEstimate = UNKNOWN_SIZE;
+
+  CodeSizeEstimator(Node root) {
+    this.root = root;
+  }
+
+  /** Forgets all cached sizes; the next estimate prints the whole AST. */
+  void invalidate() {
+    units = new HashMap<>();
+    lastEstimate = UNKNOWN_SIZE;
+  }
+
+  /**
+   * Returns the estimated size of the code under the root.
+   *
+   * @param now the current time. Every change made to the AST after this call
+   *     must have a change time greater than or equal to {@code now}.
+   */
+  int estimateSize(int now) {
+    if (lastEstimate != UNKNOWN_SIZE && now == lastEstimateTime) {
+      return lastEstimate;
+    }
+    SizeCounter counter = new SizeCounter();
+    UnitCodeGenerator generator = new UnitCodeGenerator(counter, now);
+    generator.add(root);
+    units = generator.newUnits;
+    lastEstimateTime = now;
+    lastEstimate = counter.size;
+    return lastEstimate;
+  }
+
+  /**
+   * Whether a node is printed as a separate unit. Function bodies and scripts
+   * are, because their code only changes when their scope changes.
+   */
+  private static boolean isUnit(Node n, CodeGenerator.Context context) {
+    if (n.isScript()) {
+      return true;
+    }
+    Node parent = n.getParent();
+    return context == CodeGenerator.Context.PRESERVE_BLOCK && n.isBlock()
+        && parent != null && parent.isFunction();
+  }
+
+  /**
+   * Whether the code of a unit, and of all units nested in it, is unchanged
+   * since {@code time}.
+   */
+  private boolean isUnchangedSince(Unit unit, int time) {
+    if (unit.scope.getChangeTime() >= time) {
+      return false;
+    }
+    for (Node fn : unit.functions) {
+      if (fn.getChangeTime() >= time) {
+        return false;
+      }
+    }
+    for (Node nested : unit.nestedUnits) {
+      Unit nestedUnit = units.get(nested);
+      if (nestedUnit == null || !isUnchangedSince(nestedUnit, time)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The printed size of a function body or script, and the state of the code
+   * consumer before and after printing it.
+   */
+  private static final class Unit {
+    final Node scope;
+    final int measuredAt;
+    // Functions whose headers are printed in this unit, but not in a nested
+    // unit. Their change times are checked as well, since a pass that renames
+    // a parameter reports the change in the scope of the function.
+    final List<Node> functions = new ArrayList<>();
+    final List<Node> nestedUnits = new ArrayList<>();
+
+    final char lastCharBefore;
+    final boolean statementNeedsEndedBefore;
+    final boolean statementStartedBefore;
+
+    int size;
+    char lastCharAfter;
+    boolean statementNeedsEndedAfter;
+    boolean statementStartedAfter;
+
+    Unit(Node scope, int measuredAt, SizeCounter counter) {
+      this.scope = scope;
+      this.measuredAt = measuredAt;
+      this.lastCharBefore = counter.lastChar;
+      this.statementNeedsEndedBefore = counter.statementNeedsEnded;
+      this.statementStartedBefore = counter.statementStarted;
+    }
+
+    void finish(int size, SizeCounter counter) {
+      this.size = size;
+      this.lastCharAfter = counter.lastChar;
+      this.statementNeedsEndedAfter = counter.statementNeedsEnded;
+      this.statementStartedAfter = counter.statementStarted;
+    }
+
+    /**
+     * Whether the unit prints the same code when the consumer is in its
+     * current state. Separators like ";" and " " depend on that state.
+     */
+    boolean hasSameStateBefore(SizeCounter counter) {
+      return lastCharBefore == counter.lastChar
+          && statementNeedsEndedBefore == counter.statementNeedsEnded
+          && statementStartedBefore == counter.statementStarted;
+    }
+  }
+
+  /** A code generator that reuses the sizes of unchanged units. */
+  private final class UnitCodeGenerator extends CodeGenerator {
+    private final SizeCounter counter;
+    private final int now;
+    private final Map<Node, Unit> newUnits = new HashMap<>();
+    private Unit currentUnit = null;
+
+    UnitCodeGenerator(SizeCounter counter, int now) {
+      super(counter);
+      this.counter = counter;
+      this.now = now;
+    }
+
+    @Override
+    void add(Node n, Context context) {
+      if (n.isFunction() && currentUnit != null) {
+        currentUnit.functions.add(n);
+      }
+      if (isUnit(n, context)) {
+        addUnit(n, context);
+      } else {
+        super.add(n, context);
+      }
+    }
+
+    private void addUnit(Node n, Context context) {
+      if (currentUnit != null) {
+        currentUnit.nestedUnits.add(n);
+      }
+      Unit cached = units.get(n);
+      if (cached != null && cached.hasSameStateBefore(counter)
+          && isUnchangedSince(cached, cached.measuredAt)) {
+        keepUnit(n, cached);
+        counter.skip(cached);
+        return;
+      }
+
+      Unit unit = new Unit(n.isScript() ? root : n.getParent(), now, counter);
+      Unit enclosingUnit = currentUnit;
+      currentUnit = unit;
+      int sizeBefore = counter.size;
+      super.add(n, context);
+      currentUnit = enclosingUnit;
+      unit.finish(counter.size - sizeBefore, counter);
+      newUnits.put(n, unit);
+    }
+
+    /** Carries a reused unit, and the units nested in it, to the new map. */
+    private void keepUnit(Node n, Unit unit) {
+      newUnits.put(n, unit);
+      for (Node nested : unit.nestedUnits) {
+        keepUnit(nested, units.get(nested));
+      }
+    }
+  }
+
+  /** A code consumer that only counts characters. */
+  private static final class SizeCounter extends CodeConsumer {
+    private int size = 0;
+    private char lastChar = '\0';
+
+    @Override
+    void append(String str) {
+      int len = str.length();
+      if (len > 0) {
+        size += len;
+        lastChar = str.charAt(len - 1);
+      }
+    }
+
+    @Override
+    char getLastChar() {
+      return lastChar;
+    }
+
+    /** Accounts for a unit without printing it. */
+    void skip(Unit unit) {
+      size += unit.size;
+      lastChar = unit.lastCharAfter;
+      statementNeedsEnded = unit.statementNeedsEndedAfter;
+      statementStarted = unit.statementStartedAfter;
+    }
+  }
+}
@@ -51,6 +51,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Reader;
 import java.lang.reflect.AnnotatedElement;
 import java.net.URI;
 import java.nio.file.FileSystem;
@@ -62,6 +63,7 @@ import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -555,6 +557,14 @@ public class CommandLineRunner extends
         usage = "A file containing additional command-line options.")
     private String flagFile = "";
 
+    @Option(name = CommandLineWorker.PERSISTENT_WORKER_FLAG,
+        hidden = true,
+        handler = BooleanOptionHandler.class,
+        usage = "Keeps the compiler running and reads the arguments of each "
+        + "compilation from stdin, one line per compilation. The externs are "
+        + "only parsed once. All the other flags are ignored.")
+    private boolean persistentWorker = false;
+
     @Option(name = "--warnings_whitelist_file",
         hidden = true,
         usage = "A file containing warnings to suppress. Each line should be " +
@@ -574,6 +584,28 @@ public class CommandLineRunner extends
     private CompilerOptions.TracerMode tracerMode =
         CompilerOptions.TracerMode.OFF;
 
+    @Option(name = "--ast_memory_report",
+        hidden = true,
+        usage = "Shows, in JSON, the number of AST nodes by token, of node " +
+        "properties by type, of JSDoc and type objects, and the size of the " +
+        "type registry, after parsing and after each compiler pass.")
+    private boolean astMemoryReport = false;
+
+    @Option(name = "--pass_schedule_profile",
+        hidden = true,
+        usage = "A profile written with --pass_schedule_profile_output. The "
+        + "loopable optimization passes are ordered by how fast they "
+        + "changed the code size in the profile, and the ones that barely "
+        + "changed it are skipped.")
+    private String passScheduleProfile = "";
+
+    @Option(name = "--pass_schedule_profile_output",
+        hidden = true,
+        usage = "Adds the running time and code size reduction of the "
+        + "loopable optimization passes to this profile, for "
+        + "--pass_schedule_profile. The file is created if it doesn't exist.")
+    private String passScheduleProfileOutput = "";
+
     @Option(name = "--new_type_inf",
         hidden = true,
         usage = "In development new type inference pass. DO NOT USE!")
@@ -856,6 +888,9 @@ public class CommandLineRunner extends
    */
   private PrintStream errorStream;
 
+  /** The externs shared with the other compilations of a worker, or null. */
+  private ExternsAstCache externsAstCache = null;
+
   /**
    * Create a new command-line runner. You should only need to call
    * the constructor if you're extending this class. Otherwise, the main
@@ -911,6 +946,32 @@ public class CommandLineRunner extends
 
     BufferedReader buffer =
       java.nio.file.Files.newBufferedReader(flagFile, UTF_8);
+    List<String> tokens = tokenizeArgs(buffer);
+    buffer.close();
+
+    flags.flagFile = "";
+
+    tokens = processArgs(tokens.toArray(new String[tokens.size()]));
+
+    // Command-line warning levels should override flag file settings,
+    // which means they should go last.
+    List<GuardLevel> previous = new ArrayList<>(Flags.guardLevels);
+    Flags.guardLevels.clear();
+    flags.parse(tokens);
+    Flags.guardLevels.addAll(previous);
+
+    // Currently we are not supporting this (prevent direct/indirect loops)
+    if (!flags.flagFile.isEmpty()) {
+      reportError("ERROR - Arguments in the file cannot contain "
+          + "--flagfile option.");
+    }
+  }
+
+  /**
+   * Splits the contents of a flag file into arguments. Arguments are
+   * separated by whitespace, unless it is within double quotes.
+   */
+  static List<String> tokenizeArgs(Reader buffer) throws IOException {
     // Builds the tokens.
     StringBuilder builder = new StringBuilder();
     // Stores the built tokens.
@@ -958,28 +1019,10 @@ public class CommandLineRunner extends
       escaped = c == 92;
     }
 
-    buffer.close();
-
     if (builder.length() != 0) {
       tokens.add(builder.toString());
     }
-
-    flags.flagFile = "";
-
-    tokens = processArgs(tokens.toArray(new String[tokens.size()]));
-
-    // Command-line warning levels should override flag file settings,
-    // which means they should go last.
-    List<GuardLevel> previous = new ArrayList<>(Flags.guardLevels);
-    Flags.guardLevels.clear();
-    flags.parse(tokens);
-    Flags.guardLevels.addAll(previous);
-
-    // Currently we are not supporting this (prevent direct/indirect loops)
-    if (!flags.flagFile.isEmpty()) {
-      reportError("ERROR - Arguments in the file cannot contain "
-          + "--flagfile option.");
-    }
+    return tokens;
   }
 
   private void initConfigFromFlags(String[] args, PrintStream out, PrintStream err) {
@@ -1099,6 +1142,9 @@ public class CommandLineRunner extends
           .setWarningsWhitelistFile(flags.warningsWhitelistFile)
           .setAngularPass(flags.angularPass)
           .setTracerMode(flags.tracerMode)
+          .setAstMemoryReport(flags.astMemoryReport)
+          .setPassScheduleProfile(flags.passScheduleProfile)
+          .setPassScheduleProfileOutput(flags.passScheduleProfileOutput)
           .setNewTypeInference(flags.useNewTypeInference);
     }
     errorStream = null;
@@ -1185,9 +1231,21 @@ public class CommandLineRunner extends
     return options;
   }
 
+  /**
+   * Shares the default externs and the parsed externs with the other
+   * compilations that use the same cache.
+   */
+  void setExternsAstCache(ExternsAstCache externsAstCache) {
+    this.externsAstCache = externsAstCache;
+  }
+
   @Override
   protected Compiler createCompiler() {
-    return new Compiler(getErrorPrintStream());
+    Compiler compiler = new Compiler(getErrorPrintStream());
+    if (externsAstCache != null) {
+      compiler.setExternsAstCache(externsAstCache);
+    }
+    return compiler;
   }
 
   @Override
@@ -1197,7 +1255,8 @@ public class CommandLineRunner extends
     if (flags.useOnlyCustomExterns || isInTestMode()) {
       return externs;
     } else {
-      List<SourceFile> defaultExterns = getDefaultExterns();
+      List<SourceFile> defaultExterns = externsAstCache != null
+          ? externsAstCache.getDefaultExterns() : getDefaultExterns();
       defaultExterns.addAll(externs);
       return defaultExterns;
     }
@@ -1431,6 +1490,10 @@ public class CommandLineRunner extends
    * Runs the Compiler. Exits cleanly in the event of an error.
    */
   public static void main(String[] args) {
+    if (Arrays.asList(args).contains(CommandLineWorker.PERSISTENT_WORKER_FLAG)) {
+      CommandLineWorker.main(args);
+      return;
+    }
     CommandLineRunner runner = new CommandLineRunner(args);
     if (runner.shouldRunCompiler()) {
       runner.run();
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+/**
+ * Runs many compilations in the same JVM, so that they don't pay for the JVM
+ * start and the JIT warm-up, and so that the externs are only read and parsed
+ * once. It is started with {@code --persistent_worker}.
+ * <p>
+ * Each line of the standard input holds the arguments of a compilation, in
+ * the format of a {@code --flagfile}. The compilations are run one by one,
+ * with the flags of {@link CommandLineRunner}. For each of them, the worker
+ * writes a line with the exit status and the byte lengths of the standard
+ * output and error of the compilation, followed by these bytes:
+ * <pre>
+ * 0 10 0
+ * alert(1);
+ * </pre>
+ * The worker stops at the end of the input. Since the standard input is used
+ * for the requests, the compilations can't read their sources from it.
+ */
+public final class CommandLineWorker {
+  static final String PERSISTENT_WORKER_FLAG = "--persistent_worker";
+
+  private final BufferedReader requests;
+  private final PrintStream responses;
+  private final ExternsAstCache externsAstCache = new ExternsAstCache();
+
+  CommandLineWorker(BufferedReader requests, PrintStream responses) {
+    this.requests = requests;
+    this.responses = responses;
+  }
+
+  /** Runs a compilation for each request, until the end of the input. */
+  void run() throws IOException {
+    for (String line; (line = requests.readLine()) != null; ) {
+      List<String> args =
+          CommandLineRunner.tokenizeArgs(new StringReader(line));
+      if (!args.isEmpty()) {
+        respond(args);
+      }
+    }
+  }
+
+  private void respond(List<String> args) throws UnsupportedEncodingException {
+    ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+    ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(outBytes, true, UTF_8.name());
+    PrintStream err = new PrintStream(errBytes, true, UTF_8.name());
+
+    int status = compile(args.toArray(new String[args.size()]), out, err);
+    out.flush();
+    err.flush();
+
+    responses.print(
+        status + " " + outBytes.size() + " " + errBytes.size() + "\n");
+    responses.write(outBytes.toByteArray(), 0, outBytes.size());
+    responses.write(errBytes.toByteArray(), 0, errBytes.size());
+    responses.flush();
+  }
+
+  /**
+   * Runs a compilation like {@link CommandLineRunner#main}.
+   *
+   * @return the status that {@link CommandLineRunner#main} would exit with
+   */
+  int compile(String[] args, PrintStream out, PrintStream err) {
+    CommandLineRunner runner = new CommandLineRunner(args, out, err);
+    runner.setExternsAstCache(externsAstCache);
+    if (runner.shouldRunCompiler()) {
+      return runner.runAndGetExitStatus();
+    }
+    return runner.hasErrors() ? -1 : 0;
+  }
+
+  ExternsAstCache getExternsAstCache() {
+    return externsAstCache;
+  }
+
+  /**
+   * Runs the worker on the standard input and output.
+   */
+  public static void main(String[] args) {
+    InputStream stdin = System.in;
+    PrintStream stdout = System.out;
+    // Only the responses are written to the standard output, and the
+    // compilations must not read the requests.
+    System.setOut(System.err);
+    System.setIn(new ByteArrayInputStream(new byte[0]));
+
+    try {
+      new CommandLineWorker(
+          new BufferedReader(new InputStreamReader(stdin, UTF_8)), stdout)
+          .run();
+    } catch (IOException e) {
+      e.printStackTrace();
+      System.exit(-1);
+    }
+  }
+}
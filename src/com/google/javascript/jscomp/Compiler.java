@@ -29,6 +29,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.io.CharStreams;
 import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
 import com.google.javascript.jscomp.CompilerOptions.DevMode;
+import com.google.javascript.jscomp.CompilerOptions.TracerMode;
 import com.google.javascript.jscomp.JSModuleGraph.MissingModuleException;
 import com.google.javascript.jscomp.ReferenceCollectingCallback.ReferenceCollection;
 import com.google.javascript.jscomp.TypeValidator.TypeMismatch;
@@ -73,6 +74,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -169,7 +171,9 @@ public class Compiler extends AbstractCompiler {
       = new ConcurrentHashMap<>();
 
   // Map from filenames to lists of all the comments in each file.
-  private Map<String, List<Comment>> commentsPerFile = new HashMap<>();
+  // Filled by the parser threads when the inputs are parsed in parallel.
+  private Map<String, List<Comment>> commentsPerFile =
+      new ConcurrentHashMap<>();
 
   /** The source code map */
   private SourceMap sourceMap;
@@ -212,6 +216,9 @@ public class Compiler extends AbstractCompiler {
 
   public PerformanceTracker tracker;
 
+  // Null unless CompilerOptions#getAstMemoryReport is set.
+  private AstMemoryReport astMemoryReport;
+
   // For use by the new type inference
   private GlobalTypeInfo symbolTable;
 
@@ -252,6 +259,27 @@ public class Compiler extends AbstractCompiler {
     }
   });
 
+  /**
+   * The threads that process scopes in parallel, see processScopesInParallel.
+   * They are shared by all compilers, and only live while they are used.
+   */
+  private static final ExecutorService optimizerExecutor =
+      Executors.newCachedThreadPool(new ThreadFactory() {
+    @Override public Thread newThread(Runnable r) {
+      Thread t = new Thread(null, r, "jscompiler-optimizer", COMPILER_STACK_SIZE);
+      t.setDaemon(true);  // Do not prevent the JVM from exiting.
+      return t;
+    }
+  });
+
+  /**
+   * The diagnostics and the code changes reported by the current thread while
+   * it parses an input or processes a scope in parallel with the others, or
+   * null on the compiler thread.
+   */
+  private final ThreadLocal<ThreadDiagnostics> threadDiagnostics =
+      new ThreadLocal<>();
+
   /**
    * Use a dedicated compiler thread per Compiler instance.
    */
@@ -260,6 +288,9 @@ public class Compiler extends AbstractCompiler {
   /** Whether to use threads. */
   private boolean useThreads = true;
 
+  /** The externs parsed by previous compilations, or null. */
+  private ExternsAstCache externsAstCache = null;
+
 
   /**
    * Logger for the whole com.google.javascript.jscomp domain -
@@ -471,11 +502,23 @@ public class Compiler extends AbstractCompiler {
       List<T> files, boolean isExtern) {
     List<CompilerInput> inputs = new ArrayList<>(files.size());
     for (T file : files) {
-      inputs.add(new CompilerInput(file, isExtern));
+      if (isExtern && externsAstCache != null) {
+        inputs.add(new CompilerInput(externsAstCache.getAst(file), true));
+      } else {
+        inputs.add(new CompilerInput(file, isExtern));
+      }
     }
     return inputs;
   }
 
+  /**
+   * Reuses the externs parsed by other compilations that share the cache.
+   * Must be called before the compiler is initialized.
+   */
+  void setExternsAstCache(ExternsAstCache externsAstCache) {
+    this.externsAstCache = externsAstCache;
+  }
+
   private static final DiagnosticType EMPTY_MODULE_LIST_ERROR =
       DiagnosticType.error("JSC_EMPTY_MODULE_LIST_ERROR",
           "At least one module must be provided");
@@ -692,12 +735,15 @@ public class Compiler extends AbstractCompiler {
       try {
         final boolean dumpTraceReport =
             options != null && options.tracer.isOn();
+        // The pass schedule profile needs the running times of the passes.
+        final boolean tracePasses = dumpTraceReport
+            || (options != null && options.getPassScheduleProfiling());
         Callable<T> bootCompilerThread = new Callable<T>() {
           @Override
           public T call() {
             try {
               compilerThread = Thread.currentThread();
-              if (dumpTraceReport) {
+              if (tracePasses) {
                 Tracer.initCurrentThreadTrace();
               }
               return callable.call();
@@ -777,15 +823,35 @@ public class Compiler extends AbstractCompiler {
     }
     setProgress(1.0, "recordFunctionInformation");
 
-    if (tracker != null) {
+    if (options.tracer.isOn()) {
       tracker.outputTracerReport(outStream == null ? System.out : outStream);
     }
+    if (astMemoryReport != null) {
+      PrintStream out = outStream == null ? System.out : outStream;
+      if (!options.tracer.isOn()) {
+        // The tracer report starts with them.
+        JvmMetrics.maybeWriteJvmMetrics(out, "verbose:pretty:all");
+      }
+      astMemoryReport.outputReport(out);
+    }
   }
 
   public void parse() {
     parseInputs();
   }
 
+  @Override
+  void afterPass(String passName) {
+    if (astMemoryReport != null) {
+      astMemoryReport.recordPass(passName, externsRoot, jsRoot, typeRegistry);
+    }
+  }
+
+  /** Returns the AST memory report, or null if it is off. For testing. */
+  AstMemoryReport getAstMemoryReport() {
+    return astMemoryReport;
+  }
+
   PassConfig getPassConfig() {
     if (passes == null) {
       passes = createPassConfigInternal();
@@ -958,7 +1024,7 @@ public class Compiler extends AbstractCompiler {
   Tracer newTracer(String passName) {
     String comment = passName
         + (recentChange.hasCodeChanged() ? " on recently changed AST" : "");
-    if (options.tracer.isOn()) {
+    if (tracker != null) {
       tracker.recordPassStart(passName, true);
     }
     return new Tracer("Compiler", comment);
@@ -966,7 +1032,7 @@ public class Compiler extends AbstractCompiler {
 
   void stopTracer(Tracer t, String passName) {
     long result = t.stop();
-    if (options.tracer.isOn()) {
+    if (tracker != null) {
       tracker.recordPassStop(passName, result);
     }
   }
@@ -1332,17 +1398,30 @@ public class Compiler extends AbstractCompiler {
     externsRoot.detachChildren();
     jsRoot.detachChildren();
 
-    if (options.tracer.isOn()) {
-      tracker = new PerformanceTracker(jsRoot, options.tracer);
+    TracerMode trackerMode = options.tracer;
+    if (options.getPassScheduleProfiling()
+        && (trackerMode == TracerMode.OFF
+            || trackerMode == TracerMode.TIMING_ONLY)) {
+      // The pass schedule needs the code sizes.
+      trackerMode = TracerMode.RAW_SIZE;
+    }
+    if (trackerMode.isOn()) {
+      tracker = new PerformanceTracker(jsRoot, trackerMode);
       addChangeHandler(tracker.getCodeChangeHandler());
     }
+    if (options.getAstMemoryReport()) {
+      astMemoryReport = new AstMemoryReport();
+    }
 
     Tracer tracer = newTracer(PARSING_PASS_NAME);
     beforePass(PARSING_PASS_NAME);
 
     try {
       // Parse externs sources.
+      Map<CompilerInput, ThreadDiagnostics> externsDiagnostics =
+          parseInParallel(externs, false);
       for (CompilerInput input : externs) {
+        reportParseDiagnostics(externsDiagnostics, input);
         Node n = input.getAstRoot(this);
         if (hasErrors()) {
           return null;
@@ -1350,6 +1429,16 @@ public class Compiler extends AbstractCompiler {
         externsRoot.addChildToBack(n);
       }
 
+      // All the inputs are parsed before their dependencies are managed if
+      // they need to be rewritten or if they may all be hoisted to externs.
+      boolean needsManagement = options.dependencyOptions.needsManagement();
+      boolean inputsParsed = !needsManagement || options.lowerFromEs6()
+          || options.transformAMDToCJSModules
+          || options.processCommonJSModules;
+      if (inputsParsed) {
+        reportParseDiagnostics(parseInParallel(inputs, false));
+      }
+
       if (options.lowerFromEs6()) {
         processEs6Modules();
       }
@@ -1394,12 +1483,24 @@ public class Compiler extends AbstractCompiler {
         }
       }
 
+      if (!inputsParsed) {
+        reportParseDiagnostics(parseInParallel(inputs, false));
+      }
+
       hoistNoCompileFiles();
 
       if (staleInputs) {
         repartitionInputs();
       }
 
+      // The trees are annotated in parallel as well, but they are linked
+      // into the main root one by one so that the output doesn't change.
+      boolean annotate = needsSourceInformation();
+      boolean annotated = annotate && isParallelParsingEnabled();
+      if (annotated) {
+        reportParseDiagnostics(parseInParallel(inputs, true));
+      }
+
       // Build the AST.
       for (CompilerInput input : inputs) {
         Node n = input.getAstRoot(this);
@@ -1414,20 +1515,8 @@ public class Compiler extends AbstractCompiler {
           }
         }
 
-        // TODO(johnlenz): we shouldn't need to check both isExternExportsEnabled and
-        // externExportsPath.
-        if (options.sourceMapOutputPath != null ||
-            options.nameReferenceReportPath != null ||
-            options.isExternExportsEnabled() ||
-            options.externExportsPath != null ||
-            !options.replaceStringsFunctionDescriptions.isEmpty()) {
-
-          // Annotate the nodes in the tree with information from the
-          // input file. This information is used to construct the SourceMap.
-          SourceInformationAnnotator sia =
-              new SourceInformationAnnotator(
-                  input.getName(), options.devMode != DevMode.OFF);
-          NodeTraversal.traverse(this, n, sia);
+        if (annotate && !annotated) {
+          annotateSourceInformation(input, n);
         }
 
         jsRoot.addChildToBack(n);
@@ -1443,6 +1532,214 @@ public class Compiler extends AbstractCompiler {
     }
   }
 
+  // TODO(johnlenz): we shouldn't need to check both isExternExportsEnabled and
+  // externExportsPath.
+  private boolean needsSourceInformation() {
+    return options.sourceMapOutputPath != null ||
+        options.nameReferenceReportPath != null ||
+        options.isExternExportsEnabled() ||
+        options.externExportsPath != null ||
+        !options.replaceStringsFunctionDescriptions.isEmpty();
+  }
+
+  /**
+   * Annotates the nodes in the tree with information from the input file.
+   * This information is used to construct the SourceMap. Only the tree of
+   * the input is touched, so inputs may be annotated concurrently.
+   */
+  private void annotateSourceInformation(CompilerInput input, Node n) {
+    SourceInformationAnnotator sia =
+        new SourceInformationAnnotator(
+            input.getName(), options.devMode != DevMode.OFF);
+    NodeTraversal.traverse(this, n, sia);
+  }
+
+  private boolean isParallelParsingEnabled() {
+    return useThreads && options.getNumParallelParseThreads() > 1
+        && options.devMode == DevMode.OFF;
+  }
+
+  /**
+   * Parses the inputs on a bounded pool of threads, and optionally annotates
+   * their trees with source information. Inputs that are already parsed are
+   * only annotated.
+   *
+   * @return The diagnostics reported while parsing each input, which have
+   *     not been reported to the error manager yet, or an empty map when
+   *     parallel parsing is disabled.
+   */
+  private Map<CompilerInput, ThreadDiagnostics> parseInParallel(
+      List<CompilerInput> inputsToParse, final boolean annotate) {
+    if (!isParallelParsingEnabled() || inputsToParse.size() < 2) {
+      return ImmutableMap.of();
+    }
+
+    // The parser configs are created lazily, so create them before the
+    // parser threads can race to do it.
+    getParserConfig(ConfigContext.DEFAULT);
+    getParserConfig(ConfigContext.EXTERNS);
+
+    List<Callable<ThreadDiagnostics>> tasks = new ArrayList<>();
+    for (final CompilerInput input : inputsToParse) {
+      tasks.add(new Callable<ThreadDiagnostics>() {
+        @Override
+        public ThreadDiagnostics call() {
+          ThreadDiagnostics diagnostics = new ThreadDiagnostics();
+          threadDiagnostics.set(diagnostics);
+          try {
+            Node n = input.getAstRoot(Compiler.this);
+            if (annotate && n != null) {
+              annotateSourceInformation(input, n);
+            }
+          } finally {
+            threadDiagnostics.remove();
+          }
+          return diagnostics;
+        }
+      });
+    }
+
+    int numThreads = Math.min(
+        options.getNumParallelParseThreads(), inputsToParse.size());
+    ExecutorService parserExecutor =
+        Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+      @Override public Thread newThread(Runnable r) {
+        Thread t = new Thread(null, r, "jscompiler-parser", COMPILER_STACK_SIZE);
+        t.setDaemon(true);  // Do not prevent the JVM from exiting.
+        return t;
+      }
+    });
+    try {
+      List<Future<ThreadDiagnostics>> futures = parserExecutor.invokeAll(tasks);
+      Map<CompilerInput, ThreadDiagnostics> result = new LinkedHashMap<>();
+      for (int i = 0; i < futures.size(); i++) {
+        result.put(inputsToParse.get(i), futures.get(i).get());
+      }
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new RuntimeException(e.getCause());
+    } finally {
+      parserExecutor.shutdownNow();
+    }
+  }
+
+  /** Reports the diagnostics of all the inputs, in input order. */
+  private void reportParseDiagnostics(
+      Map<CompilerInput, ThreadDiagnostics> diagnostics) {
+    for (CompilerInput input : diagnostics.keySet()) {
+      reportParseDiagnostics(diagnostics, input);
+    }
+  }
+
+  /** Reports the diagnostics of an input, if it was parsed in parallel. */
+  private void reportParseDiagnostics(
+      Map<CompilerInput, ThreadDiagnostics> diagnostics, CompilerInput input) {
+    ThreadDiagnostics inputDiagnostics = diagnostics.get(input);
+    if (inputDiagnostics != null) {
+      for (int i = 0; i < inputDiagnostics.errors.size(); i++) {
+        reportLevel(inputDiagnostics.levels.get(i),
+            inputDiagnostics.errors.get(i));
+      }
+    }
+  }
+
+  @Override
+  boolean isParallelOptimizationEnabled() {
+    return useThreads && options.getNumParallelOptimizationThreads() > 1
+        && options.devMode == DevMode.OFF;
+  }
+
+  @Override
+  void processScopesInParallel(
+      List<Node> scopeRoots, final NodeTraversal.FunctionCallback callback) {
+    if (!isParallelOptimizationEnabled() || scopeRoots.size() < 2) {
+      for (Node scopeRoot : scopeRoots) {
+        setScope(scopeRoot);
+        callback.enterFunction(this, scopeRoot);
+      }
+      return;
+    }
+
+    // A scope may read the functions nested in it, so they are never
+    // processed at the same time: the most nested scopes go first,
+    // and the scopes that are not functions last.
+    Map<Integer, List<Node>> scopesByDepth = new HashMap<>();
+    int maxDepth = 0;
+    for (Node scopeRoot : scopeRoots) {
+      int depth = 0;
+      for (Node n = scopeRoot; n != null; n = n.getParent()) {
+        if (n.isFunction()) {
+          depth++;
+        }
+      }
+      if (!scopesByDepth.containsKey(depth)) {
+        scopesByDepth.put(depth, new ArrayList<Node>());
+      }
+      scopesByDepth.get(depth).add(scopeRoot);
+      maxDepth = Math.max(maxDepth, depth);
+    }
+
+    final Map<Node, ThreadDiagnostics> diagnostics = new ConcurrentHashMap<>();
+    for (int depth = maxDepth; depth >= 0; depth--) {
+      final List<Node> scopes = scopesByDepth.get(depth);
+      if (scopes == null) {
+        continue;
+      }
+      final AtomicInteger nextScope = new AtomicInteger();
+      List<Callable<Void>> tasks = new ArrayList<>();
+      int numThreads = Math.min(
+          options.getNumParallelOptimizationThreads(), scopes.size());
+      for (int i = 0; i < numThreads; i++) {
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() {
+            for (int j; (j = nextScope.getAndIncrement()) < scopes.size(); ) {
+              Node scopeRoot = scopes.get(j);
+              ThreadDiagnostics scopeDiagnostics = new ThreadDiagnostics();
+              threadDiagnostics.set(scopeDiagnostics);
+              try {
+                callback.enterFunction(Compiler.this, scopeRoot);
+              } finally {
+                threadDiagnostics.remove();
+              }
+              diagnostics.put(scopeRoot, scopeDiagnostics);
+            }
+            return null;
+          }
+        });
+      }
+      try {
+        for (Future<Void> future : optimizerExecutor.invokeAll(tasks)) {
+          future.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        Throwables.propagateIfPossible(e.getCause());
+        throw new RuntimeException(e.getCause());
+      }
+    }
+
+    // Report everything in the order of the scopes, as if they had been
+    // processed one after the other.
+    for (Node scopeRoot : scopeRoots) {
+      ThreadDiagnostics scopeDiagnostics = diagnostics.get(scopeRoot);
+      for (int i = 0; i < scopeDiagnostics.errors.size(); i++) {
+        reportLevel(scopeDiagnostics.levels.get(i),
+            scopeDiagnostics.errors.get(i));
+      }
+      setScope(scopeRoot);
+      for (int i = 0; i < scopeDiagnostics.codeChanges; i++) {
+        reportCodeChange();
+      }
+    }
+  }
+
   /**
    * Hoists inputs with the @externs annotation into the externs list.
    */
@@ -1979,6 +2276,9 @@ public class Compiler extends AbstractCompiler {
     if (options.devMode == DevMode.EVERY_PASS) {
       phaseOptimizer.setSanityCheck(sanityCheck);
     }
+    if (options.getPassSchedule() != null) {
+      phaseOptimizer.setPassSchedule(options.getPassSchedule());
+    }
     if (options.getCheckDeterminism()) {
       phaseOptimizer.setPrintAstHashcodes(true);
     }
@@ -2043,17 +2343,28 @@ public class Compiler extends AbstractCompiler {
 
   @Override
   void addChangeHandler(CodeChangeHandler handler) {
-    codeChangeHandlers.add(handler);
+    ThreadDiagnostics diagnostics = threadDiagnostics.get();
+    if (diagnostics != null) {
+      diagnostics.changeHandlers.add(handler);
+    } else {
+      codeChangeHandlers.add(handler);
+    }
   }
 
   @Override
   void removeChangeHandler(CodeChangeHandler handler) {
-    codeChangeHandlers.remove(handler);
+    ThreadDiagnostics diagnostics = threadDiagnostics.get();
+    if (diagnostics != null) {
+      diagnostics.changeHandlers.remove(handler);
+    } else {
+      codeChangeHandlers.remove(handler);
+    }
   }
 
   @Override
   void setScope(Node n) {
-    if (phaseOptimizer != null) {
+    // The scopes processed in parallel are set on the compiler thread.
+    if (phaseOptimizer != null && threadDiagnostics.get() == null) {
       phaseOptimizer.setScope(n);
     }
   }
@@ -2093,8 +2404,24 @@ public class Compiler extends AbstractCompiler {
     this.phaseOptimizer = po;
   }
 
+  @Override
+  ControlFlowGraph<Node> getControlFlowGraph(Node root) {
+    PhaseOptimizer optimizer = phaseOptimizer;
+    return optimizer == null
+        ? ControlFlowGraphCache.build(this, root)
+        : optimizer.getControlFlowGraph(root);
+  }
+
   @Override
   public void reportCodeChange() {
+    ThreadDiagnostics diagnostics = threadDiagnostics.get();
+    if (diagnostics != null) {
+      diagnostics.codeChanges++;
+      for (CodeChangeHandler handler : diagnostics.changeHandlers) {
+        handler.reportChange();
+      }
+      return;
+    }
     for (CodeChangeHandler handler : codeChangeHandlers) {
       handler.reportChange();
     }
@@ -2200,14 +2527,51 @@ public class Compiler extends AbstractCompiler {
     }
 
     if (level.isOn()) {
-      initCompilerOptionsIfTesting();
-      if (getOptions().errorHandler != null) {
-        getOptions().errorHandler.report(level, error);
+      ThreadDiagnostics diagnostics = threadDiagnostics.get();
+      if (diagnostics != null) {
+        diagnostics.report(level, error);
+      } else {
+        reportLevel(level, error);
       }
-      errorManager.report(level, error);
     }
   }
 
+  private void reportLevel(CheckLevel level, JSError error) {
+    initCompilerOptionsIfTesting();
+    if (getOptions().errorHandler != null) {
+      getOptions().errorHandler.report(level, error);
+    }
+    errorManager.report(level, error);
+  }
+
+  /**
+   * Collects the diagnostics of an input parsed on a parser thread, or of a
+   * scope processed on an optimizer thread, so that they can be reported on
+   * the compiler thread in a deterministic order. It stands for the error
+   * manager on that thread, so that the thread only sees its own errors. It
+   * also counts the code changes, which are reported on the compiler thread
+   * too, and holds the change handlers added on that thread.
+   */
+  private static final class ThreadDiagnostics extends BasicErrorManager {
+    private final List<CheckLevel> levels = new ArrayList<>();
+    private final List<JSError> errors = new ArrayList<>();
+    private final List<CodeChangeHandler> changeHandlers = new ArrayList<>();
+    private int codeChanges = 0;
+
+    @Override
+    public void report(CheckLevel level, JSError error) {
+      super.report(level, error);
+      levels.add(level);
+      errors.add(error);
+    }
+
+    @Override
+    public void println(CheckLevel level, JSError error) {}
+
+    @Override
+    protected void printSummary() {}
+  }
+
   @Override
   public CheckLevel getErrorLevel(JSError error) {
     Preconditions.checkNotNull(options);
@@ -2405,6 +2769,10 @@ public class Compiler extends AbstractCompiler {
 
   @Override
   public ErrorManager getErrorManager() {
+    ThreadDiagnostics diagnostics = threadDiagnostics.get();
+    if (diagnostics != null) {
+      return diagnostics;
+    }
     if (options == null) {
       initOptions(newCompilerOptions());
     }
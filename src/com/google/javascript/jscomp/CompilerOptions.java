@@ -159,6 +159,51 @@ public class CompilerOptions implements Serializable {
    */
   private boolean checkDeterminism;
 
+  /**
+   * The number of threads used to parse the inputs and the externs. When
+   * greater than 1, the files are parsed concurrently, but the diagnostics
+   * are still reported in input order and the AST is the same.
+   */
+  private int numParallelParseThreads;
+
+  /**
+   * The number of threads used by the optimizations that process each
+   * function on its own, like the peephole optimizations. When greater than
+   * 1, the functions are optimized concurrently.
+   */
+  private int numParallelOptimizationThreads;
+
+  /**
+   * A directory where the parsed inputs are saved, so that the inputs that
+   * didn't change aren't parsed again by the next compilations. Null if the
+   * parsed inputs aren't saved.
+   */
+  private String astCacheDirectory;
+
+  /**
+   * Whether to report what the ASTs hold after parsing and after each pass,
+   * in JSON, along with the tracer report.
+   */
+  private boolean astMemoryReport;
+
+  /**
+   * The profile that schedules the loopable optimization passes, or null to
+   * use the default order.
+   */
+  private PassSchedule passSchedule;
+
+  /**
+   * Whether to measure the passes for a {@link PassSchedule}, even if the
+   * tracer is off.
+   */
+  private boolean passScheduleProfiling;
+
+  /**
+   * Whether the type inference keeps the types of the flow in
+   * {@link PersistentFlowScope}s rather than {@link LinkedFlowScope}s.
+   */
+  private boolean persistentFlowScopes;
+
   //--------------------------------
   // Input Options
   //--------------------------------
@@ -968,6 +1013,13 @@ public class CompilerOptions implements Serializable {
     skipNonTranspilationPasses = false;
     devMode = DevMode.OFF;
     checkDeterminism = false;
+    numParallelParseThreads = 1;
+    numParallelOptimizationThreads = 1;
+    astCacheDirectory = null;
+    astMemoryReport = false;
+    passSchedule = null;
+    passScheduleProfiling = false;
+    persistentFlowScopes = false;
     checkSymbols = false;
     checkSuspiciousCode = false;
     checkTypes = false;
@@ -1800,6 +1852,96 @@ public class CompilerOptions implements Serializable {
     return checkDeterminism;
   }
 
+  /**
+   * Sets the number of threads used to parse the inputs and the externs.
+   * Parsing is sequential when it is 1, the default, or when dev mode is on.
+   */
+  public void setNumParallelParseThreads(int numParallelParseThreads) {
+    Preconditions.checkArgument(numParallelParseThreads > 0);
+    this.numParallelParseThreads = numParallelParseThreads;
+  }
+
+  public int getNumParallelParseThreads() {
+    return numParallelParseThreads;
+  }
+
+  /**
+   * Sets the number of threads used by the optimizations that process each
+   * function on its own, and by the new type inference. They are sequential
+   * when it is 1, the default, or when dev mode is on.
+   */
+  public void setNumParallelOptimizationThreads(
+      int numParallelOptimizationThreads) {
+    Preconditions.checkArgument(numParallelOptimizationThreads > 0);
+    this.numParallelOptimizationThreads = numParallelOptimizationThreads;
+  }
+
+  public int getNumParallelOptimizationThreads() {
+    return numParallelOptimizationThreads;
+  }
+
+  /**
+   * Sets a directory where the parsed inputs are saved and read back by the
+   * next compilations. The directory is created if needed.
+   */
+  public void setAstCacheDirectory(String astCacheDirectory) {
+    this.astCacheDirectory = astCacheDirectory;
+  }
+
+  public String getAstCacheDirectory() {
+    return astCacheDirectory;
+  }
+
+  /**
+   * Sets whether to report the nodes, properties, JSDoc and types of the ASTs
+   * after parsing and after each pass. See {@link AstMemoryReport}.
+   */
+  public void setAstMemoryReport(boolean astMemoryReport) {
+    this.astMemoryReport = astMemoryReport;
+  }
+
+  public boolean getAstMemoryReport() {
+    return astMemoryReport;
+  }
+
+  /**
+   * Sets the profile of previous compilations that orders, skips and limits
+   * the loopable optimization passes. See {@link PassSchedule}.
+   */
+  public void setPassSchedule(PassSchedule passSchedule) {
+    this.passSchedule = passSchedule;
+  }
+
+  public PassSchedule getPassSchedule() {
+    return passSchedule;
+  }
+
+  /**
+   * Sets whether the compiler tracks the running time and the code size
+   * reduction of each pass, so that {@link PassSchedule#record} can add them
+   * to a profile. The tracer report is only printed if the tracer is on.
+   */
+  public void setPassScheduleProfiling(boolean passScheduleProfiling) {
+    this.passScheduleProfiling = passScheduleProfiling;
+  }
+
+  public boolean getPassScheduleProfiling() {
+    return passScheduleProfiling;
+  }
+
+  /**
+   * Sets whether the type inference keeps the types of the flow in hash
+   * tries that the scopes share, which is faster than the default linked
+   * scopes in the large functions with many branches.
+   */
+  public void setPersistentFlowScopes(boolean persistentFlowScopes) {
+    this.persistentFlowScopes = persistentFlowScopes;
+  }
+
+  public boolean getPersistentFlowScopes() {
+    return persistentFlowScopes;
+  }
+
   public void setMessageBundle(MessageBundle messageBundle) {
     this.messageBundle = messageBundle;
   }
@@ -21,17 +21,13 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.NodeTraversal.Callback;
-import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
 import java.util.ArrayDeque;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
 
 /**
  * This is a compiler pass that computes a control flow graph.
@@ -58,25 +54,12 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
 
   private ControlFlowGraph<Node> cfg;
 
-  private Map<Node, Integer> astPosition;
+  // The graph while it's built.
+  private AstControlFlowGraph.Builder builder;
 
-  // TODO(nicksantos): should these be node annotations?
-  private Map<DiGraphNode<Node, Branch>, Integer> nodePriorities;
-
-  // We order CFG nodes by by looking at the AST positions.
-  // CFG nodes that come first lexically should be visited first, because
-  // they will often be executed first in the source program.
-  private final Comparator<DiGraphNode<Node, Branch>> priorityComparator =
-      new Comparator<DiGraphNode<Node, Branch>>() {
-    @Override
-    public int compare(
-        DiGraphNode<Node, Branch> a, DiGraphNode<Node, Branch> b) {
-      return astPosition.get(a.getValue()) - astPosition.get(b.getValue());
-    }
-  };
-
-  private int astPositionCounter;
-  private int priorityCounter;
+  // The nodes in the pre-order traversal of the AST, which orders the nodes
+  // of the graph, see AstControlFlowGraph.Builder#build.
+  private List<Node> astOrder;
 
   private final boolean shouldTraverseFunctionsAndClasses;
   private final boolean edgeAnnotations;
@@ -147,80 +130,25 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
     Preconditions.checkArgument(
         NodeUtil.isValidCfgRoot(root), "Unexpected control flow graph root %s", root);
     this.root = root;
-    astPositionCounter = 0;
-    astPosition = new HashMap<>();
-    nodePriorities = new HashMap<>();
-    cfg = new AstControlFlowGraph(computeFallThrough(root), nodePriorities,
-                                  edgeAnnotations);
+    astOrder = new ArrayList<>();
+    builder = new AstControlFlowGraph.Builder(
+        computeFallThrough(root), edgeAnnotations);
     NodeTraversal.traverse(compiler, root, this);
-    astPosition.put(null, ++astPositionCounter); // the implicit return is last.
-
-    // Now, generate the priority of nodes by doing a depth-first
-    // search on the CFG.
-    priorityCounter = 0;
-    DiGraphNode<Node, Branch> entry = cfg.getEntry();
-    prioritizeFromEntryNode(entry);
-
-    if (shouldTraverseFunctionsAndClasses) {
-      // If we're traversing inner functions, we need to rank the
-      // priority of them too.
-      for (DiGraphNode<Node, Branch> candidate : cfg.getDirectedGraphNodes()) {
-        Node value = candidate.getValue();
-        if (value != null && value.isFunction()) {
-          Preconditions.checkState(
-              !nodePriorities.containsKey(candidate) || candidate == entry);
-          prioritizeFromEntryNode(candidate);
-        }
-      }
-    }
-
-    // At this point, all reachable nodes have been given a priority, but
-    // unreachable nodes have not been given a priority. Put them last.
-    // Presumably, it doesn't really matter what priority they get, since
-    // this shouldn't happen in real code.
-    for (DiGraphNode<Node, Branch> candidate : cfg.getDirectedGraphNodes()) {
-      if (!nodePriorities.containsKey(candidate)) {
-        nodePriorities.put(candidate, ++priorityCounter);
-      }
-    }
-
-    // Again, the implicit return node is always last.
-    nodePriorities.put(cfg.getImplicitReturn(), ++priorityCounter);
-  }
-
-  /**
-   * Given an entry node, find all the nodes reachable from that node
-   * and prioritize them.
-   */
-  private void prioritizeFromEntryNode(DiGraphNode<Node, Branch> entry) {
-    PriorityQueue<DiGraphNode<Node, Branch>> worklist =
-        new PriorityQueue<>(10, priorityComparator);
-    worklist.add(entry);
-
-    while (!worklist.isEmpty()) {
-      DiGraphNode<Node, Branch> current = worklist.remove();
-      if (nodePriorities.containsKey(current)) {
-        continue;
-      }
-
-      nodePriorities.put(current, ++priorityCounter);
-
-      List<DiGraphNode<Node, Branch>> successors =
-          cfg.getDirectedSuccNodes(current);
-      worklist.addAll(successors);
-    }
+    cfg = builder.build(astOrder, shouldTraverseFunctionsAndClasses);
+    builder = null;
+    astOrder = null;
   }
 
   @Override
   public boolean shouldTraverse(
       NodeTraversal nodeTraversal, Node n, Node parent) {
-    astPosition.put(n, astPositionCounter++);
+    astOrder.add(n);
 
     switch (n.getType()) {
       case Token.CLASS:
         return shouldTraverseFunctionsAndClasses;
       case Token.FUNCTION:
-        if (shouldTraverseFunctionsAndClasses || n == cfg.getEntry().getValue()) {
+        if (shouldTraverseFunctionsAndClasses || n == builder.getEntry()) {
           exceptionHandler.push(n);
           return true;
         }
@@ -824,9 +752,7 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
    */
   private void createEdge(Node fromNode, ControlFlowGraph.Branch branch,
       Node toNode) {
-    cfg.createNode(fromNode);
-    cfg.createNode(toNode);
-    cfg.connectIfNotFound(fromNode, branch, toNode);
+    builder.connectIfNotFound(fromNode, branch, toNode);
   }
 
   /**
@@ -1018,63 +944,4 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
     }
     return null;
   }
-
-  /**
-   * A {@link ControlFlowGraph} which provides a node comparator based on the
-   * pre-order traversal of the AST.
-   */
-  private static class AstControlFlowGraph extends ControlFlowGraph<Node> {
-    private final Map<DiGraphNode<Node, Branch>, Integer> priorities;
-
-    /**
-     * Constructor.
-     * @param entry The entry node.
-     * @param priorities The map from nodes to position in the AST (to be
-     *    filled by the {@link ControlFlowAnalysis#shouldTraverse}).
-     */
-    private AstControlFlowGraph(Node entry,
-        Map<DiGraphNode<Node, Branch>, Integer> priorities,
-        boolean edgeAnnotations) {
-      super(entry,
-          true /* node annotations */, edgeAnnotations);
-      this.priorities = priorities;
-    }
-
-    @Override
-    /**
-     * Returns a node comparator based on the pre-order traversal of the AST.
-     * @param isForward x 'before' y in the pre-order traversal implies
-     * x 'less than' y (if true) and x 'greater than' y (if false).
-     */
-    public Comparator<DiGraphNode<Node, Branch>> getOptionalNodeComparator(
-        boolean isForward) {
-      if (isForward) {
-        return new Comparator<DiGraphNode<Node, Branch>>() {
-          @Override
-          public int compare(
-              DiGraphNode<Node, Branch> n1, DiGraphNode<Node, Branch> n2) {
-            return getPosition(n1) - getPosition(n2);
-          }
-        };
-      } else {
-        return new Comparator<DiGraphNode<Node, Branch>>() {
-          @Override
-          public int compare(
-              DiGraphNode<Node, Branch> n1, DiGraphNode<Node, Branch> n2) {
-            return getPosition(n2) - getPosition(n1);
-          }
-        };
-      }
-    }
-
-    /**
-     * Gets the pre-order traversal position of the given node.
-     * @return An arbitrary counter used for comparing positions.
-     */
-    private int getPosition(DiGraphNode<Node, Branch> n) {
-      Integer priority = priorities.get(n);
-      Preconditions.checkNotNull(priority);
-      return priority;
-    }
-  }
 }
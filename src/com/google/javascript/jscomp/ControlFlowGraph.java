@@ -51,6 +51,16 @@ public class ControlFlowGraph<N> extends
     this.entry = createDirectedGraphNode(entry);
   }
 
+  /**
+   * Constructor for the graphs that create their nodes themselves.
+   */
+  ControlFlowGraph(DiGraphNode<N, ControlFlowGraph.Branch> entry,
+      DiGraphNode<N, ControlFlowGraph.Branch> implicitReturn) {
+    super(false, false);
+    this.implicitReturn = implicitReturn;
+    this.entry = entry;
+  }
+
   /**
    * Gets the implicit return node.
    *
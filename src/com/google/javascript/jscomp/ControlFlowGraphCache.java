@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.rhino.Node;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the control flow graphs of the functions, so that the analyses that
+ * run one after the other on a function that didn't change share its graph.
+ * <p>
+ * A graph is reused as long as the change time (see
+ * {@link Node#getChangeTime}) of its function is older than the time the graph
+ * was built. The functions nested in a function are single nodes of its graph,
+ * so their changes don't matter. Like {@link CodeSizeEstimator}, the cache
+ * relies on the changes being attributed to the right scope, and the changes
+ * that can't be attributed to a scope must be followed by a call to
+ * {@link #invalidate}.
+ * <p>
+ * The graphs have edge annotations, so that one graph serves all analyses.
+ * The annotations left by the previous analysis are cleared when a graph is
+ * reused, so every analysis gets the graph in the state it was built in. The
+ * graphs of the global scope aren't cached.
+ * <p>
+ * The new type inference builds graphs on several threads, so the map is
+ * only accessed under the lock of the cache; the graphs are built outside it.
+ */
+final class ControlFlowGraphCache {
+  private final Map<Node, Entry> entries = new HashMap<>();
+  private int hits = 0;
+  private int misses = 0;
+
+  private static final class Entry {
+    final ControlFlowGraph<Node> cfg;
+    final int builtAt;
+
+    Entry(ControlFlowGraph<Node> cfg, int builtAt) {
+      this.cfg = cfg;
+      this.builtAt = builtAt;
+    }
+  }
+
+  /**
+   * Builds the control flow graph of a scope, without the functions nested
+   * in it, with edge annotations.
+   */
+  static ControlFlowGraph<Node> build(AbstractCompiler compiler, Node root) {
+    ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, true);
+    cfa.process(null, root);
+    return cfa.getCfg();
+  }
+
+  /**
+   * Returns the control flow graph of a scope, reusing the graph of a
+   * function if it didn't change since it was built.
+   *
+   * @param now the current time. Every change made to the AST after this call
+   *     must have a change time greater than or equal to {@code now}.
+   */
+  ControlFlowGraph<Node> get(AbstractCompiler compiler, Node root, int now) {
+    if (!root.isFunction()) {
+      return build(compiler, root);
+    }
+    ControlFlowGraph<Node> cfg = lookup(root);
+    if (cfg != null) {
+      cfg.clearNodeAnnotations();
+      cfg.clearEdgeAnnotations();
+      return cfg;
+    }
+    cfg = build(compiler, root);
+    store(root, new Entry(cfg, now));
+    return cfg;
+  }
+
+  private synchronized ControlFlowGraph<Node> lookup(Node root) {
+    Entry entry = entries.get(root);
+    if (entry != null && root.getChangeTime() < entry.builtAt) {
+      hits++;
+      return entry.cfg;
+    }
+    misses++;
+    return null;
+  }
+
+  private synchronized void store(Node root, Entry entry) {
+    entries.put(root, entry);
+  }
+
+  /** Forgets all graphs; they are all built again when asked for. */
+  synchronized void invalidate() {
+    entries.clear();
+  }
+
+  /** The number of graphs that were reused. */
+  synchronized int getHits() {
+    return hits;
+  }
+
+  /** The number of graphs that were built, not counting the global ones. */
+  synchronized int getMisses() {
+    return misses;
+  }
+}
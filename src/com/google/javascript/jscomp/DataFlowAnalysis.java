@@ -334,12 +334,12 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
     private L out;
 
     /**
-     * Private constructor. No other classes should create new states.
+     * Only the data flow analyses create new states.
      *
      * @param inState Input.
      * @param outState Output.
      */
-    private FlowState(L inState, L outState) {
+    FlowState(L inState, L outState) {
       Preconditions.checkNotNull(inState);
       Preconditions.checkNotNull(outState);
       this.in = inState;
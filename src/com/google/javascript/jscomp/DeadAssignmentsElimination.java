@@ -41,6 +41,7 @@ class DeadAssignmentsElimination extends AbstractPostOrderCallback implements
 
   private final AbstractCompiler compiler;
   private LiveVariablesAnalysis liveness;
+  private boolean codeChanged;
 
   // Matches all assignment operators and increment/decrement operators.
   // Does *not* match VAR initialization, since RemoveUnusedVariables
@@ -68,11 +69,19 @@ class DeadAssignmentsElimination extends AbstractPostOrderCallback implements
 
   @Override
   public void enterScope(NodeTraversal t) {
-    Scope scope = t.getScope();
     // Global scope _SHOULD_ work, however, liveness won't finish without
     // -Xmx1024 in closure. We might have to look at coding conventions for
     // exported variables as well.
-    if (scope.isGlobal()) {
+    if (t.inGlobalScope()) {
+      return;
+    }
+
+    // Each run removes the dead assignments of a function until none is left,
+    // and the result only depends on the function itself, since the functions
+    // with inner functions are skipped. So there is nothing to do in the
+    // functions that didn't change since the previous run, and their liveness
+    // isn't computed again.
+    if (!compiler.hasScopeChanged(t.getScopeRoot())) {
       return;
     }
 
@@ -96,11 +105,17 @@ class DeadAssignmentsElimination extends AbstractPostOrderCallback implements
       return;
     }
 
-    // Computes liveness information first.
-    ControlFlowGraph<Node> cfg = t.getControlFlowGraph();
-    liveness = new LiveVariablesAnalysis(cfg, scope, compiler);
-    liveness.analyze();
-    tryRemoveDeadAssignments(t, cfg);
+    // Computes liveness information first. Removing an assignment may make
+    // the assignments before it dead, so this is repeated with a new graph
+    // until nothing changes.
+    do {
+      codeChanged = false;
+      ControlFlowGraph<Node> cfg =
+          compiler.getControlFlowGraph(t.getScopeRoot());
+      liveness = new LiveVariablesAnalysis(cfg, t.getScope(), compiler);
+      liveness.analyze();
+      tryRemoveDeadAssignments(t, cfg);
+    } while (codeChanged);
   }
 
   @Override
@@ -213,6 +228,7 @@ class DeadAssignmentsElimination extends AbstractPostOrderCallback implements
         n.removeChild(rhs);
         n.getParent().replaceChild(n, rhs);
         compiler.reportCodeChange();
+        codeChanged = true;
         return;
       }
 
@@ -263,6 +279,7 @@ class DeadAssignmentsElimination extends AbstractPostOrderCallback implements
       }
 
       compiler.reportCodeChange();
+      codeChanged = true;
       return;
 
     } else {
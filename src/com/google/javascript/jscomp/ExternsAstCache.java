@@ -0,0 +1,244 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.ErrorReporter;
+import com.google.javascript.rhino.IR;
+import com.google.javascript.rhino.InputId;
+import com.google.javascript.rhino.Node;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares the parsed externs between the compilations run in the same JVM,
+ * like the ones of a {@link CommandLineWorker}.
+ * <p>
+ * The tree of an extern is kept along with the hash of its content and the
+ * parser options used for it. Every compilation gets its own copy of the
+ * tree, since the passes modify the externs. The warnings reported while
+ * parsing are reported again each time the tree is used, so the diagnostics
+ * are the same as when the extern is parsed. Externs with parse errors are
+ * not cached.
+ */
+final class ExternsAstCache {
+  // The latest tree of each extern, by name.
+  private final Map<String, CachedTree> trees = new ConcurrentHashMap<>();
+
+  private List<SourceFile> defaultExterns = null;
+
+  /**
+   * Returns the default externs of {@link CommandLineRunner}, which are only
+   * read once.
+   *
+   * @return a mutable list
+   */
+  synchronized List<SourceFile> getDefaultExterns() throws IOException {
+    if (defaultExterns == null) {
+      defaultExterns = ImmutableList.copyOf(
+          CommandLineRunner.getDefaultExterns());
+    }
+    return new ArrayList<>(defaultExterns);
+  }
+
+  /** Returns an AST for an extern that is parsed at most once. */
+  SourceAst getAst(SourceFile sourceFile) {
+    return new CachedAst(sourceFile);
+  }
+
+  /** The number of cached trees, for testing. */
+  int size() {
+    return trees.size();
+  }
+
+  /**
+   * The options the tree depends on. The tree of an extern is only reused
+   * when they are the same.
+   */
+  private static List<Object> getParserKey(AbstractCompiler compiler) {
+    CompilerOptions options = compiler.getOptions();
+    return ImmutableList.<Object>of(
+        options.getLanguageIn(),
+        options.isParseJsDocDocumentation(),
+        options.extraAnnotationNames == null
+            ? ImmutableList.of() : options.extraAnnotationNames);
+  }
+
+  private Node getRoot(SourceFile sourceFile, AbstractCompiler compiler) {
+    // The comments of the externs are needed in IDE mode.
+    if (compiler.isIdeMode()) {
+      return null;
+    }
+
+    String code;
+    try {
+      code = sourceFile.getCode();
+    } catch (IOException e) {
+      // Let the parser report it.
+      return null;
+    }
+    HashCode hash = Hashing.sha1().hashString(code, UTF_8);
+    List<Object> parserKey = getParserKey(compiler);
+
+    CachedTree cached = trees.get(sourceFile.getName());
+    if (cached == null || !cached.hash.equals(hash)
+        || !cached.parserKey.equals(parserKey)) {
+      DiagnosticRecorder recorder = new DiagnosticRecorder();
+      ParserRunner.ParseResult result = ParserRunner.parse(
+          sourceFile, code,
+          compiler.getParserConfig(AbstractCompiler.ConfigContext.EXTERNS),
+          recorder);
+      if (result.ast == null || recorder.hasErrors) {
+        return null;
+      }
+      Node root = result.ast;
+      compiler.prepareAst(root);
+      root.setStaticSourceFile(sourceFile);
+      cached = new CachedTree(hash, parserKey, root, recorder.warnings);
+      trees.put(sourceFile.getName(), cached);
+    }
+
+    int startErrorCount = compiler.getErrorManager().getErrorCount();
+    ErrorReporter reporter = compiler.getDefaultErrorReporter();
+    for (Warning warning : cached.warnings) {
+      reporter.warning(warning.message, warning.sourceName, warning.line,
+          warning.lineOffset);
+    }
+    if (compiler.getErrorManager().getErrorCount() > startErrorCount) {
+      // A warning was raised to an error, so use a dummy block like JsAst.
+      Node root = IR.script();
+      root.setStaticSourceFile(sourceFile);
+      return root;
+    }
+    return cached.root.cloneTree();
+  }
+
+  /** A parsed extern, which is never modified. */
+  private static final class CachedTree {
+    final HashCode hash;
+    final List<Object> parserKey;
+    final Node root;
+    final List<Warning> warnings;
+
+    CachedTree(HashCode hash, List<Object> parserKey, Node root,
+        List<Warning> warnings) {
+      this.hash = hash;
+      this.parserKey = parserKey;
+      this.root = root;
+      this.warnings = warnings;
+    }
+  }
+
+  private static final class Warning {
+    final String message;
+    final String sourceName;
+    final int line;
+    final int lineOffset;
+
+    Warning(String message, String sourceName, int line, int lineOffset) {
+      this.message = message;
+      this.sourceName = sourceName;
+      this.line = line;
+      this.lineOffset = lineOffset;
+    }
+  }
+
+  /**
+   * Records the diagnostics of the parser, whatever their level is in the
+   * current compilation.
+   */
+  private static final class DiagnosticRecorder implements ErrorReporter {
+    final List<Warning> warnings = new ArrayList<>();
+    boolean hasErrors = false;
+
+    @Override
+    public void warning(
+        String message, String sourceName, int line, int lineOffset) {
+      warnings.add(new Warning(message, sourceName, line, lineOffset));
+    }
+
+    @Override
+    public void error(
+        String message, String sourceName, int line, int lineOffset) {
+      hasErrors = true;
+    }
+  }
+
+  /**
+   * The AST of an extern, which is a copy of the cached tree if there is one.
+   * Otherwise the extern is parsed like a {@link JsAst}.
+   */
+  private final class CachedAst implements SourceAst {
+    private static final long serialVersionUID = 1L;
+
+    private final InputId inputId;
+    private SourceFile sourceFile;
+    private final JsAst fallback;
+    private Node root;
+
+    CachedAst(SourceFile sourceFile) {
+      this.inputId = new InputId(sourceFile.getName());
+      this.sourceFile = sourceFile;
+      this.fallback = new JsAst(sourceFile);
+    }
+
+    @Override
+    public Node getAstRoot(AbstractCompiler compiler) {
+      if (root == null) {
+        root = getRoot(sourceFile, compiler);
+        if (root == null) {
+          root = fallback.getAstRoot(compiler);
+        }
+        root.setInputId(inputId);
+      }
+      return root;
+    }
+
+    @Override
+    public void clearAst() {
+      root = null;
+      fallback.clearAst();
+    }
+
+    @Override
+    public InputId getInputId() {
+      return inputId;
+    }
+
+    @Override
+    public SourceFile getSourceFile() {
+      return sourceFile;
+    }
+
+    @Override
+    public void setSourceFile(SourceFile file) {
+      Preconditions.checkState(sourceFile.getName().equals(file.getName()));
+      sourceFile = file;
+      fallback.setSourceFile(file);
+    }
+  }
+}
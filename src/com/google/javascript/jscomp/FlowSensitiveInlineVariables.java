@@ -131,11 +131,8 @@ class FlowSensitiveInlineVariables extends AbstractPostOrderCallback
     }
 
     // Compute the forward reaching definition.
-    ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, true);
-    // Process the body of the function.
     Preconditions.checkState(t.getScopeRoot().isFunction());
-    cfa.process(null, t.getScopeRoot());
-    cfg = cfa.getCfg();
+    cfg = compiler.getControlFlowGraph(t.getScopeRoot());
     reachingDef = new MustBeReachingVariableDef(cfg, t.getScope(), compiler);
     reachingDef.analyze();
     candidates = new LinkedList<>();
@@ -76,16 +76,34 @@ public class JsAst implements SourceAst {
     sourceFile = file;
   }
 
+  /**
+   * Returns the cache of the parsed inputs, or null if it is disabled. The
+   * comments needed in IDE mode are not cached.
+   */
+  private static AstCache getAstCache(AbstractCompiler compiler) {
+    String directory = compiler.getOptions().getAstCacheDirectory();
+    if (directory == null || compiler.isIdeMode()) {
+      return null;
+    }
+    return new AstCache(directory);
+  }
+
   private void parse(AbstractCompiler compiler) {
     int startErrorCount = compiler.getErrorManager().getErrorCount();
     try {
-      ParserRunner.ParseResult result = ParserRunner.parse(
-          sourceFile,
-          sourceFile.getCode(),
-          compiler.getParserConfig(sourceFile.isExtern()
-                        ? AbstractCompiler.ConfigContext.EXTERNS
-                        : AbstractCompiler.ConfigContext.DEFAULT),
-          compiler.getDefaultErrorReporter());
+      ParserRunner.ParseResult result;
+      AstCache cache = getAstCache(compiler);
+      if (cache != null) {
+        result = cache.parse(sourceFile, compiler);
+      } else {
+        result = ParserRunner.parse(
+            sourceFile,
+            sourceFile.getCode(),
+            compiler.getParserConfig(sourceFile.isExtern()
+                          ? AbstractCompiler.ConfigContext.EXTERNS
+                          : AbstractCompiler.ConfigContext.DEFAULT),
+            compiler.getDefaultErrorReporter());
+      }
       root = result.ast;
       if (compiler.isIdeMode()) {
         compiler.addComments(sourceFile.getName(), result.comments);
@@ -110,7 +110,17 @@ class LinkedFlowScope implements FlowScope {
   @Override
   public void inferQualifiedSlot(Node node, String symbol, JSType bottomType,
       JSType inferredType, boolean declared) {
-    TypedScope functionScope = getFunctionScope();
+    inferQualifiedSlot(this, getFunctionScope(), node, symbol, bottomType,
+        inferredType, declared);
+  }
+
+  /**
+   * Infers the type of a qualified name in a flow scope of a function. Also
+   * used by {@link PersistentFlowScope}.
+   */
+  static void inferQualifiedSlot(FlowScope flowScope,
+      TypedScope functionScope, Node node, String symbol, JSType bottomType,
+      JSType inferredType, boolean declared) {
     if (functionScope.isLocal()) {
       TypedVar v  = functionScope.getVar(symbol);
       if (v == null && !functionScope.isBottom()) {
@@ -124,10 +134,10 @@ class LinkedFlowScope implements FlowScope {
         if (declaredType != null && inferredType.isSubtype(declaredType)
             && !declaredType.isSubtype(inferredType)
             && !inferredType.isEquivalentTo(declaredType)) {
-          inferSlotType(symbol, inferredType);
+          flowScope.inferSlotType(symbol, inferredType);
         }
       } else {
-        inferSlotType(symbol, inferredType);
+        flowScope.inferSlotType(symbol, inferredType);
       }
     }
   }
@@ -472,7 +482,7 @@ class LinkedFlowScope implements FlowScope {
             // Case #1 -- already inserted.
           } else {
             // Case #3
-            joinedType = slotA.getType().getLeastSupertype(fnSlotType);
+            joinedType = join(slotA.getType(), fnSlotType);
           }
         } else if (slotA == null || slotA.getType() == null) {
           StaticTypedSlot<JSType> fnSlot
@@ -483,12 +493,11 @@ class LinkedFlowScope implements FlowScope {
             symbols.put(name, slotB);
           } else {
             // Case #4
-            joinedType = slotB.getType().getLeastSupertype(fnSlotType);
+            joinedType = join(slotB.getType(), fnSlotType);
           }
         } else {
           // Case #5
-          joinedType =
-              slotA.getType().getLeastSupertype(slotB.getType());
+          joinedType = join(slotA.getType(), slotB.getType());
         }
 
         if (joinedType != null) {
@@ -497,6 +506,14 @@ class LinkedFlowScope implements FlowScope {
       }
     }
 
+    /**
+     * Most symbols have the same type in both scopes. The union types are
+     * interned by the registry, so this includes the unions.
+     */
+    private static JSType join(JSType typeA, JSType typeB) {
+      return typeA == typeB ? typeA : typeA.getLeastSupertype(typeB);
+    }
+
     /**
      * Get the slot for the given symbol.
      */
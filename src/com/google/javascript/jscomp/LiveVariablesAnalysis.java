@@ -19,7 +19,6 @@ package com.google.javascript.jscomp;
 import com.google.common.base.Preconditions;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
-import com.google.javascript.jscomp.graph.LatticeElement;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
@@ -44,8 +43,8 @@ import java.util.Set;
  * global and they can be retrieved with {@link #getEscapedLocals()}.
  *
  */
-class LiveVariablesAnalysis extends
-    DataFlowAnalysis<Node, LiveVariablesAnalysis.LiveVariableLattice> {
+class LiveVariablesAnalysis extends BitVectorDataFlowAnalysis
+    <Node, LiveVariablesAnalysis.LiveVariableLattice> {
 
   // 100 = ((# of original Power Rangers) ^
   //        (# years of Warren Harding in office)) *
@@ -54,62 +53,23 @@ class LiveVariablesAnalysis extends
 
   public static final String ARGUMENT_ARRAY_ALIAS = "arguments";
 
-  private static class LiveVariableJoinOp
-      implements JoinOp<LiveVariableLattice> {
-    @Override
-    public LiveVariableLattice apply(List<LiveVariableLattice> in) {
-      LiveVariableLattice result = new LiveVariableLattice(in.get(0));
-      for (int i = 1; i < in.size(); i++) {
-        result.liveSet.or(in.get(i).liveSet);
-      }
-      return result;
-    }
-  }
-
   /**
    * The lattice that stores the liveness of all local variables at a given
    * point in the program. The whole lattice is the power set of all local
    * variables and a variable is live if it is in the set.
    */
-  static class LiveVariableLattice implements LatticeElement {
-    private final BitSet liveSet;
-
-    /**
-     * @param numVars Number of all local variables.
-     */
-    private LiveVariableLattice(int numVars) {
-      this.liveSet = new BitSet(numVars);
-    }
-
-    private LiveVariableLattice(LiveVariableLattice other) {
-      Preconditions.checkNotNull(other);
-      this.liveSet = (BitSet) other.liveSet.clone();
-    }
-
-    @Override
-    public boolean equals(Object other) {
-      Preconditions.checkNotNull(other);
-      return (other instanceof LiveVariableLattice) &&
-          this.liveSet.equals(((LiveVariableLattice) other).liveSet);
+  static class LiveVariableLattice extends BitVectorLattice {
+    private LiveVariableLattice(long[] matrix, int row, int wordsPerRow) {
+      super(matrix, row, wordsPerRow);
     }
 
     public boolean isLive(Var v) {
       Preconditions.checkNotNull(v);
-      return liveSet.get(v.index);
+      return get(v.index);
     }
 
     public boolean isLive(int index) {
-      return liveSet.get(index);
-    }
-
-    @Override
-    public String toString() {
-      return liveSet.toString();
-    }
-
-    @Override
-    public int hashCode() {
-      return liveSet.hashCode();
+      return get(index);
     }
   }
 
@@ -119,10 +79,10 @@ class LiveVariablesAnalysis extends
 
   LiveVariablesAnalysis(ControlFlowGraph<Node> cfg, Scope jsScope,
       AbstractCompiler compiler) {
-    super(cfg, new LiveVariableJoinOp());
+    super(cfg);
     this.jsScope = jsScope;
     this.escaped = new HashSet<>();
-    computeEscaped(jsScope, escaped, compiler);
+    DataFlowAnalysis.computeEscaped(jsScope, escaped, compiler);
   }
 
   public Set<? extends Var> getEscapedLocals() {
@@ -139,20 +99,17 @@ class LiveVariablesAnalysis extends
   }
 
   @Override
-  LiveVariableLattice createEntryLattice() {
-    return new LiveVariableLattice(jsScope.getVarCount());
+  int getBitCount() {
+    return jsScope.getVarCount();
   }
 
   @Override
-  LiveVariableLattice createInitialEstimateLattice() {
-    return new LiveVariableLattice(jsScope.getVarCount());
+  LiveVariableLattice createLattice(long[] matrix, int row, int wordsPerRow) {
+    return new LiveVariableLattice(matrix, row, wordsPerRow);
   }
 
   @Override
-  LiveVariableLattice flowThrough(Node node, LiveVariableLattice input) {
-    final BitSet gen = new BitSet(input.liveSet.size());
-    final BitSet kill = new BitSet(input.liveSet.size());
-
+  void computeGenKill(Node node, BitSet gen, BitSet kill) {
     // Make kills conditional if the node can end abruptly by an exception.
     boolean conditional = false;
     List<DiGraphEdge<Node, Branch>> edgeList = getCfg().getOutEdges(node);
@@ -162,11 +119,6 @@ class LiveVariablesAnalysis extends
       }
     }
     computeGenKill(node, gen, kill, conditional);
-    LiveVariableLattice result = new LiveVariableLattice(input);
-    // L_in = L_out - Kill + Gen
-    result.liveSet.andNot(kill);
-    result.liveSet.or(gen);
-    return result;
   }
 
   /**
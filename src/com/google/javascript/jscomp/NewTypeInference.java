@@ -48,6 +48,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * New type inference algorithm.
@@ -309,9 +310,13 @@ final class NewTypeInference implements CompilerPass {
     try {
       this.symbolTable = compiler.getSymbolTable();
       this.commonTypes = symbolTable.getTypesUtilObject();
-      for (NTIScope scope : symbolTable.getScopes()) {
-        analyzeFunction(scope);
-        envs.clear();
+      if (compiler.isParallelOptimizationEnabled()) {
+        analyzeFunctionsInParallel();
+      } else {
+        for (NTIScope scope : symbolTable.getScopes()) {
+          analyzeFunction(scope);
+          envs.clear();
+        }
       }
       for (DeferredCheck check : deferredChecks.values()) {
         check.runCheck(summaries, warnings);
@@ -328,6 +333,50 @@ final class NewTypeInference implements CompilerPass {
     }
   }
 
+  /**
+   * Analyzes the scopes on the threads of the compiler. A function only
+   * depends on the summaries of the functions defined in it, so the compiler
+   * analyzes a scope after the scopes nested in it, and the scopes of the
+   * same depth at the same time. Each scope is analyzed by its own instance,
+   * so that the environments and the CFG stay on one thread; only the
+   * summaries are shared. The warnings and the deferred checks are collected
+   * in the order of the scopes, as if the scopes were analyzed one after the
+   * other.
+   */
+  private void analyzeFunctionsInParallel() {
+    this.summaries = new ConcurrentHashMap<>();
+    Collection<NTIScope> scopes = symbolTable.getScopes();
+    final Map<Node, NTIScope> scopesByRoot = new LinkedHashMap<>();
+    for (NTIScope scope : scopes) {
+      scopesByRoot.put(scope.getRoot(), scope);
+    }
+    final Map<NTIScope, Map<Node, DeferredCheck>> deferredChecksByScope =
+        new ConcurrentHashMap<>();
+    compiler.processScopesInParallel(
+        new ArrayList<>(scopesByRoot.keySet()),
+        new NodeTraversal.FunctionCallback() {
+          @Override
+          public void enterFunction(AbstractCompiler compiler, Node root) {
+            NTIScope scope = scopesByRoot.get(root);
+            NewTypeInference worker =
+                new NewTypeInference(compiler, isClosurePassOn);
+            worker.symbolTable = symbolTable;
+            worker.commonTypes = commonTypes;
+            worker.summaries = summaries;
+            try {
+              worker.analyzeFunction(scope);
+            } catch (RuntimeException e) {
+              throw new RuntimeException(
+                  e.getMessage() + "\nIn scope: " + scope, e);
+            }
+            deferredChecksByScope.put(scope, worker.deferredChecks);
+          }
+        });
+    for (NTIScope scope : scopes) {
+      deferredChecks.putAll(deferredChecksByScope.get(scope));
+    }
+  }
+
   static void updatePeakMem() {
     Runtime rt = Runtime.getRuntime();
     long currentUsedMem = (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024);
@@ -595,9 +644,7 @@ final class NewTypeInference implements CompilerPass {
   private void analyzeFunction(NTIScope scope) {
     println("=== Analyzing function: ", scope.getReadableName(), " ===");
     currentScope = scope;
-    ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, false);
-    cfa.process(null, scope.getRoot());
-    cfg = cfa.getCfg();
+    cfg = compiler.getControlFlowGraph(scope.getRoot());
     println(cfg);
     // The size is > 1 when multiple files are compiled
     // Preconditions.checkState(cfg.getEntry().getOutEdges().size() == 1);
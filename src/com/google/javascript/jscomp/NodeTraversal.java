@@ -737,10 +737,8 @@ public class NodeTraversal {
   /** Gets the control flow graph for the current JS scope. */
   public ControlFlowGraph<Node> getControlFlowGraph() {
     if (cfgs.peek() == null) {
-      ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, true);
-      cfa.process(null, getCfgRoot());
       cfgs.pop();
-      cfgs.push(cfa.getCfg());
+      cfgs.push(compiler.getControlFlowGraph(getCfgRoot()));
     }
     return cfgs.peek();
   }
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Preconditions;
+import com.google.common.io.Files;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * How well the loopable optimization passes did in previous compilations,
+ * and how the {@link PhaseOptimizer} schedules them from it.
+ * <p>
+ * For each loopable pass, the profile holds the number of runs, how many of
+ * them changed the code, the total running time and the total reduction of
+ * the estimated code size, as measured by the {@link PerformanceTracker}.
+ * The compilations with {@link CompilerOptions#setPassScheduleProfiling} add
+ * their measurements with {@link #record}. The compilations with
+ * {@link CompilerOptions#setPassSchedule}, in a fixed point loop:
+ * <ul>
+ * <li>run the passes by decreasing change of the code size per second, after
+ *     the passes that are not in the profile,
+ * <li>skip the passes that ran at least {@value #MIN_RUNS_TO_SKIP} times and
+ *     changed the code size by at most {@code minBytesPerSecond},
+ * <li>stop iterating once the loop ran for {@code loopTimeBudgetMillis}, if
+ *     it is positive.
+ * </ul>
+ * The passes keep the semantics of the code, so a skipped pass or a stopped
+ * loop only leaves bigger code. With a time budget, the output depends on
+ * the speed of the machine. The profile is saved in JSON:
+ * <pre>
+ * {
+ *   "minBytesPerSecond": 1.0,
+ *   "loopTimeBudgetMillis": 0,
+ *   "passes": {
+ *     "inlineFunctions": {
+ *       "runs": 12, "changes": 4, "runtimeMillis": 310, "reduction": 5120
+ *     }, ...
+ *   }
+ * }
+ * </pre>
+ * The two settings can be edited in the file; {@link #record} keeps them.
+ */
+@GwtIncompatible("com.google.gson")
+public final class PassSchedule {
+  static final double DEFAULT_MIN_BYTES_PER_SECOND = 1.0;
+  // Fewer runs don't tell whether a pass is useless.
+  static final int MIN_RUNS_TO_SKIP = 5;
+
+  private double minBytesPerSecond = DEFAULT_MIN_BYTES_PER_SECOND;
+  private long loopTimeBudgetMillis = 0;
+  private final Map<String, PassProfile> passes = new TreeMap<>();
+
+  private static final class PassProfile {
+    int runs;
+    int changes;
+    long runtimeMillis;
+    long reduction;
+
+    /**
+     * How fast the pass changes the code size. A pass that makes the code
+     * bigger, like inlineFunctions, makes room for the passes that reduce it,
+     * so it counts as much as a pass that reduces the code as much.
+     */
+    double getBytesPerSecond() {
+      // The fastest passes take less than a millisecond.
+      return Math.abs(reduction) * 1000.0 / Math.max(runtimeMillis, 1);
+    }
+  }
+
+  /**
+   * Adds the measurements of the loopable passes of a compilation. The
+   * tracker must track the code size.
+   */
+  public void record(PerformanceTracker tracker) {
+    Preconditions.checkArgument(tracker.tracksSize());
+    for (PerformanceTracker.Stats stats : tracker.getStats().values()) {
+      if (stats.isOneTime) {
+        continue;
+      }
+      PassProfile profile = passes.get(stats.pass);
+      if (profile == null) {
+        profile = new PassProfile();
+        passes.put(stats.pass, profile);
+      }
+      profile.runs += stats.runs;
+      profile.changes += stats.changes;
+      profile.runtimeMillis += stats.runtime;
+      profile.reduction += stats.diff;
+    }
+  }
+
+  /** Whether the profile shows that a loopable pass isn't worth its time. */
+  boolean shouldSkip(String passName) {
+    PassProfile profile = passes.get(passName);
+    return profile != null && profile.runs >= MIN_RUNS_TO_SKIP
+        && profile.getBytesPerSecond() <= minBytesPerSecond;
+  }
+
+  /**
+   * The order of the passes of a fixed point loop: the passes that are not
+   * in the profile keep their order and run first, then the others by
+   * decreasing change of the code size per second.
+   */
+  Comparator<String> getLoopOrder() {
+    return new Comparator<String>() {
+      @Override
+      public int compare(String pass1, String pass2) {
+        PassProfile profile1 = passes.get(pass1);
+        PassProfile profile2 = passes.get(pass2);
+        if (profile1 == null || profile2 == null) {
+          return (profile1 == null ? 0 : 1) - (profile2 == null ? 0 : 1);
+        }
+        return Double.compare(
+            profile2.getBytesPerSecond(), profile1.getBytesPerSecond());
+      }
+    };
+  }
+
+  /** The time after which a fixed point loop stops, or 0 if it doesn't. */
+  long getLoopTimeBudgetMillis() {
+    return loopTimeBudgetMillis;
+  }
+
+  public void setMinBytesPerSecond(double minBytesPerSecond) {
+    this.minBytesPerSecond = minBytesPerSecond;
+  }
+
+  public void setLoopTimeBudgetMillis(long loopTimeBudgetMillis) {
+    this.loopTimeBudgetMillis = loopTimeBudgetMillis;
+  }
+
+  /** Saves the profile to a file. */
+  public void save(String filename) throws IOException {
+    Files.write(toJson(), new File(filename), UTF_8);
+  }
+
+  /** Reads a profile from a file written via {@link #save(String)}. */
+  public static PassSchedule load(String filename) throws IOException {
+    try {
+      return fromJson(Files.toString(new File(filename), UTF_8));
+    } catch (RuntimeException e) {
+      throw new IOException("Malformed pass schedule profile " + filename, e);
+    }
+  }
+
+  String toJson() {
+    JsonObject json = new JsonObject();
+    json.addProperty("minBytesPerSecond", minBytesPerSecond);
+    json.addProperty("loopTimeBudgetMillis", loopTimeBudgetMillis);
+    JsonObject passesJson = new JsonObject();
+    for (Map.Entry<String, PassProfile> entry : passes.entrySet()) {
+      PassProfile profile = entry.getValue();
+      JsonObject pass = new JsonObject();
+      pass.addProperty("runs", profile.runs);
+      pass.addProperty("changes", profile.changes);
+      pass.addProperty("runtimeMillis", profile.runtimeMillis);
+      pass.addProperty("reduction", profile.reduction);
+      passesJson.add(entry.getKey(), pass);
+    }
+    json.add("passes", passesJson);
+    return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+  }
+
+  static PassSchedule fromJson(String json) {
+    JsonObject object = new JsonParser().parse(json).getAsJsonObject();
+    PassSchedule schedule = new PassSchedule();
+    if (object.has("minBytesPerSecond")) {
+      schedule.minBytesPerSecond =
+          object.get("minBytesPerSecond").getAsDouble();
+    }
+    if (object.has("loopTimeBudgetMillis")) {
+      schedule.loopTimeBudgetMillis =
+          object.get("loopTimeBudgetMillis").getAsLong();
+    }
+    if (object.has("passes")) {
+      for (Map.Entry<String, JsonElement> entry :
+          object.getAsJsonObject("passes").entrySet()) {
+        JsonObject pass = entry.getValue().getAsJsonObject();
+        PassProfile profile = new PassProfile();
+        profile.runs = pass.get("runs").getAsInt();
+        profile.changes = pass.get("changes").getAsInt();
+        profile.runtimeMillis = pass.get("runtimeMillis").getAsLong();
+        profile.reduction = pass.get("reduction").getAsLong();
+        schedule.passes.put(entry.getKey(), profile);
+      }
+    }
+    return schedule;
+  }
+}
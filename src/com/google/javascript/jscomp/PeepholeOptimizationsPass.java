@@ -20,6 +20,9 @@ import com.google.javascript.jscomp.NodeTraversal.AbstractShallowCallback;
 import com.google.javascript.jscomp.NodeTraversal.FunctionCallback;
 import com.google.javascript.rhino.Node;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A compiler pass to run various peephole optimizations (e.g. constant folding,
  * some useless code removal, some minimizations).
@@ -53,24 +56,63 @@ class PeepholeOptimizationsPass implements CompilerPass {
 
   @Override
   public void process(Node externs, Node root) {
+    if (compiler.isParallelOptimizationEnabled()) {
+      beginTraversal();
+      processInParallel();
+      endTraversal();
+      return;
+    }
+
     compiler.addChangeHandler(handler);
     beginTraversal();
     NodeTraversal.traverseChangedFunctions(compiler, new FunctionCallback() {
         @Override
         public void enterFunction(AbstractCompiler compiler, Node root) {
-          if (root.isFunction()) {
-            root = root.getLastChild();
-          }
-          do {
-            handler.reset();
-            NodeTraversal.traverse(compiler, root, new PeepCallback());
-          } while (retraverseOnChange && handler.hasCodeChanged());
+          optimizeScope(root, handler);
         }
       });
     endTraversal();
     compiler.removeChangeHandler(handler);
   }
 
+  /**
+   * Collects the changed functions first, and then lets the compiler optimize
+   * them in parallel. The optimizations only change the function they run on,
+   * and the shared optimization objects are stateless.
+   */
+  private void processInParallel() {
+    final List<Node> scopeRoots = new ArrayList<>();
+    NodeTraversal.traverseChangedFunctions(compiler, new FunctionCallback() {
+        @Override
+        public void enterFunction(AbstractCompiler compiler, Node root) {
+          scopeRoots.add(root);
+        }
+      });
+    compiler.processScopesInParallel(scopeRoots, new FunctionCallback() {
+        @Override
+        public void enterFunction(AbstractCompiler compiler, Node root) {
+          RecentChange scopeHandler = new RecentChange();
+          compiler.addChangeHandler(scopeHandler);
+          optimizeScope(root, scopeHandler);
+          compiler.removeChangeHandler(scopeHandler);
+        }
+      });
+  }
+
+  /**
+   * Optimizes the code of a scope, without the functions nested in it, until
+   * it stops changing.
+   */
+  private void optimizeScope(Node root, RecentChange handler) {
+    if (root.isFunction()) {
+      root = root.getLastChild();
+    }
+    do {
+      handler.reset();
+      NodeTraversal.traverse(compiler, root, new PeepCallback());
+    } while (retraverseOnChange && handler.hasCodeChanged());
+  }
+
   private class PeepCallback extends AbstractShallowCallback {
     @Override
     public void visit(NodeTraversal t, Node n, Node parent) {
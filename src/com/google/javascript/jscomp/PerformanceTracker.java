@@ -133,6 +133,21 @@ public final class PerformanceTracker {
    * @param runtime execution time in milliseconds
    */
   void recordPassStop(String passName, long runtime) {
+    recordPassStop(passName, runtime, DEFAULT_WHEN_SIZE_UNTRACKED);
+  }
+
+  /**
+   * Like {@link #recordPassStop(String, long)}, but takes the raw code size
+   * from the caller instead of printing the whole AST to compute it, e.g.,
+   * from a {@link CodeSizeEstimator} that only reprints the changed scopes.
+   * The gzipped size, if tracked, still needs a full print.
+   *
+   * @param passName short name of the pass
+   * @param runtime execution time in milliseconds
+   * @param estimatedSize the raw code size after the pass, as computed by
+   *     {@code CodeGenerator.forCostEstimation}
+   */
+  void recordPassStop(String passName, long runtime, int estimatedSize) {
     Stats logStats = currentPass.pop();
     Preconditions.checkState(passName.equals(logStats.pass));
 
@@ -167,10 +182,14 @@ public final class PerformanceTracker {
     // Update fields related to code size
     if (codeChange.hasCodeChanged() && trackSize) {
       int newSize = 0;
-      CodeSizeEstimatePrinter estimatePrinter = new CodeSizeEstimatePrinter();
-      CodeGenerator.forCostEstimation(estimatePrinter).add(jsRoot);
+      CodeSizeEstimatePrinter estimatePrinter = null;
+      if (trackGzSize || estimatedSize == DEFAULT_WHEN_SIZE_UNTRACKED) {
+        estimatePrinter = new CodeSizeEstimatePrinter();
+        CodeGenerator.forCostEstimation(estimatePrinter).add(jsRoot);
+      }
       if (trackSize) {
-        newSize = estimatePrinter.calcSize();
+        newSize = estimatedSize == DEFAULT_WHEN_SIZE_UNTRACKED
+            ? estimatePrinter.calcSize() : estimatedSize;
         logStats.diff = codeSize - newSize;
         summaryStats.diff += logStats.diff;
         codeSize = summaryStats.size = logStats.size = newSize;
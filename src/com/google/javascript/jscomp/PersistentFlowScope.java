@@ -0,0 +1,268 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Preconditions;
+import com.google.javascript.jscomp.newtypes.PersistentMap;
+import com.google.javascript.jscomp.type.FlowScope;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.jstype.JSType;
+import com.google.javascript.rhino.jstype.SimpleSlot;
+import com.google.javascript.rhino.jstype.StaticTypedScope;
+import com.google.javascript.rhino.jstype.StaticTypedSlot;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A flow scope that keeps the slots inferred in the flow in a
+ * {@link PersistentMap}, a hash array mapped trie by their names. A child
+ * scope shares the trie of its parent, and
+ * a new slot only copies the path to its leaf, so a scope is created in
+ * constant time however long the flow, and a lookup takes at most seven
+ * steps. The scopes that come from a common scope share most of their tries,
+ * so the joins and the comparisons only walk the parts that differ.
+ * <p>
+ * {@link LinkedFlowScope} copies the whole flow into a flat map every few
+ * hundred scopes and at every join, which is quadratic in the large
+ * functions with many branches. This scope is used instead when
+ * {@link CompilerOptions#setPersistentFlowScopes} is on.
+ */
+class PersistentFlowScope implements FlowScope {
+  // The TypedScope for the entire function or for the global scope.
+  private final TypedScope functionScope;
+
+  // All the slots defined before this point in the local flow.
+  private PersistentMap<String, StaticTypedSlot<JSType>> slots;
+
+  // Once a child scope is created, this flow scope may not be modified.
+  private boolean frozen = false;
+
+  private PersistentFlowScope(TypedScope functionScope,
+      PersistentMap<String, StaticTypedSlot<JSType>> slots) {
+    this.functionScope = functionScope;
+    this.slots = slots;
+  }
+
+  /**
+   * Creates an entry lattice for the flow.
+   */
+  static PersistentFlowScope createEntryLattice(TypedScope scope) {
+    return new PersistentFlowScope(
+        scope, PersistentMap.<String, StaticTypedSlot<JSType>>create());
+  }
+
+  /** Whether this flows from a bottom scope. */
+  private boolean flowsFromBottom() {
+    return functionScope.isBottom();
+  }
+
+  @Override
+  public void inferSlotType(String symbol, JSType type) {
+    Preconditions.checkState(!frozen);
+    slots = slots.with(symbol, new SimpleSlot(symbol, type, true));
+  }
+
+  @Override
+  public void inferQualifiedSlot(Node node, String symbol, JSType bottomType,
+      JSType inferredType, boolean declared) {
+    LinkedFlowScope.inferQualifiedSlot(this, functionScope, node, symbol,
+        bottomType, inferredType, declared);
+  }
+
+  @Override
+  public JSType getTypeOfThis() {
+    return functionScope.getTypeOfThis();
+  }
+
+  @Override
+  public Node getRootNode() {
+    return functionScope.getRootNode();
+  }
+
+  @Override
+  public StaticTypedScope<JSType> getParentScope() {
+    return functionScope.getParentScope();
+  }
+
+  @Override
+  public StaticTypedSlot<JSType> getSlot(String name) {
+    // Like the function scope, a flow scope has no slot for a null name.
+    StaticTypedSlot<JSType> slot = name == null ? null : slots.get(name);
+    return slot != null ? slot : functionScope.getSlot(name);
+  }
+
+  @Override
+  public StaticTypedSlot<JSType> getOwnSlot(String name) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public FlowScope createChildFlowScope() {
+    frozen = true;
+    return new PersistentFlowScope(functionScope, slots);
+  }
+
+  /**
+   * Returns the only slot defined between the blind scope and this scope, or
+   * null if there are none or several.
+   */
+  @Override
+  public StaticTypedSlot<JSType> findUniqueRefinedSlot(FlowScope blindScope) {
+    List<String> refined = new ArrayList<>();
+    slots.addChangedKeys(((PersistentFlowScope) blindScope).slots, refined);
+    return refined.size() == 1 ? slots.get(refined.get(0)) : null;
+  }
+
+  /**
+   * Look through the given scope, and try to find slots where it doesn't
+   * have enough type information. Then fill in that type information
+   * with stuff that we've inferred in the local flow.
+   */
+  @Override
+  public void completeScope(StaticTypedScope<JSType> staticScope) {
+    TypedScope scope = (TypedScope) staticScope;
+    for (Iterator<TypedVar> it = scope.getVars(); it.hasNext();) {
+      TypedVar var = it.next();
+      if (var.isTypeInferred()) {
+        JSType type = var.getType();
+        if (type == null || type.isUnknownType()) {
+          JSType flowType = getSlot(var.getName()).getType();
+          var.setType(flowType);
+        }
+      }
+    }
+  }
+
+  /** The scopes don't chain, so there is nothing to optimize. */
+  @Override
+  public PersistentFlowScope optimize() {
+    return this;
+  }
+
+  /** Join the two FlowScopes. */
+  static class FlowScopeJoinOp extends JoinOp.BinaryJoinOp<FlowScope> {
+    @Override
+    public FlowScope apply(FlowScope a, FlowScope b) {
+      PersistentFlowScope scopeA = (PersistentFlowScope) a;
+      PersistentFlowScope scopeB = (PersistentFlowScope) b;
+      scopeA.frozen = true;
+      scopeB.frozen = true;
+      if (scopeA.slots == scopeB.slots
+          && scopeA.functionScope == scopeB.functionScope) {
+        return scopeA.createChildFlowScope();
+      }
+
+      // Always prefer the "real" function scope to the faked-out
+      // bottom scope.
+      TypedScope functionScope = scopeA.flowsFromBottom()
+          ? scopeB.functionScope : scopeA.functionScope;
+
+      // The symbols that are the same in both scopes keep their slot. The
+      // others are joined as in LinkedFlowScope, with the type in the
+      // function scope when only one of the flows defines the symbol.
+      List<String> changed = new ArrayList<>();
+      scopeA.slots.addChangedKeys(scopeB.slots, changed);
+      PersistentMap.Builder<String, StaticTypedSlot<JSType>> joined =
+          scopeA.slots.toBuilder();
+      for (String name : changed) {
+        StaticTypedSlot<JSType> slotA = scopeA.slots.get(name);
+        StaticTypedSlot<JSType> slotB = scopeB.slots.get(name);
+
+        JSType joinedType = null;
+        if (slotB == null || slotB.getType() == null) {
+          StaticTypedSlot<JSType> fnSlot =
+              scopeB.functionScope.getSlot(name);
+          JSType fnSlotType = fnSlot == null ? null : fnSlot.getType();
+          if (fnSlotType != null) {
+            joinedType = join(slotA.getType(), fnSlotType);
+          }
+        } else if (slotA == null || slotA.getType() == null) {
+          StaticTypedSlot<JSType> fnSlot =
+              scopeA.functionScope.getSlot(name);
+          JSType fnSlotType = fnSlot == null ? null : fnSlot.getType();
+          if (fnSlotType == null) {
+            joined.put(name, slotB);
+          } else {
+            joinedType = join(slotB.getType(), fnSlotType);
+          }
+        } else {
+          joinedType = join(slotA.getType(), slotB.getType());
+        }
+
+        // Keep the slot of either side when the join doesn't change its
+        // type, so that the joined trie shares more with both.
+        if (joinedType == null
+            || slotA != null && joinedType == slotA.getType()) {
+          continue;
+        } else if (slotB != null && joinedType == slotB.getType()) {
+          joined.put(name, slotB);
+        } else {
+          joined.put(name, new SimpleSlot(name, joinedType, true));
+        }
+      }
+      return new PersistentFlowScope(functionScope, joined.build());
+    }
+
+    private static JSType join(JSType typeA, JSType typeB) {
+      return typeA == typeB ? typeA : typeA.getLeastSupertype(typeB);
+    }
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof PersistentFlowScope)) {
+      return false;
+    }
+    PersistentFlowScope that = (PersistentFlowScope) other;
+    if (this.functionScope != that.functionScope) {
+      return false;
+    }
+    List<String> changed = new ArrayList<>();
+    this.slots.addChangedKeys(that.slots, changed);
+    for (String name : changed) {
+      if (diffSlots(this.slots.get(name), that.slots.get(name))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Determines whether two slots are meaningfully different for the
+   * purposes of data flow analysis.
+   */
+  private static boolean diffSlots(StaticTypedSlot<JSType> slotA,
+                                   StaticTypedSlot<JSType> slotB) {
+    boolean aIsNull = slotA == null || slotA.getType() == null;
+    boolean bIsNull = slotB == null || slotB.getType() == null;
+    if (aIsNull && bIsNull) {
+      return false;
+    } else if (aIsNull ^ bIsNull) {
+      return true;
+    }
+
+    // Both slots and types must be non-null.
+    return slotA.getType().differsFrom(slotB.getType());
+  }
+
+  @Override
+  public int hashCode() {
+    throw new UnsupportedOperationException();
+  }
+}
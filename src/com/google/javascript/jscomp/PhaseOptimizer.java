@@ -23,11 +23,15 @@ import com.google.javascript.rhino.Node;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -75,6 +79,20 @@ class PhaseOptimizer implements CompilerPass {
 	private Node lastAst;
 	private Map<Node, Node> mtoc; // Stands for "main to clone"
 
+	// Measures the code size for per-pass profiling, reprinting only the
+	// scopes that changed since the last measurement. Null when neither the
+	// profiling output nor the tracker needs code sizes.
+	private final CodeSizeEstimator sizeEstimator;
+
+	// Shares the control flow graphs of the functions that didn't change
+	// between the passes. Null when the passes aren't running, since the
+	// changes made then aren't tracked.
+	private ControlFlowGraphCache cfgCache;
+
+	// Schedules the loopable passes from the profile of previous compilations,
+	// or null to use OPTIMAL_ORDER.
+	private PassSchedule passSchedule;
+
 	/**
 	 * When processing loopable passes in order, the PhaseOptimizer can be in
 	 * one of these two states.
@@ -116,6 +134,8 @@ class PhaseOptimizer implements CompilerPass {
 		this.inLoop = false;
 		this.crossScopeReporting = false;
 		this.timestamp = this.lastChange = START_TIME;
+		boolean tracksSize = tracker != null && tracker.tracksSize();
+		this.sizeEstimator = (comp.ResultFile != null || tracksSize) ? new CodeSizeEstimator(jsRoot) : null;
 	}
 
 	/**
@@ -188,6 +208,14 @@ class PhaseOptimizer implements CompilerPass {
 		}
 	}
 
+	/**
+	 * Sets the profile that orders and skips the loopable passes, and limits
+	 * the time of the loops. See {@link PassSchedule}.
+	 */
+	void setPassSchedule(PassSchedule passSchedule) {
+		this.passSchedule = passSchedule;
+	}
+
 	/**
 	 * Sets the hashcode of the AST to be logged every pass. Intended for
 	 * development.
@@ -207,36 +235,75 @@ class PhaseOptimizer implements CompilerPass {
 			progressStep = (progressRange.maxValue - progressRange.initialValue) / passes.size();
 			progress = progressRange.initialValue;
 		}
-		for (CompilerPass pass : passes) {
-
-			// ilyushin
-			int sizeBefore = this.compiler.toSource(this.jsRoot).length();
-			long startTime = System.currentTimeMillis();
-			// ilyushin
-
-			pass.process(externs, root);
-			
-			// ilyushin
-			long stopTime = System.currentTimeMillis();
-			long elapsedTime = stopTime - startTime;
-
-			if (!pass.toString().contains("com.google.javascript.jscomp.PhaseOptimizer$Loop@")) {
-				try {
-					this.compiler.ResultFile
-							.append(this.compiler.NameSourceFile + "," + pass.toString().replace("pass: ", "") + ","
-									+ String.valueOf(elapsedTime) + "," + String.valueOf(sizeBefore) + ","
-									+ String.valueOf(this.compiler.toSource(this.jsRoot).length()));
-					this.compiler.ResultFile.append("\n");
-				} catch (IOException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
+		cfgCache = new ControlFlowGraphCache();
+		CodeChangeHandler unscopedChangeHandler = new UnscopedChangeHandler();
+		compiler.addChangeHandler(unscopedChangeHandler);
+		try {
+			for (CompilerPass pass : passes) {
+				if (pass instanceof Loop || compiler.ResultFile == null) {
+					pass.process(externs, root);
+				} else {
+					// ilyushin
+					int sizeBefore = estimateCodeSize();
+					long startTime = System.currentTimeMillis();
+
+					pass.process(externs, root);
+
+					long elapsedTime = System.currentTimeMillis() - startTime;
+					recordPassProfile(pass, elapsedTime, sizeBefore, null);
+					// ilyushin
 				}
-			}
-			// ilyushin
 
-			if (hasHaltingErrors()) {
-				return;
+				if (hasHaltingErrors()) {
+					return;
+				}
 			}
+		} finally {
+			compiler.removeChangeHandler(unscopedChangeHandler);
+			logger.fine("Control flow graphs reused: " + cfgCache.getHits() + ", built: " + cfgCache.getMisses());
+			cfgCache = null;
+		}
+	}
+
+	/**
+	 * Returns the control flow graph of a scope. While the passes run, the
+	 * graph of a function is shared with the other passes until the function
+	 * changes, see {@link ControlFlowGraphCache}.
+	 */
+	ControlFlowGraph<Node> getControlFlowGraph(Node root) {
+		ControlFlowGraphCache cache = cfgCache;
+		return cache == null ? ControlFlowGraphCache.build(compiler, root) : cache.get(compiler, root, timestamp);
+	}
+
+	@VisibleForTesting
+	ControlFlowGraphCache getControlFlowGraphCache() {
+		return cfgCache;
+	}
+
+	/**
+	 * Returns the estimated size of the code, see {@link CodeSizeEstimator}.
+	 * Only the scopes whose change time moved past the previous measurement
+	 * are printed again.
+	 */
+	private int estimateCodeSize() {
+		return sizeEstimator.estimateSize(timestamp);
+	}
+
+	/**
+	 * Appends the running time of a pass and the code size before and after it
+	 * to the profiling output of the compiler.
+	 *
+	 * @param loop
+	 *            the loop running the pass, or null for one-time passes
+	 */
+	private void recordPassProfile(CompilerPass pass, long elapsedTime, int sizeBefore, Loop loop) {
+		try {
+			compiler.ResultFile.append(compiler.NameSourceFile + "," + pass.toString().replace("pass: ", "") + ","
+					+ String.valueOf(elapsedTime) + "," + String.valueOf(sizeBefore) + ","
+					+ String.valueOf(estimateCodeSize()) + (loop == null ? "" : "," + loop.toString()));
+			compiler.ResultFile.append("\n");
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Could not record the profile of " + pass, e);
 		}
 	}
 
@@ -304,6 +371,11 @@ class PhaseOptimizer implements CompilerPass {
 			// Some precondition checks rely on this, eg, in
 			// CoalesceVariableNames.
 			factory.create(compiler).process(externs, root);
+			if (!inLoop) {
+				// The control flow graphs built by a one-time pass can be
+				// reused by the next passes, see ControlFlowGraphCache.
+				timestamp++;
+			}
 
 			compiler.afterPass(name);
 
@@ -321,7 +393,11 @@ class PhaseOptimizer implements CompilerPass {
 				// Otherwise, Tracer.ThreadTrace#events can become too big.
 				long traceRuntime = tracer.stop();
 				if (tracker != null) {
-					tracker.recordPassStop(name, traceRuntime);
+					if (sizeEstimator != null && tracker.tracksSize()) {
+						tracker.recordPassStop(name, traceRuntime, estimateCodeSize());
+					} else {
+						tracker.recordPassStop(name, traceRuntime);
+					}
 				}
 				maybePrintAstHashcodes(name, root);
 				maybeSanityCheck(externs, root);
@@ -422,6 +498,26 @@ class PhaseOptimizer implements CompilerPass {
 		}
 	}
 
+	/**
+	 * Forgets the cached code sizes and control flow graphs when a pass reports
+	 * a change that can't be attributed to a function scope. Outside of loops, only the changes
+	 * reported through reportChangeToEnclosingScope update change times. Inside
+	 * loops, whole-program passes such as optimizeCalls report their changes
+	 * while the current scope is the global one, even though they may have
+	 * changed any function.
+	 */
+	private class UnscopedChangeHandler implements CodeChangeHandler {
+		@Override
+		public void reportChange() {
+			if (!crossScopeReporting && (!inLoop || currentScope == jsRoot)) {
+				if (sizeEstimator != null) {
+					sizeEstimator.invalidate();
+				}
+				cfgCache.invalidate();
+			}
+		}
+	}
+
 	/**
 	 * A compound pass that contains atomic passes and runs them until they
 	 * reach a fixed point.
@@ -466,6 +562,8 @@ class PhaseOptimizer implements CompilerPass {
 			State state = State.RUN_PASSES_NOT_RUN_IN_PREV_ITER;
 			boolean lastIterMadeChanges;
 			int count = 0;
+			long timeBudget = passSchedule == null ? 0 : passSchedule.getLoopTimeBudgetMillis();
+			long loopStartTime = System.currentTimeMillis();
 
 			try {
 				while (true) {
@@ -480,28 +578,19 @@ class PhaseOptimizer implements CompilerPass {
 							timestamp++;
 							currentPass = pass;
 
-							// ilyushin
-							int sizeBefore = compiler.toSource(jsRoot).length();
-							long startTime = System.currentTimeMillis();
-							// ilyushin
-							
-							pass.process(externs, root);
-							
-							// ilyushin
-							long stopTime = System.currentTimeMillis();
-							long elapsedTime = stopTime - startTime;
-
-							try {
-								compiler.ResultFile.append(compiler.NameSourceFile + "," 
-										+ pass.toString().replace("pass: ", "") + "," + String.valueOf(elapsedTime)
-										+ "," + String.valueOf(sizeBefore) + ","
-										+ String.valueOf(compiler.toSource(jsRoot).length())+ ","+ this.toString());
-								compiler.ResultFile.append("\n");
-							} catch (IOException e) {
-								// TODO Auto-generated catch block
-								e.printStackTrace();
+							if (compiler.ResultFile == null) {
+								pass.process(externs, root);
+							} else {
+								// ilyushin
+								int sizeBefore = estimateCodeSize();
+								long startTime = System.currentTimeMillis();
+
+								pass.process(externs, root);
+
+								long elapsedTime = System.currentTimeMillis() - startTime;
+								recordPassProfile(pass, elapsedTime, sizeBefore, this);
+								// ilyushin
 							}
-							// ilyushin
 
 							runInPrevIter.add(pass);
 							lastRuns.put(pass, timestamp);
@@ -518,6 +607,14 @@ class PhaseOptimizer implements CompilerPass {
 						}
 					}
 
+					if (timeBudget > 0 && lastIterMadeChanges
+							&& System.currentTimeMillis() - loopStartTime >= timeBudget) {
+						// The passes keep the semantics, the code is only
+						// bigger than at the fixed point.
+						logger.fine("Loop stopped by the time budget after " + count + " iterations");
+						return;
+					}
+
 					if (state == State.RUN_PASSES_NOT_RUN_IN_PREV_ITER) {
 						if (lastIterMadeChanges) {
 							state = State.RUN_PASSES_THAT_CHANGED_STH_IN_PREV_ITER;
@@ -558,6 +655,25 @@ class PhaseOptimizer implements CompilerPass {
 
 			myPasses.removeAll(optimalPasses);
 			myPasses.addAll(optimalPasses);
+
+			if (passSchedule != null) {
+				Iterator<NamedPass> it = myPasses.iterator();
+				while (it.hasNext()) {
+					NamedPass pass = it.next();
+					if (passSchedule.shouldSkip(pass.name)) {
+						logger.fine("Skipping " + pass.name + " from the pass schedule");
+						it.remove();
+					}
+				}
+				// The sort is stable, so the order stays deterministic.
+				final Comparator<String> order = passSchedule.getLoopOrder();
+				Collections.sort(myPasses, new Comparator<NamedPass>() {
+					@Override
+					public int compare(NamedPass pass1, NamedPass pass2) {
+						return order.compare(pass1.name, pass2.name);
+					}
+				});
+			}
 		}
 	}
 
@@ -84,6 +84,7 @@ class TypeInference
   private final FlowScope functionScope;
   private final FlowScope bottomScope;
   private final Map<String, AssertionFunctionSpec> assertionFunctionsMap;
+  private final boolean persistentFlowScopes;
 
   // For convenience
   private final ObjectType unknownType;
@@ -92,8 +93,11 @@ class TypeInference
                 ReverseAbstractInterpreter reverseInterpreter,
                 TypedScope functionScope,
                 Map<String, AssertionFunctionSpec> assertionFunctionsMap) {
-    super(cfg, new LinkedFlowScope.FlowScopeJoinOp());
+    super(cfg, usePersistentFlowScopes(compiler)
+        ? new PersistentFlowScope.FlowScopeJoinOp()
+        : new LinkedFlowScope.FlowScopeJoinOp());
     this.compiler = compiler;
+    this.persistentFlowScopes = usePersistentFlowScopes(compiler);
     this.registry = compiler.getTypeRegistry();
     this.reverseInterpreter = reverseInterpreter;
     this.unknownType = registry.getNativeObjectType(UNKNOWN_TYPE);
@@ -101,7 +105,7 @@ class TypeInference
     this.syntacticScope = functionScope;
     inferArguments(functionScope);
 
-    this.functionScope = LinkedFlowScope.createEntryLattice(functionScope);
+    this.functionScope = createEntryLattice(functionScope);
     this.assertionFunctionsMap = assertionFunctionsMap;
 
     // For each local variable declared with the VAR keyword, the entry
@@ -118,10 +122,21 @@ class TypeInference
           var.getName(), getNativeType(VOID_TYPE));
     }
 
-    this.bottomScope = LinkedFlowScope.createEntryLattice(
+    this.bottomScope = createEntryLattice(
         TypedScope.createLatticeBottom(functionScope.getRootNode()));
   }
 
+  private static boolean usePersistentFlowScopes(AbstractCompiler compiler) {
+    return compiler.getOptions() != null
+        && compiler.getOptions().getPersistentFlowScopes();
+  }
+
+  private FlowScope createEntryLattice(TypedScope scope) {
+    return persistentFlowScopes
+        ? PersistentFlowScope.createEntryLattice(scope)
+        : LinkedFlowScope.createEntryLattice(scope);
+  }
+
   /**
    * Infers all of a function's arguments if their types aren't declared.
    */
@@ -42,10 +42,11 @@ import com.google.javascript.rhino.jstype.TemplateTypeMapReplacer;
 import com.google.javascript.rhino.jstype.UnknownType;
 
 import java.text.MessageFormat;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Objects;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -70,10 +71,14 @@ class TypeValidator {
   // TODO(nicksantos): Provide accessors to better filter the list of type
   // mismatches. For example, if we pass (Cake|null) where only Cake is
   // allowed, that doesn't mean we should invalidate all Cakes.
-  private final List<TypeMismatch> mismatches = new ArrayList<>();
+  // The mismatches are deduplicated by their pair of types, and keep the
+  // error of the first one.
+  private final Set<TypeMismatch> mismatches = new LinkedHashSet<>();
   // the detection logic of this one is similar to this.mismatches
-  private final List<TypeMismatch> implicitStructuralInterfaceUses =
-      new ArrayList<>();
+  private final Set<TypeMismatch> implicitStructuralInterfaceUses =
+      new LinkedHashSet<>();
+  // Whether the warnings guards let the errors of a diagnostic type through.
+  private final Map<DiagnosticType, Boolean> reportedTypes = new HashMap<>();
 
   // User warnings
   private static final String FOUND_REQUIRED =
@@ -545,8 +550,10 @@ class TypeValidator {
    */
   void expectCanCast(NodeTraversal t, Node n, JSType castType, JSType type) {
     if (!type.canCastTo(castType)) {
-      registerMismatch(type, castType, report(t.makeError(n, INVALID_CAST,
-          type.toString(), castType.toString())));
+      registerMismatch(type, castType, reports(INVALID_CAST)
+          ? report(t.makeError(n, INVALID_CAST,
+              type.toString(), castType.toString()))
+          : t.makeError(n, INVALID_CAST));
     } else if (!type.isSubtypeWithoutStructuralTyping(castType)){
       recordStructuralInterfaceUses(type, castType);
     }
@@ -741,9 +748,12 @@ class TypeValidator {
   }
 
   private void mismatch(Node n, String msg, JSType found, JSType required) {
-    registerMismatch(found, required, report(
-        JSError.make(n, TYPE_MISMATCH_WARNING,
-                     formatFoundRequired(msg, found, required))));
+    // The types are only formatted if the warning is reported. Otherwise,
+    // the error only gives the location of the mismatch.
+    registerMismatch(found, required, reports(TYPE_MISMATCH_WARNING)
+        ? report(JSError.make(n, TYPE_MISMATCH_WARNING,
+                              formatFoundRequired(msg, found, required)))
+        : JSError.make(n, TYPE_MISMATCH_WARNING, msg));
   }
 
   private void recordStructuralInterfaceUses(JSType found, JSType required) {
@@ -772,7 +782,10 @@ class TypeValidator {
       return;
     }
 
-    mismatches.add(new TypeMismatch(found, required, error));
+    if (!mismatches.add(new TypeMismatch(found, required, error))) {
+      // The mismatches of the parameter and return types are known too.
+      return;
+    }
 
     if (found.isFunctionType() &&
         required.isFunctionType()) {
@@ -838,6 +851,20 @@ class TypeValidator {
     return error;
   }
 
+  /**
+   * Returns false if the warnings guards disable the given diagnostic type,
+   * in which case its errors need not be formatted nor reported.
+   */
+  private boolean reports(DiagnosticType type) {
+    Boolean reported = reportedTypes.get(type);
+    if (reported == null) {
+      reported =
+          !compiler.getOptions().disables(DiagnosticGroup.forType(type));
+      reportedTypes.put(type, reported);
+    }
+    return reported;
+  }
+
   /**
    * Signals that the first type and the second type have been
    * used interchangeably.
@@ -873,7 +900,8 @@ class TypeValidator {
     }
 
     @Override public int hashCode() {
-      return Objects.hash(typeA, typeB);
+      // The order of the types is not significant.
+      return typeA.hashCode() + typeB.hashCode();
     }
 
     @Override public String toString() {
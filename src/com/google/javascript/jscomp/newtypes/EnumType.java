@@ -116,12 +116,12 @@ public final class EnumType extends Namespace implements TypeWithProperties {
   @Override
   protected JSType computeJSType(JSTypes commonTypes) {
     Preconditions.checkState(enumPropType != null);
-    PersistentMap<String, Property> propMap = otherProps;
+    PersistentMap.Builder<String, Property> propMap = otherProps.toBuilder();
     for (String s : props) {
-      propMap = propMap.with(s,
-          Property.makeConstant(null, enumPropType, enumPropType));
+      propMap.put(s, Property.makeConstant(null, enumPropType, enumPropType));
     }
-    ObjectType obj = ObjectType.makeObjectType(null, propMap, null, false, ObjectKind.UNRESTRICTED);
+    ObjectType obj = ObjectType.makeObjectType(
+        null, propMap.build(), null, false, ObjectKind.UNRESTRICTED);
     return withNamedTypes(commonTypes, obj);
   }
 
@@ -0,0 +1,671 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.newtypes;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A persistent map that is a hash array mapped trie, as in Clojure.
+ * <p>
+ * Each level of the trie takes five more bits of the hash of the keys. A
+ * node holds the entries and the deeper nodes of the bits that are present,
+ * so an update copies the nodes on the path to its key and shares the rest
+ * of the trie. The keys whose hashes are equal go to a collision node.
+ * <p>
+ * A {@link Builder} changes in place the nodes that it created itself, which
+ * it knows by their edit token, and copies the others. Once it has built a
+ * map, it takes a new token, so that the map never changes.
+ * <p>
+ * The maps made from a common map share the nodes that neither changed, so
+ * {@link #addChangedKeys} compares them by walking the two tries together
+ * and skipping the nodes that are the same.
+ */
+final class HamtPersistentMap<K, V> extends PersistentMap<K, V> {
+  private static final HamtPersistentMap<Object, Object> EMPTY =
+      new HamtPersistentMap<>(null, 0);
+
+  // What a node finds for a key that it doesn't hold.
+  private static final Object NOT_FOUND = new Object();
+
+  private static final Object[] EMPTY_ARRAY = new Object[0];
+
+  // Null if the map is empty.
+  private final Node root;
+  private final int size;
+
+  private HamtPersistentMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <K, V> HamtPersistentMap<K, V> empty() {
+    return (HamtPersistentMap<K, V>) EMPTY;
+  }
+
+  @Override
+  public PersistentMap<K, V> with(K key, V value) {
+    Preconditions.checkNotNull(key);
+    boolean[] leafChanged = new boolean[1];
+    Node newRoot = (root == null ? BitmapNode.EMPTY : root)
+        .assoc(null, 0, key.hashCode(), key, value, leafChanged);
+    if (newRoot == root) {
+      return this;
+    }
+    return new HamtPersistentMap<>(newRoot, leafChanged[0] ? size + 1 : size);
+  }
+
+  @Override
+  public PersistentMap<K, V> without(K key) {
+    if (root == null) {
+      return this;
+    }
+    boolean[] leafChanged = new boolean[1];
+    Node newRoot = root.without(null, 0, key.hashCode(), key, leafChanged);
+    if (!leafChanged[0]) {
+      return this;
+    }
+    return newRoot == null ? HamtPersistentMap.<K, V>empty()
+        : new HamtPersistentMap<K, V>(newRoot, size - 1);
+  }
+
+  @Override
+  public Builder<K, V> toBuilder() {
+    return new TransientBuilder<>(root, size);
+  }
+
+  @Override
+  public void addChangedKeys(
+      PersistentMap<K, V> other, Collection<? super K> keys) {
+    addChangedKeys(root, ((HamtPersistentMap<K, V>) other).root, keys);
+  }
+
+  /** Adds the keys that differ between two nodes of the same level. */
+  private static <K> void addChangedKeys(
+      Node a, Node b, Collection<? super K> keys) {
+    if (a == b) {
+      return;
+    }
+    if (!(a instanceof BitmapNode && b instanceof BitmapNode)) {
+      List<Object> entriesA = new ArrayList<>();
+      List<Object> entriesB = new ArrayList<>();
+      collectEntries(a, entriesA);
+      collectEntries(b, entriesB);
+      addChangedKeys(entriesA, entriesB, keys);
+      return;
+    }
+    BitmapNode nodeA = (BitmapNode) a;
+    BitmapNode nodeB = (BitmapNode) b;
+    for (int bits = nodeA.bitmap | nodeB.bitmap; bits != 0;
+         bits &= bits - 1) {
+      int bit = Integer.lowestOneBit(bits);
+      int indexA = (nodeA.bitmap & bit) == 0 ? -1 : nodeA.indexOf(bit);
+      int indexB = (nodeB.bitmap & bit) == 0 ? -1 : nodeB.indexOf(bit);
+      if (indexA != -1 && indexB != -1
+          && nodeA.array[indexA] == null && nodeB.array[indexB] == null) {
+        addChangedKeys((Node) nodeA.array[indexA + 1],
+            (Node) nodeB.array[indexB + 1], keys);
+      } else {
+        // An entry against anything: compare the few entries below.
+        List<Object> entriesA = new ArrayList<>();
+        List<Object> entriesB = new ArrayList<>();
+        collectEntries(nodeA.array, indexA, entriesA);
+        collectEntries(nodeB.array, indexB, entriesB);
+        addChangedKeys(entriesA, entriesB, keys);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K> void addChangedKeys(
+      List<Object> entriesA, List<Object> entriesB,
+      Collection<? super K> keys) {
+    for (int i = 0; i < entriesA.size(); i += 2) {
+      int j = indexOfKey(entriesB, entriesA.get(i));
+      if (j == -1 || entriesB.get(j + 1) != entriesA.get(i + 1)) {
+        keys.add((K) entriesA.get(i));
+      }
+    }
+    for (int j = 0; j < entriesB.size(); j += 2) {
+      if (indexOfKey(entriesA, entriesB.get(j)) == -1) {
+        keys.add((K) entriesB.get(j));
+      }
+    }
+  }
+
+  private static int indexOfKey(List<Object> entries, Object key) {
+    for (int i = 0; i < entries.size(); i += 2) {
+      if (key.equals(entries.get(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Adds the keys and values of a node and of the nodes below it to the
+   * list, one after the other.
+   */
+  private static void collectEntries(Node node, List<Object> entries) {
+    if (node != null) {
+      for (int i = 0; i < node.array.length; i += 2) {
+        collectEntries(node.array, i, entries);
+      }
+    }
+  }
+
+  /**
+   * Adds the key and value at the index of the array, or the entries of the
+   * node there, to the list. Nothing is added if the index is -1.
+   */
+  private static void collectEntries(
+      Object[] array, int index, List<Object> entries) {
+    if (index == -1) {
+      return;
+    }
+    if (array[index] == null) {
+      collectEntries((Node) array[index + 1], entries);
+    } else {
+      entries.add(array[index]);
+      entries.add(array[index + 1]);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    Object value = find(root, key);
+    return value == NOT_FOUND ? null : (V) value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return find(root, key) != NOT_FOUND;
+  }
+
+  private static Object find(Node root, Object key) {
+    if (root == null || key == null) {
+      return NOT_FOUND;
+    }
+    return root.find(0, key.hashCode(), key);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return new TrieIterator<Map.Entry<K, V>>(root) {
+          @Override
+          @SuppressWarnings("unchecked")
+          Map.Entry<K, V> get(Object key, Object value) {
+            return new AbstractMap.SimpleImmutableEntry<>((K) key, (V) value);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public Set<K> keySet() {
+    return new AbstractSet<K>() {
+      @Override
+      public Iterator<K> iterator() {
+        return new TrieIterator<K>(root) {
+          @Override
+          @SuppressWarnings("unchecked")
+          K get(Object key, Object value) {
+            return (K) key;
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(Object key) {
+        return containsKey(key);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public Collection<V> values() {
+    return new AbstractCollection<V>() {
+      @Override
+      public Iterator<V> iterator() {
+        return new TrieIterator<V>(root) {
+          @Override
+          @SuppressWarnings("unchecked")
+          V get(Object key, Object value) {
+            return (V) value;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Changes a map in place, as long as it only changes the nodes that it
+   * created. The built maps share their nodes with the builder, which then
+   * copies them like those of any other map.
+   */
+  private static final class TransientBuilder<K, V> implements Builder<K, V> {
+    private Object edit = new Object();
+    private Node root;
+    private int size;
+
+    TransientBuilder(Node root, int size) {
+      this.root = root;
+      this.size = size;
+    }
+
+    @Override
+    public Builder<K, V> put(K key, V value) {
+      Preconditions.checkNotNull(key);
+      boolean[] leafChanged = new boolean[1];
+      root = (root == null ? BitmapNode.EMPTY : root)
+          .assoc(edit, 0, key.hashCode(), key, value, leafChanged);
+      if (leafChanged[0]) {
+        size++;
+      }
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> remove(K key) {
+      if (root != null) {
+        boolean[] leafChanged = new boolean[1];
+        root = root.without(edit, 0, key.hashCode(), key, leafChanged);
+        if (leafChanged[0]) {
+          size--;
+        }
+      }
+      return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+      Object value = find(root, key);
+      return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public PersistentMap<K, V> build() {
+      edit = new Object();
+      return root == null ? HamtPersistentMap.<K, V>empty()
+          : new HamtPersistentMap<K, V>(root, size);
+    }
+  }
+
+  /**
+   * A node of the trie. Its array holds pairs of a key and its value, or of
+   * null and a deeper node.
+   */
+  private abstract static class Node {
+    // The builder that may change this node in place, or null.
+    final Object edit;
+    Object[] array;
+
+    Node(Object edit, Object[] array) {
+      this.edit = edit;
+      this.array = array;
+    }
+
+    /** Returns the value of the key, or NOT_FOUND. */
+    abstract Object find(int shift, int hash, Object key);
+
+    /**
+     * Returns the node with the key mapped to the value, which is this node
+     * if nothing changed. Sets leafChanged if the key is new.
+     */
+    abstract Node assoc(Object edit, int shift, int hash, Object key,
+        Object value, boolean[] leafChanged);
+
+    /**
+     * Returns the node without the key, which is this node if it doesn't
+     * have the key, or null if nothing is left. Sets leafChanged if the key
+     * was removed.
+     */
+    abstract Node without(Object edit, int shift, int hash, Object key,
+        boolean[] leafChanged);
+
+    /** Whether a builder with this edit token may change this node. */
+    boolean isEditable(Object edit) {
+      return edit != null && this.edit == edit;
+    }
+  }
+
+  /** A node with the keys of some of the 32 values of five bits of hash. */
+  private static final class BitmapNode extends Node {
+    static final BitmapNode EMPTY = new BitmapNode(null, 0, EMPTY_ARRAY);
+
+    int bitmap;
+
+    BitmapNode(Object edit, int bitmap, Object[] array) {
+      super(edit, array);
+      this.bitmap = bitmap;
+    }
+
+    private static int bitOf(int hash, int shift) {
+      return 1 << ((hash >>> shift) & 31);
+    }
+
+    private int indexOf(int bit) {
+      return 2 * Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int bit = bitOf(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return NOT_FOUND;
+      }
+      int index = indexOf(bit);
+      Object keyOrNull = array[index];
+      Object valueOrNode = array[index + 1];
+      if (keyOrNull == null) {
+        return ((Node) valueOrNode).find(shift + 5, hash, key);
+      }
+      return key.equals(keyOrNull) ? valueOrNode : NOT_FOUND;
+    }
+
+    @Override
+    Node assoc(Object edit, int shift, int hash, Object key, Object value,
+        boolean[] leafChanged) {
+      int bit = bitOf(hash, shift);
+      int index = indexOf(bit);
+      if ((bitmap & bit) == 0) {
+        leafChanged[0] = true;
+        Object[] newArray = new Object[array.length + 2];
+        System.arraycopy(array, 0, newArray, 0, index);
+        newArray[index] = key;
+        newArray[index + 1] = value;
+        System.arraycopy(
+            array, index, newArray, index + 2, array.length - index);
+        if (isEditable(edit)) {
+          bitmap |= bit;
+          array = newArray;
+          return this;
+        }
+        return new BitmapNode(edit, bitmap | bit, newArray);
+      }
+      Object keyOrNull = array[index];
+      Object valueOrNode = array[index + 1];
+      if (keyOrNull == null) {
+        Node node = ((Node) valueOrNode).assoc(
+            edit, shift + 5, hash, key, value, leafChanged);
+        return node == valueOrNode ? this : set(edit, index, null, node);
+      }
+      if (key.equals(keyOrNull)) {
+        return value == valueOrNode ? this : set(edit, index, key, value);
+      }
+      leafChanged[0] = true;
+      return set(edit, index, null, createNode(edit, shift + 5,
+          keyOrNull, valueOrNode, hash, key, value));
+    }
+
+    @Override
+    Node without(Object edit, int shift, int hash, Object key,
+        boolean[] leafChanged) {
+      int bit = bitOf(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int index = indexOf(bit);
+      Object keyOrNull = array[index];
+      Object valueOrNode = array[index + 1];
+      if (keyOrNull == null) {
+        Node node = ((Node) valueOrNode).without(
+            edit, shift + 5, hash, key, leafChanged);
+        if (node == valueOrNode) {
+          return this;
+        } else if (node != null) {
+          return set(edit, index, null, node);
+        }
+      } else if (!key.equals(keyOrNull)) {
+        return this;
+      } else {
+        leafChanged[0] = true;
+      }
+      if (bitmap == bit) {
+        return null;
+      }
+      Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      System.arraycopy(
+          array, index + 2, newArray, index, array.length - index - 2);
+      if (isEditable(edit)) {
+        bitmap ^= bit;
+        array = newArray;
+        return this;
+      }
+      return new BitmapNode(edit, bitmap ^ bit, newArray);
+    }
+
+    private BitmapNode set(
+        Object edit, int index, Object keyOrNull, Object valueOrNode) {
+      BitmapNode node = isEditable(edit)
+          ? this : new BitmapNode(edit, bitmap, array.clone());
+      node.array[index] = keyOrNull;
+      node.array[index + 1] = valueOrNode;
+      return node;
+    }
+
+    /** Makes the node of two keys whose hashes agree up to the shift. */
+    private static Node createNode(Object edit, int shift, Object key1,
+        Object value1, int hash2, Object key2, Object value2) {
+      int hash1 = key1.hashCode();
+      if (hash1 == hash2) {
+        return new CollisionNode(
+            edit, hash1, new Object[] {key1, value1, key2, value2});
+      }
+      boolean[] leafChanged = new boolean[1];
+      return new BitmapNode(edit, 0, EMPTY_ARRAY)
+          .assoc(edit, shift, hash1, key1, value1, leafChanged)
+          .assoc(edit, shift, hash2, key2, value2, leafChanged);
+    }
+  }
+
+  /** The keys whose hashes are equal, in no order. */
+  private static final class CollisionNode extends Node {
+    final int hash;
+
+    CollisionNode(Object edit, int hash, Object[] array) {
+      super(edit, array);
+      this.hash = hash;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int index = indexOf(key);
+      return index == -1 ? NOT_FOUND : array[index + 1];
+    }
+
+    @Override
+    Node assoc(Object edit, int shift, int hash, Object key, Object value,
+        boolean[] leafChanged) {
+      if (hash != this.hash) {
+        // Nest this node in a node that tells the two hashes apart.
+        return new BitmapNode(edit, 1 << ((this.hash >>> shift) & 31),
+            new Object[] {null, this})
+            .assoc(edit, shift, hash, key, value, leafChanged);
+      }
+      int index = indexOf(key);
+      Object[] newArray;
+      if (index != -1) {
+        if (array[index + 1] == value) {
+          return this;
+        }
+        newArray = array.clone();
+        newArray[index + 1] = value;
+      } else {
+        leafChanged[0] = true;
+        newArray = new Object[array.length + 2];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        newArray[array.length] = key;
+        newArray[array.length + 1] = value;
+      }
+      if (isEditable(edit)) {
+        array = newArray;
+        return this;
+      }
+      return new CollisionNode(edit, hash, newArray);
+    }
+
+    @Override
+    Node without(Object edit, int shift, int hash, Object key,
+        boolean[] leafChanged) {
+      int index = indexOf(key);
+      if (index == -1) {
+        return this;
+      }
+      leafChanged[0] = true;
+      if (array.length == 2) {
+        return null;
+      }
+      Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      System.arraycopy(
+          array, index + 2, newArray, index, array.length - index - 2);
+      if (isEditable(edit)) {
+        array = newArray;
+        return this;
+      }
+      return new CollisionNode(edit, hash, newArray);
+    }
+  }
+
+  /**
+   * Walks the trie depth first, with the arrays of the path in a stack. The
+   * key and value iterators don't allocate entries.
+   */
+  private abstract static class TrieIterator<T> implements Iterator<T> {
+    // Most maps have one or two levels. The stack grows to the seven levels
+    // of bitmap nodes and a collision node.
+    private Object[][] arrays = new Object[2][];
+    private int[] positions = new int[2];
+    private int depth = -1;
+    // Null at the end.
+    private Object nextKey;
+    private Object nextValue;
+
+    TrieIterator(Node root) {
+      if (root != null) {
+        push(root);
+      }
+      advance();
+    }
+
+    abstract T get(Object key, Object value);
+
+    private void push(Node node) {
+      depth++;
+      if (depth == arrays.length) {
+        arrays = Arrays.copyOf(arrays, 8);
+        positions = Arrays.copyOf(positions, 8);
+      }
+      arrays[depth] = node.array;
+      positions[depth] = 0;
+    }
+
+    private void advance() {
+      nextKey = null;
+      while (depth >= 0) {
+        Object[] array = arrays[depth];
+        int position = positions[depth];
+        if (position == array.length) {
+          depth--;
+          continue;
+        }
+        positions[depth] = position + 2;
+        if (array[position] == null) {
+          push((Node) array[position + 1]);
+        } else {
+          nextKey = array[position];
+          nextValue = array[position + 1];
+          return;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextKey != null;
+    }
+
+    @Override
+    public T next() {
+      if (nextKey == null) {
+        throw new NoSuchElementException();
+      }
+      T result = get(nextKey, nextValue);
+      advance();
+      return result;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.newtypes;
+
+import java.util.Iterator;
+
+/**
+ * A persistent set that is the key set of a {@link HamtPersistentMap}.
+ */
+final class HamtPersistentSet<K> extends PersistentSet<K> {
+  private static final HamtPersistentSet<Object> EMPTY =
+      new HamtPersistentSet<>(HamtPersistentMap.<Object, Boolean>empty());
+
+  private final PersistentMap<K, Boolean> map;
+
+  private HamtPersistentSet(PersistentMap<K, Boolean> map) {
+    this.map = map;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <K> HamtPersistentSet<K> empty() {
+    return (HamtPersistentSet<K>) EMPTY;
+  }
+
+  private static <K> HamtPersistentSet<K> of(PersistentMap<K, Boolean> map) {
+    return map.isEmpty()
+        ? HamtPersistentSet.<K>empty() : new HamtPersistentSet<>(map);
+  }
+
+  @Override
+  public PersistentSet<K> with(K key) {
+    PersistentMap<K, Boolean> newMap = map.with(key, Boolean.TRUE);
+    return newMap == map ? this : new HamtPersistentSet<>(newMap);
+  }
+
+  @Override
+  public PersistentSet<K> without(K key) {
+    PersistentMap<K, Boolean> newMap = map.without(key);
+    return newMap == map ? this : of(newMap);
+  }
+
+  @Override
+  public Builder<K> toBuilder() {
+    final PersistentMap.Builder<K, Boolean> builder = map.toBuilder();
+    return new Builder<K>() {
+      @Override
+      public Builder<K> add(K key) {
+        builder.put(key, Boolean.TRUE);
+        return this;
+      }
+
+      @Override
+      public Builder<K> remove(K key) {
+        builder.remove(key);
+        return this;
+      }
+
+      @Override
+      public PersistentSet<K> build() {
+        return of(builder.build());
+      }
+    };
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    return map.containsKey(key);
+  }
+
+  @Override
+  public Iterator<K> iterator() {
+    return map.keySet().iterator();
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+}
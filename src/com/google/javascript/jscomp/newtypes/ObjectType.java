@@ -112,17 +112,17 @@ final class ObjectType implements TypeWithProperties {
 
   /** Construct an object with the given declared non-optional properties. */
   static ObjectType fromProperties(Map<String, JSType> propTypes) {
-    PersistentMap<String, Property> props = PersistentMap.create();
+    PersistentMap.Builder<String, Property> props = PersistentMap.builder();
     for (Map.Entry<String, JSType> propTypeEntry : propTypes.entrySet()) {
       String propName = propTypeEntry.getKey();
       JSType propType = propTypeEntry.getValue();
       if (propType.isBottom()) {
         return BOTTOM_OBJECT;
       }
-      props = props.with(propName, Property.make(propType, propType));
+      props.put(propName, Property.make(propType, propType));
     }
     return new ObjectType(
-        null, props, null, false, ObjectKind.UNRESTRICTED);
+        null, props.build(), null, false, ObjectKind.UNRESTRICTED);
   }
 
   static void setObjectType(NominalType builtinObject) {
@@ -201,16 +201,16 @@ final class ObjectType implements TypeWithProperties {
       return this;
     }
     FunctionType fn = this.fn == null ? null : this.fn.withLoose();
-    PersistentMap<String, Property> newProps = PersistentMap.create();
+    PersistentMap.Builder<String, Property> newProps = PersistentMap.builder();
     for (Map.Entry<String, Property> propsEntry : this.props.entrySet()) {
       String pname = propsEntry.getKey();
       Property prop = propsEntry.getValue();
       // It's wrong to warn about a possibly absent property on loose objects.
-      newProps = newProps.with(pname, prop.withRequired());
+      newProps.put(pname, prop.withRequired());
     }
     // No need to call makeObjectType; we know that the new object is inhabitable.
     return new ObjectType(
-        nominalType, newProps, fn, true, this.objectKind);
+        nominalType, newProps.build(), fn, true, this.objectKind);
   }
 
   ObjectType withFunction(FunctionType ft, NominalType fnNominal) {
@@ -412,7 +412,7 @@ final class ObjectType implements TypeWithProperties {
   private static PersistentMap<String, Property> joinProps(
       Map<String, Property> props1, Map<String, Property> props2,
       NominalType nom1, NominalType nom2) {
-    PersistentMap<String, Property> newProps = PersistentMap.create();
+    PersistentMap.Builder<String, Property> newProps = PersistentMap.builder();
     for (String pname : Sets.union(props1.keySet(), props2.keySet())) {
       Property prop1 = getProp(props1, nom1, pname);
       Property prop2 = getProp(props2, nom2, pname);
@@ -424,9 +424,9 @@ final class ObjectType implements TypeWithProperties {
       } else {
         newProp = Property.join(prop1, prop2);
       }
-      newProps = newProps.with(pname, newProp);
+      newProps.put(pname, newProp);
     }
-    return newProps;
+    return newProps.build();
   }
 
   private static PersistentMap<String, Property> joinPropsLoosely(
@@ -844,7 +844,7 @@ final class ObjectType implements TypeWithProperties {
         return null;
       }
     }
-    PersistentMap<String, Property> newProps = PersistentMap.create();
+    PersistentMap.Builder<String, Property> newProps = PersistentMap.builder();
     for (String propName : t1.props.keySet()) {
       Property prop1 = t1.props.get(propName);
       Property prop2 = t2.props.get(propName);
@@ -855,9 +855,9 @@ final class ObjectType implements TypeWithProperties {
       if (p == null) {
         return null;
       }
-      newProps = newProps.with(propName, p);
+      newProps.put(propName, p);
     }
-    return makeObjectType(t1.nominalType, newProps, newFn,
+    return makeObjectType(t1.nominalType, newProps.build(), newFn,
         t1.isLoose || t2.isLoose,
         ObjectKind.join(t1.objectKind, t2.objectKind));
   }
@@ -898,17 +898,17 @@ final class ObjectType implements TypeWithProperties {
     if (concreteTypes.isEmpty()) {
       return this;
     }
-    PersistentMap<String, Property> newProps = PersistentMap.create();
+    PersistentMap.Builder<String, Property> newProps = PersistentMap.builder();
     for (Map.Entry<String, Property> propsEntry : this.props.entrySet()) {
       String pname = propsEntry.getKey();
       Property newProp =
           propsEntry.getValue().substituteGenerics(concreteTypes);
-      newProps = newProps.with(pname, newProp);
+      newProps.put(pname, newProp);
     }
     return makeObjectType(
         nominalType == null ? null :
         nominalType.instantiateGenerics(concreteTypes),
-        newProps,
+        newProps.build(),
         fn == null ? null : fn.substituteGenerics(concreteTypes),
         isLoose,
         objectKind);
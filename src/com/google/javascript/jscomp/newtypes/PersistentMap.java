@@ -17,34 +17,51 @@
 package com.google.javascript.jscomp.newtypes;
 
 import java.util.AbstractMap;
-import java.util.Map;
+import java.util.Collection;
 
 /** A persistent map with non-destructive additions and removals  */
-abstract class PersistentMap<K, V> extends AbstractMap<K, V> {
-
-  private static PersistentMap EMPTY;
-  static {
-    try {
-      @SuppressWarnings("unchecked")
-      Class<? extends Map> c =
-          (Class<? extends Map>) Class.forName("clojure.lang.PersistentHashMap");
-      EMPTY = ClojurePersistentHashMap.create(c);
-    } catch (ClassNotFoundException e) {
-      EMPTY = NaivePersistentMap.create();
-    }
+public abstract class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+  /**
+   * Makes many changes to a map without creating the maps in between.
+   * A builder must not be used once it has built its map.
+   */
+  public interface Builder<K, V> {
+    Builder<K, V> put(K key, V value);
+
+    Builder<K, V> remove(K key);
+
+    V get(K key);
+
+    PersistentMap<K, V> build();
   }
 
   public abstract PersistentMap<K, V> with(K key, V value);
 
   public abstract PersistentMap<K, V> without(K key);
 
-  @SuppressWarnings("unchecked")
+  /** Returns a builder that starts from this map. */
+  public abstract Builder<K, V> toBuilder();
+
+  /**
+   * Adds to the collection the keys that this map and the other map don't
+   * map to the same value, including the keys of only one of them. The
+   * values are compared by identity. The parts that the maps share, because
+   * they were made from a common map, are skipped, so the time depends on
+   * the changes since then rather than on the size of the maps.
+   */
+  public abstract void addChangedKeys(
+      PersistentMap<K, V> other, Collection<? super K> keys);
+
   public static <K, V> PersistentMap<K, V> create() {
-    return EMPTY;
+    return HamtPersistentMap.empty();
   }
 
   public static <K, V> PersistentMap<K, V> of(K key, V value) {
     return PersistentMap.<K, V>create().with(key, value);
   }
 
+  public static <K, V> Builder<K, V> builder() {
+    return PersistentMap.<K, V>create().toBuilder();
+  }
 }
@@ -17,31 +17,34 @@
 package com.google.javascript.jscomp.newtypes;
 
 import java.util.AbstractSet;
-import java.util.Set;
 
 /** A persistent set with non-destructive additions and removals */
 abstract class PersistentSet<K> extends AbstractSet<K> {
 
-  private static PersistentSet EMPTY;
-
-  static {
-    try {
-      @SuppressWarnings("unchecked")
-      Class<? extends Set> c =
-          (Class<? extends Set>) Class.forName("clojure.lang.PersistentHashSet");
-      EMPTY = ClojurePersistentHashSet.create(c);
-    } catch (ClassNotFoundException e) {
-      EMPTY = NaivePersistentSet.create();
-    }
+  /**
+   * Makes many changes to a set without creating the sets in between.
+   * A builder must not be used once it has built its set.
+   */
+  interface Builder<K> {
+    Builder<K> add(K key);
+
+    Builder<K> remove(K key);
+
+    PersistentSet<K> build();
   }
 
   public abstract PersistentSet<K> with(K key);
 
   public abstract PersistentSet<K> without(K key);
 
-  @SuppressWarnings("unchecked")
+  /** Returns a builder that starts from this set. */
+  public abstract Builder<K> toBuilder();
+
   public static <K> PersistentSet<K> create() {
-    return EMPTY;
+    return HamtPersistentSet.empty();
   }
 
+  public static <K> Builder<K> builder() {
+    return PersistentSet.<K>create().toBuilder();
+  }
 }
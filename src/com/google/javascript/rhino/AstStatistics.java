@@ -0,0 +1,130 @@
+/*
+ *
+ * ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Rhino code, released
+ * May 6, 1999.
+ *
+ * The Initial Developer of the Original Code is
+ * Netscape Communications Corporation.
+ * Portions created by the Initial Developer are Copyright (C) 1997-1999
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * the GNU General Public License Version 2 or later (the "GPL"), in which
+ * case the provisions of the GPL are applicable instead of those above. If
+ * you wish to allow use of your version of this file only under the terms of
+ * the GPL and not to allow others to use your version of this file under the
+ * MPL, indicate your decision by deleting the provisions above and replacing
+ * them with the notice and other provisions required by the GPL. If you do
+ * not delete the provisions above, a recipient may use your version of this
+ * file under either the MPL or the GPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+
+package com.google.javascript.rhino;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Sets;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Counts the nodes of trees and the objects they hold, to find out what takes
+ * the memory of a compilation: the nodes by token, their properties by type,
+ * the items of their property lists, the JSDoc and the types. The objects
+ * that are shared by several nodes are counted once.
+ */
+public final class AstStatistics {
+  private int nodeCount = 0;
+  private final Map<String, Integer> nodesByToken = new TreeMap<>();
+  private final Map<String, Integer> propsByType = new TreeMap<>();
+  private final Set<Object> propListItems = Sets.newIdentityHashSet();
+  private final Set<JSDocInfo> jsDocInfos = Sets.newIdentityHashSet();
+  private final Set<TypeI> types = Sets.newIdentityHashSet();
+  private final Map<String, Integer> typesByClass = new TreeMap<>();
+
+  /** Adds the nodes of a tree to the counts. */
+  public void add(Node root) {
+    nodeCount++;
+    increment(nodesByToken, Token.name(root.getType()));
+
+    for (int propType : root.getSortedPropTypes()) {
+      increment(propsByType, Node.propToString(propType));
+    }
+    root.addPropListItems(propListItems);
+
+    JSDocInfo info = root.getJSDocInfo();
+    if (info != null) {
+      jsDocInfos.add(info);
+    }
+    TypeI type = root.getTypeI();
+    if (type != null && types.add(type)) {
+      increment(typesByClass, type.getClass().getSimpleName());
+    }
+
+    for (Node child = root.getFirstChild(); child != null;
+         child = child.getNext()) {
+      add(child);
+    }
+  }
+
+  private static void increment(Map<String, Integer> counts, String key) {
+    Integer count = counts.get(key);
+    counts.put(key, count == null ? 1 : count + 1);
+  }
+
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /** Returns the number of nodes of each token, by the name of the token. */
+  public ImmutableSortedMap<String, Integer> getNodeCountsByToken() {
+    return ImmutableSortedMap.copyOf(nodesByToken);
+  }
+
+  /**
+   * Returns the number of nodes that have each property, by the name of the
+   * property.
+   */
+  public ImmutableSortedMap<String, Integer> getPropCountsByType() {
+    return ImmutableSortedMap.copyOf(propsByType);
+  }
+
+  /**
+   * Returns the number of distinct items of the property lists. The nodes
+   * that copy their properties from another node share its items.
+   */
+  public int getPropListItemCount() {
+    return propListItems.size();
+  }
+
+  /** Returns the number of distinct {@link JSDocInfo} objects. */
+  public int getJSDocInfoCount() {
+    return jsDocInfos.size();
+  }
+
+  /** Returns the number of distinct types of the nodes. */
+  public int getTypeCount() {
+    return types.size();
+  }
+
+  /** Returns the number of distinct types, by the name of their class. */
+  public ImmutableSortedMap<String, Integer> getTypeCountsByClass() {
+    return ImmutableSortedMap.copyOf(typesByClass);
+  }
+}
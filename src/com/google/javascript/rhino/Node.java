@@ -143,7 +143,7 @@ public class Node implements Serializable {
       DECR_FLAG = 0x1,
       POST_FLAG = 0x2;
 
-  private static final String propToString(int propType) {
+  static String propToString(int propType) {
       switch (propType) {
         case VAR_ARGS_NAME:      return "var_args_name";
 
@@ -243,7 +243,7 @@ public class Node implements Serializable {
     }
   }
 
-  private static class NumberNode extends Node {
+  static class NumberNode extends Node {
 
     private static final long serialVersionUID = 1L;
 
@@ -290,7 +290,7 @@ public class Node implements Serializable {
     }
   }
 
-  private static class StringNode extends Node {
+  static class StringNode extends Node {
 
     private static final long serialVersionUID = 1L;
 
@@ -992,6 +992,11 @@ public class Node implements Serializable {
     return (TypeDeclarationNode) getProp(DECLARED_TYPE_EXPR);
   }
 
+  /** Whether the property is set and holds an int rather than an object. */
+  boolean isIntProp(int propType) {
+    return lookupProperty(propType) instanceof IntPropListItem;
+  }
+
   PropListItem createProp(int propType, Object value, PropListItem next) {
     return new ObjectPropListItem(propType, value, next);
   }
@@ -1009,7 +1014,7 @@ public class Node implements Serializable {
   }
 
   // Gets all the property types, in sorted order.
-  private int[] getSortedPropTypes() {
+  int[] getSortedPropTypes() {
     int count = 0;
     for (PropListItem x = propListHead; x != null; x = x.getNext()) {
       count++;
@@ -1460,6 +1465,17 @@ public class Node implements Serializable {
     return propListHead;
   }
 
+  /**
+   * Adds the items of the property list of this node to the given set. The
+   * lists of several nodes may share their items.
+   */
+  void addPropListItems(Set<Object> items) {
+    // The items are immutable, so once an item is in the set, so are the
+    // items that follow it.
+    for (PropListItem x = propListHead; x != null && items.add(x);
+         x = x.getNext()) {}
+  }
+
   void setPropListHead(PropListItem propListHead) {
     this.propListHead = propListHead;
   }
@@ -0,0 +1,506 @@
+/*
+ *
+ * ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Rhino code, released
+ * May 6, 1999.
+ *
+ * The Initial Developer of the Original Code is
+ * Netscape Communications Corporation.
+ * Portions created by the Initial Developer are Copyright (C) 1997-1999
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * the GNU General Public License Version 2 or later (the "GPL"), in which
+ * case the provisions of the GPL are applicable instead of those above. If
+ * you wish to allow use of your version of this file only under the terms of
+ * the GPL and not to allow others to use your version of this file under the
+ * MPL, indicate your decision by deleting the provisions above and replacing
+ * them with the notice and other provisions required by the GPL. If you do
+ * not delete the provisions above, a recipient may use your version of this
+ * file under either the MPL or the GPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package com.google.javascript.rhino;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the tree of a source file in a compact binary format, and reads it
+ * back. It is much faster than Java serialization of the nodes, since the
+ * tree is written as a flat sequence of varints, and the strings are only
+ * written once.
+ * <p>
+ * The nodes refer to the source file they were parsed from, which isn't
+ * written: it is replaced by the file given when the tree is read. The
+ * property values that aren't ints, strings, string sets or nodes, like
+ * {@link JSDocInfo}, are written with Java serialization in a single block.
+ * <p>
+ * Only trees without types can be written.
+ */
+public final class NodeSerializer {
+  private static final int MAGIC = 0x4A534153;  // "JSAS"
+  private static final int VERSION = 1;
+
+  // The kinds of nodes.
+  private static final int PLAIN_NODE = 0;
+  private static final int STRING_NODE = 1;
+  private static final int NUMBER_NODE = 2;
+  private static final int TYPE_DECLARATION_NODE = 3;
+  private static final int TYPE_DECLARATION_NODE_WITH_STRING = 4;
+
+  // The kinds of property values.
+  private static final int INT_VALUE = 0;
+  private static final int STRING_VALUE = 1;
+  private static final int NODE_VALUE = 2;
+  private static final int SOURCE_FILE_VALUE = 3;
+  private static final int STRING_SET_VALUE = 4;
+  private static final int SERIALIZED_VALUE = 5;
+
+  private NodeSerializer() {}
+
+  /**
+   * Writes a tree.
+   *
+   * @param sourceFile The file the tree was parsed from. It isn't written.
+   * @throws NotSerializableException if the tree has types or property values
+   *     that can't be written
+   */
+  public static void serialize(
+      Node root, StaticSourceFile sourceFile, OutputStream out)
+      throws IOException {
+    Writer writer = new Writer(sourceFile);
+    writer.writeNode(root);
+
+    Output header = new Output();
+    header.writeFixedInt(MAGIC);
+    header.writeFixedInt(VERSION);
+    header.writeVarint(writer.strings.size());
+    for (String str : writer.strings.keySet()) {
+      byte[] bytes = str.getBytes(UTF_8);
+      header.writeVarint(bytes.length);
+      header.write(bytes);
+    }
+    byte[] objects = writer.serializeObjects();
+    header.writeVarint(objects.length);
+    header.write(objects);
+
+    header.writeTo(out);
+    writer.tree.writeTo(out);
+  }
+
+  /**
+   * Reads a tree written by {@link #serialize}. The position of the buffer
+   * is moved to the end of the tree.
+   *
+   * @param sourceFile The source file of the nodes.
+   * @throws StreamCorruptedException if the buffer doesn't hold a tree
+   */
+  public static Node deserialize(ByteBuffer buffer, StaticSourceFile sourceFile)
+      throws IOException {
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new StreamCorruptedException("Not a tree");
+      }
+      String[] strings = new String[readVarint(buffer)];
+      for (int i = 0; i < strings.length; i++) {
+        byte[] bytes = new byte[readVarint(buffer)];
+        buffer.get(bytes);
+        strings[i] = new String(bytes, UTF_8);
+      }
+      int objectsLength = readVarint(buffer);
+      ByteBuffer objectsBuffer = buffer.slice();
+      objectsBuffer.limit(objectsLength);
+      buffer.position(buffer.position() + objectsLength);
+
+      Reader reader = new Reader(buffer, sourceFile, strings,
+          deserializeObjects(objectsBuffer, sourceFile));
+      return reader.readNode();
+    } catch (BufferUnderflowException | IndexOutOfBoundsException
+        | ClassCastException | IllegalArgumentException e) {
+      StreamCorruptedException corrupted =
+          new StreamCorruptedException("Malformed tree");
+      corrupted.initCause(e);
+      throw corrupted;
+    }
+  }
+
+  private static Object[] deserializeObjects(
+      ByteBuffer buffer, StaticSourceFile sourceFile) throws IOException {
+    if (!buffer.hasRemaining()) {
+      return new Object[0];
+    }
+    try (SourceFileResolvingInputStream in =
+        new SourceFileResolvingInputStream(buffer, sourceFile)) {
+      return (Object[]) in.readObject();
+    } catch (ClassNotFoundException e) {
+      StreamCorruptedException corrupted =
+          new StreamCorruptedException("Malformed tree");
+      corrupted.initCause(e);
+      throw corrupted;
+    }
+  }
+
+  private static final class Writer {
+    final StaticSourceFile sourceFile;
+    final Output tree = new Output();
+    // The index of each string, in insertion order.
+    final Map<String, Integer> strings = new LinkedHashMap<>();
+    final List<Object> objects = new ArrayList<>();
+
+    Writer(StaticSourceFile sourceFile) {
+      this.sourceFile = sourceFile;
+    }
+
+    void writeNode(Node n) throws NotSerializableException {
+      if (n.getTypeI() != null) {
+        throw new NotSerializableException("Node with a type: " + n);
+      }
+      tree.writeVarint(n.getType());
+      if (n instanceof Node.NumberNode) {
+        tree.writeVarint(NUMBER_NODE);
+        tree.writeFixedLong(Double.doubleToRawLongBits(n.getDouble()));
+      } else if (n instanceof Node.StringNode) {
+        tree.writeVarint(STRING_NODE);
+        writeString(n.getString());
+      } else if (n instanceof Node.TypeDeclarationNode) {
+        String str = n.getString();
+        if (str == null) {
+          tree.writeVarint(TYPE_DECLARATION_NODE);
+        } else {
+          tree.writeVarint(TYPE_DECLARATION_NODE_WITH_STRING);
+          writeString(str);
+        }
+      } else if (n.getClass() == Node.class) {
+        tree.writeVarint(PLAIN_NODE);
+      } else {
+        throw new NotSerializableException(n.getClass().getName());
+      }
+      tree.writeSignedVarint(n.getSourcePosition());
+
+      int[] propTypes = n.getSortedPropTypes();
+      tree.writeVarint(propTypes.length);
+      for (int propType : propTypes) {
+        tree.writeVarint(propType);
+        if (n.isIntProp(propType)) {
+          tree.writeVarint(INT_VALUE);
+          tree.writeSignedVarint(n.getIntProp(propType));
+        } else {
+          writeObject(n.getProp(propType));
+        }
+      }
+
+      tree.writeVarint(n.getChildCount());
+      for (Node child = n.getFirstChild(); child != null;
+           child = child.getNext()) {
+        writeNode(child);
+      }
+    }
+
+    private void writeObject(Object value) throws NotSerializableException {
+      if (value == sourceFile) {
+        tree.writeVarint(SOURCE_FILE_VALUE);
+      } else if (value instanceof String) {
+        tree.writeVarint(STRING_VALUE);
+        writeString((String) value);
+      } else if (value instanceof Node) {
+        tree.writeVarint(NODE_VALUE);
+        writeNode((Node) value);
+      } else if (isStringSet(value)) {
+        Set<?> set = (Set<?>) value;
+        tree.writeVarint(STRING_SET_VALUE);
+        tree.writeVarint(set.size());
+        for (Object str : set) {
+          writeString((String) str);
+        }
+      } else if (value instanceof Serializable) {
+        tree.writeVarint(SERIALIZED_VALUE);
+        tree.writeVarint(objects.size());
+        objects.add(value);
+      } else {
+        throw new NotSerializableException(value.getClass().getName());
+      }
+    }
+
+    private void writeString(String str) {
+      Integer index = strings.get(str);
+      if (index == null) {
+        index = strings.size();
+        strings.put(str, index);
+      }
+      tree.writeVarint(index);
+    }
+
+    byte[] serializeObjects() throws IOException {
+      if (objects.isEmpty()) {
+        return new byte[0];
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (SourceFileReplacingOutputStream out =
+          new SourceFileReplacingOutputStream(bytes, sourceFile)) {
+        out.writeObject(objects.toArray());
+      }
+      return bytes.toByteArray();
+    }
+  }
+
+  private static boolean isStringSet(Object value) {
+    if (!(value instanceof Set)) {
+      return false;
+    }
+    for (Object element : (Set<?>) value) {
+      if (!(element instanceof String)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class Reader {
+    final ByteBuffer buffer;
+    final StaticSourceFile sourceFile;
+    final String[] strings;
+    final Object[] objects;
+    // Holds the source file prop that all the nodes share, as in the parser.
+    final Node templateNode;
+
+    Reader(ByteBuffer buffer, StaticSourceFile sourceFile, String[] strings,
+        Object[] objects) {
+      this.buffer = buffer;
+      this.sourceFile = sourceFile;
+      this.strings = strings;
+      this.objects = objects;
+      this.templateNode = new Node(Token.SCRIPT);
+      templateNode.setStaticSourceFile(sourceFile);
+    }
+
+    Node readNode() throws IOException {
+      int type = readVarint(buffer);
+      Node n;
+      switch (readVarint(buffer)) {
+        case PLAIN_NODE:
+          n = new Node(type);
+          break;
+        case STRING_NODE:
+          n = Node.newString(type, readString());
+          break;
+        case NUMBER_NODE:
+          n = new Node.NumberNode(Double.longBitsToDouble(buffer.getLong()));
+          break;
+        case TYPE_DECLARATION_NODE:
+          n = new Node.TypeDeclarationNode(type);
+          break;
+        case TYPE_DECLARATION_NODE_WITH_STRING:
+          n = new Node.TypeDeclarationNode(type, readString());
+          break;
+        default:
+          throw new StreamCorruptedException("Unknown node kind");
+      }
+      n.setSourceEncodedPosition(readSignedVarint(buffer));
+
+      // The props are written in sorted order, and are prepended to the list,
+      // so read them in reverse. The source file comes first, from the
+      // template node, so that the nodes share its list item.
+      int propCount = readVarint(buffer);
+      int[] propTypes = new int[propCount];
+      Object[] values = new Object[propCount];
+      int[] intValues = new int[propCount];
+      boolean sharesSourceFile = false;
+      for (int i = 0; i < propCount; i++) {
+        propTypes[i] = readVarint(buffer);
+        int kind = readVarint(buffer);
+        if (kind == INT_VALUE) {
+          intValues[i] = readSignedVarint(buffer);
+        } else if (kind == SOURCE_FILE_VALUE
+            && propTypes[i] == Node.STATIC_SOURCE_FILE && sourceFile != null) {
+          n.clonePropsFrom(templateNode);
+          sharesSourceFile = true;
+        } else {
+          values[i] = readObject(kind);
+        }
+      }
+      for (int i = propCount - 1; i >= 0; i--) {
+        if (sharesSourceFile && propTypes[i] == Node.STATIC_SOURCE_FILE) {
+          continue;
+        } else if (values[i] != null) {
+          n.putProp(propTypes[i], values[i]);
+        } else {
+          n.putIntProp(propTypes[i], intValues[i]);
+        }
+      }
+
+      int childCount = readVarint(buffer);
+      for (int i = 0; i < childCount; i++) {
+        n.addChildToBack(readNode());
+      }
+      return n;
+    }
+
+    private Object readObject(int kind) throws IOException {
+      switch (kind) {
+        case STRING_VALUE:
+          return readString();
+        case NODE_VALUE:
+          return readNode();
+        case SOURCE_FILE_VALUE:
+          return sourceFile;
+        case STRING_SET_VALUE:
+          int size = readVarint(buffer);
+          Set<String> set = new LinkedHashSet<>();
+          for (int i = 0; i < size; i++) {
+            set.add(readString());
+          }
+          return set;
+        case SERIALIZED_VALUE:
+          return objects[readVarint(buffer)];
+        default:
+          throw new StreamCorruptedException("Unknown property kind");
+      }
+    }
+
+    private String readString() {
+      return strings[readVarint(buffer)];
+    }
+  }
+
+  private static int readVarint(ByteBuffer buffer) {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = buffer.get();
+      result |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  private static int readSignedVarint(ByteBuffer buffer) {
+    int zigzag = readVarint(buffer);
+    return (zigzag >>> 1) ^ -(zigzag & 1);
+  }
+
+  /** A growable byte array with varint encoding. */
+  private static final class Output extends ByteArrayOutputStream {
+    void writeVarint(int value) {
+      while ((value & ~0x7F) != 0) {
+        write((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      write(value);
+    }
+
+    void writeSignedVarint(int value) {
+      writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    void writeFixedInt(int value) {
+      write(value >>> 24);
+      write(value >>> 16);
+      write(value >>> 8);
+      write(value);
+    }
+
+    void writeFixedLong(long value) {
+      writeFixedInt((int) (value >>> 32));
+      writeFixedInt((int) value);
+    }
+
+    @Override
+    public void write(byte[] bytes) {
+      write(bytes, 0, bytes.length);
+    }
+  }
+
+  /** Stands for the source file of the tree in the serialized objects. */
+  private enum SourceFileMarker {
+    INSTANCE
+  }
+
+  private static final class SourceFileReplacingOutputStream
+      extends ObjectOutputStream {
+    private final StaticSourceFile sourceFile;
+
+    SourceFileReplacingOutputStream(
+        OutputStream out, StaticSourceFile sourceFile) throws IOException {
+      super(out);
+      this.sourceFile = sourceFile;
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) {
+      return obj == sourceFile ? SourceFileMarker.INSTANCE : obj;
+    }
+  }
+
+  private static final class SourceFileResolvingInputStream
+      extends ObjectInputStream {
+    private final StaticSourceFile sourceFile;
+
+    SourceFileResolvingInputStream(
+        ByteBuffer buffer, StaticSourceFile sourceFile) throws IOException {
+      super(new ByteBufferInputStream(buffer));
+      this.sourceFile = sourceFile;
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) {
+      return obj == SourceFileMarker.INSTANCE ? sourceFile : obj;
+    }
+  }
+
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      len = Math.min(len, buffer.remaining());
+      buffer.get(bytes, off, len);
+      return len;
+    }
+  }
+}
@@ -75,11 +75,6 @@ final class ArrowType extends JSType {
     this.returnTypeInferred = returnTypeInferred;
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, ImplCache.create());
-  }
-
   @Override
   protected boolean isSubtype(JSType other,
       ImplCache implicitImplCache) {
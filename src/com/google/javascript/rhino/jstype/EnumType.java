@@ -133,11 +133,6 @@ public class EnumType extends PrototypeObjectType {
     return this.isEquivalentTo(that) ? TRUE : FALSE;
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, ImplCache.create());
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache) {
@@ -470,6 +470,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
     this.prototypeSlot = new Property("prototype", prototype, true,
         propertyNode == null ? source : propertyNode);
     prototype.setOwnerFunction(this);
+    invalidateTypeRelations();
 
     if (oldPrototype != null) {
       // Disassociating the old prototype makes this easier to debug--
@@ -590,6 +591,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
         typeOfThis.extendTemplateTypeMap(type.getTemplateTypeMap());
       }
       this.implementedInterfaces = ImmutableList.copyOf(implementedInterfaces);
+      invalidateTypeRelations();
     } else {
       throw new UnsupportedOperationException();
     }
@@ -643,6 +645,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
         typeOfThis.extendTemplateTypeMap(
             extendedInterface.getTemplateTypeMap());
       }
+      invalidateTypeRelations();
     } else {
       throw new UnsupportedOperationException();
     }
@@ -1120,11 +1123,6 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
    * subtyping and {@code this} is a subtype of {@code that} with regard to
    * the prototype chain.
    */
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, ImplCache.create());
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache) {
@@ -1201,6 +1199,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
    */
   void setInstanceType(ObjectType instanceType) {
     typeOfThis = instanceType;
+    invalidateTypeRelations();
   }
 
   /**
@@ -1452,6 +1451,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
   public void setImplicitMatch(boolean flag) {
     Preconditions.checkState(isInterface());
     isStructuralInterface = flag;
+    invalidateTypeRelations();
   }
 
   @Override
@@ -49,6 +49,7 @@ import com.google.common.collect.Table;
 import com.google.javascript.rhino.ErrorReporter;
 import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.TypeI;
+import com.google.javascript.rhino.jstype.TypeRelationCache.Relation;
 
 import java.io.Serializable;
 import java.util.Comparator;
@@ -476,6 +477,7 @@ public abstract class JSType implements TypeI, Serializable {
    */
   public void extendTemplateTypeMap(TemplateTypeMap otherMap) {
     templateTypeMap = templateTypeMap.extend(otherMap);
+    invalidateTypeRelations();
   }
 
   /**
@@ -559,10 +561,17 @@ public abstract class JSType implements TypeI, Serializable {
   }
 
   public final boolean isEquivalentTo(TypeI that, boolean isStructural) {
-    EqCache eqCache = isStructural ? EqCache.create()
-        : EqCache.createWithoutStructuralTyping();
-    return checkEquivalenceHelper((JSType) that,
-        EquivalenceMethod.IDENTITY, eqCache);
+    if (isStructural) {
+      return checkEquivalenceHelper((JSType) that, EquivalenceMethod.IDENTITY);
+    }
+    Relation relation = Relation.IDENTITY_WITHOUT_STRUCTURAL_TYPING;
+    Boolean cached = getCachedRelation(relation, (JSType) that);
+    if (cached != null) {
+      return cached;
+    }
+    return cacheRelation(relation, (JSType) that, checkEquivalenceHelper(
+        (JSType) that, EquivalenceMethod.IDENTITY,
+        EqCache.createWithoutStructuralTyping()));
   }
 
   /**
@@ -591,7 +600,42 @@ public abstract class JSType implements TypeI, Serializable {
    */
   boolean checkEquivalenceHelper(
       final JSType that, EquivalenceMethod eqMethod) {
-    return checkEquivalenceHelper(that, eqMethod, EqCache.create());
+    if (this == that) {
+      return true;
+    }
+    Relation relation = Relation.of(eqMethod);
+    Boolean cached = getCachedRelation(relation, that);
+    if (cached != null) {
+      return cached;
+    }
+    return cacheRelation(relation, that,
+        checkEquivalenceHelper(that, eqMethod, EqCache.create()));
+  }
+
+  /**
+   * Returns the answer of the registry's cache for the relation between this
+   * type and that type, or null if the cache doesn't know it.
+   */
+  private Boolean getCachedRelation(Relation relation, JSType that) {
+    return registry == null
+        ? null : registry.getTypeRelationCache().get(relation, this, that);
+  }
+
+  private boolean cacheRelation(Relation relation, JSType that, boolean holds) {
+    if (registry != null) {
+      registry.getTypeRelationCache().put(relation, this, that, holds);
+    }
+    return holds;
+  }
+
+  /**
+   * Makes the registry forget the relations between the types, after a change
+   * to this type that may change them.
+   */
+  final void invalidateTypeRelations() {
+    if (registry != null) {
+      registry.getTypeRelationCache().invalidate();
+    }
   }
 
   boolean checkEquivalenceHelper(final JSType that, EquivalenceMethod eqMethod,
@@ -1307,7 +1351,13 @@ public abstract class JSType implements TypeI, Serializable {
    * and is deprecated for the other use cases.
    */
   public boolean isSubtypeWithoutStructuralTyping(JSType that) {
-    return isSubtype(that, ImplCache.createWithoutStructuralTyping());
+    Relation relation = Relation.SUBTYPE_WITHOUT_STRUCTURAL_TYPING;
+    Boolean cached = getCachedRelation(relation, that);
+    if (cached != null) {
+      return cached;
+    }
+    return cacheRelation(relation, that,
+        isSubtype(that, ImplCache.createWithoutStructuralTyping()));
   }
 
   /**
@@ -1337,11 +1387,17 @@ public abstract class JSType implements TypeI, Serializable {
    * pairwise subtypes.</li>
    * </ul>
    *
+   * The answers are cached by the registry, see {@link TypeRelationCache}.
+   *
    * @return <code>this &lt;: that</code>
    */
-  public boolean isSubtype(JSType that) {
-    return isSubtypeHelper(this, that,
-        ImplCache.create());
+  public final boolean isSubtype(JSType that) {
+    Boolean cached = getCachedRelation(Relation.SUBTYPE, that);
+    if (cached != null) {
+      return cached;
+    }
+    return cacheRelation(Relation.SUBTYPE, that,
+        isSubtype(that, ImplCache.create()));
   }
 
   /**
@@ -1620,6 +1676,7 @@ public abstract class JSType implements TypeI, Serializable {
     resolved = true;
     resolveResult = resolveInternal(t, scope);
     resolveResult.setResolvedTypeInternal(resolveResult);
+    invalidateTypeRelations();
     return resolveResult;
   }
 
@@ -1642,6 +1699,7 @@ public abstract class JSType implements TypeI, Serializable {
   public final void clearResolved() {
     resolved = false;
     resolveResult = null;
+    invalidateTypeRelations();
   }
 
   /**
@@ -48,6 +48,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.javascript.rhino.ErrorReporter;
@@ -61,7 +62,9 @@ import com.google.javascript.rhino.jstype.RecordTypeBuilder.RecordProperty;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -132,6 +135,13 @@ public class JSTypeRegistry implements TypeIRegistry, Serializable {
 
   private final Map<String, JSType> namesToTypes;
 
+  // Created on first use, since the types created by the constructor use it.
+  private transient TypeRelationCache typeRelationCache;
+
+  // The unions built so far, by their alternates, so that each union is
+  // created once. Created on first use, like the cache above.
+  private transient Map<UnionKey, UnionType> unionTypes;
+
   // NOTE(nicksantos): This is a terrible terrible hack. When type expressions
   // are evaluated, we need to be able to decide whether that type name
   // resolves to a nullable type or a non-nullable type. Object types are
@@ -209,6 +219,19 @@ public class JSTypeRegistry implements TypeIRegistry, Serializable {
     resetForTypeCheck();
   }
 
+  /**
+   * Returns the cache of the subtype and equivalence checks between the
+   * types of this registry, which also counts its hits and misses.
+   */
+  public TypeRelationCache getTypeRelationCache() {
+    if (typeRelationCache == null) {
+      typeRelationCache = new TypeRelationCache(
+          TypeRelationCache.DEFAULT_MAX_SIZE,
+          TypeRelationCache.DEFAULT_MIN_LOOKUPS_SINCE_CHANGE);
+    }
+    return typeRelationCache;
+  }
+
   /**
    * @return The template variable corresponding to the property value type for
    * Javascript Objects and Arrays.
@@ -321,10 +344,35 @@ public class JSTypeRegistry implements TypeIRegistry, Serializable {
     return reporter;
   }
 
+  /**
+   * Returns the number of entries in each table of the registry, by the name
+   * of the table, for the reports on the memory used by the compiler.
+   */
+  public ImmutableSortedMap<String, Integer> getTableSizes() {
+    int refTypesIndexedByProperty = 0;
+    for (Map<String, ObjectType> types
+         : eachRefTypeIndexedByProperty.values()) {
+      refTypesIndexedByProperty += types.size();
+    }
+    return ImmutableSortedMap.<String, Integer>naturalOrder()
+        .put("namesToTypes", namesToTypes.size())
+        .put("typesIndexedByProperty", typesIndexedByProperty.size())
+        .put("eachRefTypeIndexedByProperty", refTypesIndexedByProperty)
+        .put("greatestSubtypeByProperty", greatestSubtypeByProperty.size())
+        .put("interfaceToImplementors", interfaceToImplementors.size())
+        .put("unresolvedNamedTypes", unresolvedNamedTypes.size())
+        .put("resolvedNamedTypes", resolvedNamedTypes.size())
+        .put("templateTypes", templateTypes.size())
+        .put("unionTypes", unionTypes == null ? 0 : unionTypes.size())
+        .build();
+  }
+
   /**
    * Reset to run the TypeCheck pass.
    */
   public void resetForTypeCheck() {
+    getTypeRelationCache().invalidate();
+    unionTypes = null;
     typesIndexedByProperty.clear();
     eachRefTypeIndexedByProperty.clear();
     initializeBuiltInTypes();
@@ -928,6 +976,7 @@ public class JSTypeRegistry implements TypeIRegistry, Serializable {
   public void overwriteDeclaredType(String name, JSType t) {
     Preconditions.checkState(namesToTypes.containsKey(name));
     register(t, name);
+    getTypeRelationCache().invalidate();
   }
 
   /**
@@ -1222,6 +1271,78 @@ public class JSTypeRegistry implements TypeIRegistry, Serializable {
     return builder.build();
   }
 
+  /**
+   * Returns the union of alternates that a {@link UnionTypeBuilder} reduced,
+   * the same instance for the same alternates in any order. The unions of
+   * the type inference are mostly the same few, like
+   * {@code (null|string|undefined)}, joined over and over.
+   */
+  UnionType createUnionTypeFromAlternates(ImmutableList<JSType> alternates) {
+    if (unionTypes == null) {
+      unionTypes = new HashMap<>();
+    }
+    UnionKey key = new UnionKey(alternates);
+    UnionType union = unionTypes.get(key);
+    if (union == null) {
+      union = new UnionType(this, alternates);
+      unionTypes.put(key, union);
+    }
+    return union;
+  }
+
+  /**
+   * The alternates of a union, compared by identity in any order. The types
+   * themselves are compared structurally, and their structure changes as
+   * they are resolved.
+   */
+  private static final class UnionKey {
+    private final JSType[] alternates;
+    private final int hashCode;
+
+    UnionKey(List<JSType> alternates) {
+      this.alternates = alternates.toArray(new JSType[alternates.size()]);
+      Arrays.sort(this.alternates, IDENTITY_HASH_ORDER);
+      int hash = 0;
+      for (JSType alternate : this.alternates) {
+        hash = hash * 31 + System.identityHashCode(alternate);
+      }
+      this.hashCode = hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof UnionKey)) {
+        return false;
+      }
+      // Two alternates with the same identity hash may be in either order.
+      // Then the keys differ, and the union is only created once more.
+      JSType[] otherAlternates = ((UnionKey) other).alternates;
+      if (alternates.length != otherAlternates.length) {
+        return false;
+      }
+      for (int i = 0; i < alternates.length; i++) {
+        if (alternates[i] != otherAlternates[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final Comparator<JSType> IDENTITY_HASH_ORDER =
+      new Comparator<JSType>() {
+        @Override
+        public int compare(JSType type1, JSType type2) {
+          return Integer.compare(
+              System.identityHashCode(type1), System.identityHashCode(type2));
+        }
+      };
+
   /**
    * Creates an enum type.
    */
@@ -602,6 +602,7 @@ public abstract class ObjectType
    */
   public void clearCachedValues() {
     unknown = true;
+    invalidateTypeRelations();
   }
 
   /** Whether this is a built-in object. */
@@ -165,11 +165,13 @@ public class PrototypeObjectType extends ObjectType {
     this.className = className;
     this.nativeType = nativeType;
     this.anonymousType = anonymousType;
+    // No other type refers to this one yet, so there are no type relations
+    // to invalidate as in setImplicitPrototype.
     if (nativeType || implicitPrototype != null) {
-      setImplicitPrototype(implicitPrototype);
+      this.implicitPrototypeFallback = implicitPrototype;
     } else {
-      setImplicitPrototype(
-          registry.getNativeObjectType(JSTypeNative.OBJECT_TYPE));
+      this.implicitPrototypeFallback =
+          registry.getNativeObjectType(JSTypeNative.OBJECT_TYPE);
     }
   }
 
@@ -187,12 +189,17 @@ public class PrototypeObjectType extends ObjectType {
     Property newProp = new Property(
         name, type, inferred, propertyNode);
     properties.putProperty(name, newProp);
+    invalidateTypeRelations();
     return true;
   }
 
   @Override
   public boolean removeProperty(String name) {
-    return properties.removeProperty(name);
+    if (!properties.removeProperty(name)) {
+      return false;
+    }
+    invalidateTypeRelations();
+    return true;
   }
 
   @Override
@@ -350,6 +357,7 @@ public class PrototypeObjectType extends ObjectType {
   final void setImplicitPrototype(ObjectType implicitPrototype) {
     checkState(!hasCachedValues());
     this.implicitPrototypeFallback = implicitPrototype;
+    invalidateTypeRelations();
   }
 
   @Override
@@ -372,11 +380,6 @@ public class PrototypeObjectType extends ObjectType {
     return anonymousType;
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, ImplCache.create());
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache) {
@@ -66,7 +66,7 @@ public class ProxyObjectType extends ObjectType {
   ProxyObjectType(JSTypeRegistry registry, JSType referencedType,
                   TemplateTypeMap templateTypeMap) {
     super(registry, templateTypeMap);
-    setReferencedType(referencedType);
+    initReferencedType(referencedType);
   }
 
   @Override
@@ -84,6 +84,11 @@ public class ProxyObjectType extends ObjectType {
   }
 
   void setReferencedType(JSType referencedType) {
+    initReferencedType(referencedType);
+    invalidateTypeRelations();
+  }
+
+  private void initReferencedType(JSType referencedType) {
     this.referencedType = referencedType;
     if (referencedType instanceof ObjectType) {
       this.referencedObjType = (ObjectType) referencedType;
@@ -230,11 +235,6 @@ public class ProxyObjectType extends ObjectType {
     return referencedType.testForEquality(that);
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return referencedType.isSubtype(that, ImplCache.create());
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache) {
@@ -0,0 +1,188 @@
+/*
+ *
+ * ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Rhino code, released
+ * May 6, 1999.
+ *
+ * The Initial Developer of the Original Code is
+ * Netscape Communications Corporation.
+ * Portions created by the Initial Developer are Copyright (C) 1997-1999
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Google Inc.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * the GNU General Public License Version 2 or later (the "GPL"), in which
+ * case the provisions of the GPL are applicable instead of those above. If
+ * you wish to allow use of your version of this file only under the terms of
+ * the GPL and not to allow others to use your version of this file under the
+ * MPL, indicate your decision by deleting the provisions above and replacing
+ * them with the notice and other provisions required by the GPL. If you do
+ * not delete the provisions above, a recipient may use your version of this
+ * file under either the MPL or the GPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package com.google.javascript.rhino.jstype;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The results of the subtype and equivalence checks between the types of a
+ * {@link JSTypeRegistry}. The checks are structural, so the same pair of
+ * types takes the same walk over both types every time it is checked; the
+ * cache remembers the answer instead.
+ * <p>
+ * An answer holds only until a type changes: a property is defined or
+ * removed, a type is resolved, a prototype or an interface is set. The
+ * types report these changes through {@link #invalidate}, which makes all
+ * the answers stale at once.
+ * <p>
+ * The cache is a table indexed by the hash of the two types and the
+ * relation, so a lookup allocates nothing; a new answer replaces the answer
+ * that was in its slot. The table starts small, since most registries only
+ * check a few types, and doubles up to a maximum size as answers are stored.
+ * <p>
+ * While the types are created and resolved, they change every few checks,
+ * and an answer is rarely asked again before the next change. So the cache
+ * only remembers answers some lookups after the last change, 256 by
+ * default, and stays out of the way while the types are being built.
+ * <p>
+ * Like the registry, this class is not thread-safe.
+ */
+public final class TypeRelationCache {
+  static final int DEFAULT_MAX_SIZE = 1 << 16;
+  private static final int INITIAL_SIZE = 1 << 8;
+  static final int DEFAULT_MIN_LOOKUPS_SINCE_CHANGE = 256;
+
+  /** The relations between two types that are cached. */
+  enum Relation {
+    SUBTYPE,
+    SUBTYPE_WITHOUT_STRUCTURAL_TYPING,
+    IDENTITY,
+    IDENTITY_WITHOUT_STRUCTURAL_TYPING,
+    INVARIANT,
+    DATA_FLOW;
+
+    static Relation of(EquivalenceMethod eqMethod) {
+      switch (eqMethod) {
+        case IDENTITY:
+          return IDENTITY;
+        case INVARIANT:
+          return INVARIANT;
+        case DATA_FLOW:
+          return DATA_FLOW;
+        default:
+          throw new IllegalArgumentException(eqMethod.toString());
+      }
+    }
+  }
+
+  private JSType[] typesA;
+  private JSType[] typesB;
+  private Relation[] relations;
+  // The generation of each answer, shifted left by one, with the answer in
+  // the lowest bit. The answers of older generations are stale, and 0 is an
+  // empty slot.
+  private long[] answers;
+  private int mask;
+  private final int maxSize;
+  private final int minLookupsSinceChange;
+  private int storesSinceResize = 0;
+  private long generation = 1;
+  private int lookupsSinceChange = 0;
+  private int hits = 0;
+  private int misses = 0;
+
+  /** Creates a cache of at most {@code maxSize} answers, a power of two. */
+  TypeRelationCache(int maxSize, int minLookupsSinceChange) {
+    Preconditions.checkArgument(
+        maxSize > 0 && (maxSize & (maxSize - 1)) == 0);
+    this.maxSize = maxSize;
+    this.minLookupsSinceChange = minLookupsSinceChange;
+    allocate(Math.min(maxSize, INITIAL_SIZE));
+  }
+
+  /**
+   * Returns whether the relation holds between two types, or null if it
+   * isn't known since the types last changed.
+   */
+  Boolean get(Relation relation, JSType typeA, JSType typeB) {
+    if (++lookupsSinceChange <= minLookupsSinceChange) {
+      misses++;
+      return null;
+    }
+    int i = indexOf(relation, typeA, typeB);
+    long answer = answers[i];
+    if (answer >>> 1 != generation || typesA[i] != typeA
+        || typesB[i] != typeB || relations[i] != relation) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return (answer & 1) != 0;
+  }
+
+  /** Remembers whether the relation holds between two types. */
+  void put(Relation relation, JSType typeA, JSType typeB, boolean holds) {
+    if (lookupsSinceChange < minLookupsSinceChange) {
+      return;
+    }
+    // Once the table had as many answers stored as it has slots, most of
+    // them overwrote each other: start again with a bigger one.
+    if (++storesSinceResize > answers.length && answers.length < maxSize) {
+      allocate(answers.length * 2);
+    }
+    int i = indexOf(relation, typeA, typeB);
+    typesA[i] = typeA;
+    typesB[i] = typeB;
+    relations[i] = relation;
+    answers[i] = generation << 1 | (holds ? 1 : 0);
+  }
+
+  /** Forgets all the answers, because a type changed. */
+  void invalidate() {
+    generation++;
+    lookupsSinceChange = 0;
+  }
+
+  /** The number of checks answered from the cache. */
+  public int getHits() {
+    return hits;
+  }
+
+  /** The number of checks that had to be computed. */
+  public int getMisses() {
+    return misses;
+  }
+
+  private void allocate(int size) {
+    typesA = new JSType[size];
+    typesB = new JSType[size];
+    relations = new Relation[size];
+    answers = new long[size];
+    mask = size - 1;
+    storesSinceResize = 0;
+  }
+
+  private int indexOf(Relation relation, JSType typeA, JSType typeB) {
+    int hash = System.identityHashCode(typeA) * 31
+        + System.identityHashCode(typeB);
+    hash = hash * 31 + relation.ordinal();
+    // Spread the high bits of the identity hashes to the slots.
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
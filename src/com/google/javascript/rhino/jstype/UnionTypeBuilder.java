@@ -46,6 +46,7 @@ import static com.google.javascript.rhino.jstype.JSTypeNative.UNKNOWN_TYPE;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -53,6 +54,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A builder for union types.
@@ -68,6 +70,9 @@ public class UnionTypeBuilder implements Serializable {
 
   private final JSTypeRegistry registry;
   private final List<JSType> alternates = new ArrayList<>();
+  // The same alternates, to find the types that are added again in constant
+  // time, rather than by checking the subtypes of all the alternates.
+  private final Set<JSType> alternateSet = Sets.newIdentityHashSet();
   private boolean isAllType = false;
   private boolean isNativeUnknownType = false;
   private boolean areAllUnknownsChecked = true;
@@ -158,6 +163,11 @@ public class UnionTypeBuilder implements Serializable {
           return this;
         }
 
+        // The joins of the type inference add the same types over and over.
+        if (alternateSet.contains(alternate)) {
+          return this;
+        }
+
         // Function types are special, because they have their
         // own bizarre sub-lattice. See the comments on
         // FunctionType#supAndInf helper and above at functionTypePosition.
@@ -167,6 +177,8 @@ public class UnionTypeBuilder implements Serializable {
               alternates.get(functionTypePosition).toMaybeFunctionType();
           FunctionType supremum =
               alternate.toMaybeFunctionType().supAndInfHelper(other, true);
+          alternateSet.remove(other);
+          alternateSet.add(supremum);
           alternates.set(functionTypePosition, supremum);
           result = null;
           return this;
@@ -269,6 +281,7 @@ public class UnionTypeBuilder implements Serializable {
 
           if (removeCurrent) {
             it.remove();
+            alternateSet.remove(current);
 
             if (currentIndex == functionTypePosition) {
               functionTypePosition = -1;
@@ -287,6 +300,7 @@ public class UnionTypeBuilder implements Serializable {
         }
 
         alternates.add(alternate);
+        alternateSet.add(alternate);
         result = null; // invalidate the memoized result
       }
     } else {
@@ -340,13 +354,15 @@ public class UnionTypeBuilder implements Serializable {
     if (result == null) {
       result = reduceAlternatesWithoutUnion();
       if (result == null) {
-        result = new UnionType(registry, getAlternateListCopy());
+        result = registry == null
+            ? new UnionType(registry, getAlternateListCopy())
+            : registry.createUnionTypeFromAlternates(getAlternateListCopy());
       }
     }
     return result;
   }
 
-  private Collection<JSType> getAlternateListCopy() {
+  private ImmutableList<JSType> getAlternateListCopy() {
     return ImmutableList.copyOf(alternates);
   }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Tests for {@link AstCache}.
+ */
+public final class AstCacheTest extends TestCase {
+
+  private File tempDir;
+  private Compiler compiler;
+
+  @Override
+  public void setUp() {
+    tempDir = Files.createTempDir();
+  }
+
+  @Override
+  public void tearDown() {
+    for (File file : tempDir.listFiles()) {
+      file.delete();
+    }
+    tempDir.delete();
+  }
+
+  private Result compile(String externs, String... inputs) {
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(
+        options);
+    options.setWarningLevel(DiagnosticGroups.NON_STANDARD_JSDOC,
+        CheckLevel.WARNING);
+    options.setAstCacheDirectory(tempDir.getPath());
+
+    ImmutableList.Builder<SourceFile> sources = ImmutableList.builder();
+    for (int i = 0; i < inputs.length; i++) {
+      sources.add(SourceFile.fromCode("input" + i + ".js", inputs[i]));
+    }
+    compiler = new Compiler();
+    return compiler.compile(
+        ImmutableList.of(SourceFile.fromCode("externs.js", externs)),
+        sources.build(), options);
+  }
+
+  private int countCachedTrees() {
+    int count = 0;
+    for (File file : tempDir.listFiles()) {
+      if (file.getName().endsWith(".ast")) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public void testTreesAreReused() {
+    String externs = "var x; function alert(a) {}";
+    String input = "/** @foo */ var a = {b: 1}; alert(a.b + x);";
+
+    Result first = compile(externs, input);
+    String source = compiler.toSource();
+    assertEquals(2, countCachedTrees());
+
+    Result second = compile(externs, input);
+    assertEquals(2, countCachedTrees());
+    assertTrue(second.success);
+    assertEquals(source, compiler.toSource());
+    assertEquals(1, second.warnings.length);
+    assertEquals(first.warnings.length, second.warnings.length);
+    for (int i = 0; i < first.warnings.length; i++) {
+      assertEquals(first.warnings[i].toString(),
+          second.warnings[i].toString());
+    }
+  }
+
+  public void testChangedInputsAreParsedAgain() {
+    compile("", "var a = 1;");
+    assertEquals(2, countCachedTrees());
+
+    compile("", "var a = 2;");
+    assertEquals(3, countCachedTrees());
+  }
+
+  public void testParseErrorsAreNotCached() {
+    Result result = compile("", "var a = ;");
+    assertFalse(result.success);
+    assertEquals(1, countCachedTrees());
+  }
+
+  public void testCorruptedTreesAreIgnored() throws Exception {
+    compile("", "var a = 1; a++;");
+    File[] files = tempDir.listFiles();
+    for (File file : files) {
+      Files.write(new byte[] {1, 2, 3}, file);
+    }
+
+    Result result = compile("", "var a = 1; a++;");
+    assertTrue(result.success);
+    assertEquals("var a=1;a++;", compiler.toSource());
+    List<File> rewritten = ImmutableList.copyOf(tempDir.listFiles());
+    assertEquals(files.length, rewritten.size());
+    for (File file : rewritten) {
+      assertTrue(file.length() > 3);
+    }
+  }
+}
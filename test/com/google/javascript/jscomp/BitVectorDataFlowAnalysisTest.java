@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.BitVectorDataFlowAnalysis.BitVectorLattice;
+import com.google.javascript.jscomp.ControlFlowGraph.Branch;
+import com.google.javascript.jscomp.DataFlowAnalysis.FlowState;
+import com.google.javascript.jscomp.DataFlowAnalysis.MaxIterationsExceededException;
+
+import junit.framework.TestCase;
+
+import java.util.BitSet;
+
+/**
+ * Tests for {@link BitVectorDataFlowAnalysis}. The nodes of the graphs are
+ * strings like {@code "+1 -2"}, which generate the fact 1 and kill the fact 2.
+ */
+public final class BitVectorDataFlowAnalysisTest extends TestCase {
+
+  /** An analysis of the facts that may hold, forward or backward. */
+  private static class MayAnalysis
+      extends BitVectorDataFlowAnalysis<String, BitVectorLattice> {
+    private final boolean forward;
+    private final int bitCount;
+
+    MayAnalysis(ControlFlowGraph<String> cfg, boolean forward, int bitCount) {
+      super(cfg);
+      this.forward = forward;
+      this.bitCount = bitCount;
+    }
+
+    @Override
+    boolean isForward() {
+      return forward;
+    }
+
+    @Override
+    int getBitCount() {
+      return bitCount;
+    }
+
+    @Override
+    void computeGenKill(String node, BitSet gen, BitSet kill) {
+      for (String fact : node.split(" ")) {
+        if (fact.startsWith("+")) {
+          gen.set(Integer.parseInt(fact.substring(1)));
+        } else if (fact.startsWith("-")) {
+          kill.set(Integer.parseInt(fact.substring(1)));
+        }
+      }
+    }
+
+    @Override
+    BitVectorLattice createLattice(long[] matrix, int row, int wordsPerRow) {
+      return new BitVectorLattice(matrix, row, wordsPerRow);
+    }
+  }
+
+  public void testForwardIf() {
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("+1", true, true);
+    cfg.createNode("+1");
+    cfg.createNode("+2");
+    cfg.createNode("-1 +3");
+    cfg.createNode("-2");
+    cfg.connect("+1", Branch.ON_TRUE, "+2");
+    cfg.connect("+1", Branch.ON_FALSE, "-1 +3");
+    cfg.connect("+2", Branch.UNCOND, "-2");
+    cfg.connect("-1 +3", Branch.UNCOND, "-2");
+    cfg.connect("-2", Branch.UNCOND, null);
+    new MayAnalysis(cfg, true, 4).analyze();
+
+    assertState(cfg, "+1", "{}", "{1}");
+    assertState(cfg, "+2", "{1}", "{1, 2}");
+    assertState(cfg, "-1 +3", "{1}", "{3}");
+    assertState(cfg, "-2", "{1, 2, 3}", "{1, 3}");
+    FlowState<BitVectorLattice> exit =
+        cfg.getImplicitReturn().getAnnotation();
+    assertEquals("{1, 3}", exit.getIn().toString());
+  }
+
+  public void testBackwardLoop() {
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("-1", true, true);
+    cfg.createNode("-1");
+    cfg.createNode("+1 -2");
+    cfg.createNode("+2");
+    cfg.connect("-1", Branch.UNCOND, "+1 -2");
+    cfg.connect("+1 -2", Branch.UNCOND, "+2");
+    cfg.connect("+2", Branch.ON_TRUE, "+1 -2");
+    cfg.connect("+2", Branch.ON_FALSE, null);
+    new MayAnalysis(cfg, false, 3).analyze();
+
+    assertState(cfg, "-1", "{}", "{1}");
+    assertState(cfg, "+1 -2", "{1}", "{1, 2}");
+    assertState(cfg, "+2", "{1, 2}", "{1}");
+  }
+
+  public void testFactsOfSeveralWords() {
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("+0", true, true);
+    cfg.createNode("+0");
+    cfg.createNode("+64 +129");
+    cfg.createNode("-0 -129");
+    cfg.connect("+0", Branch.UNCOND, "+64 +129");
+    cfg.connect("+64 +129", Branch.UNCOND, "-0 -129");
+    cfg.connect("-0 -129", Branch.UNCOND, null);
+    new MayAnalysis(cfg, true, 130).analyze();
+
+    assertState(cfg, "-0 -129", "{0, 64, 129}", "{64}");
+  }
+
+  public void testLatticesAreViewsOfTheRows() {
+    long[] matrix = {1L, 3L, 1L};
+    BitVectorLattice first = new BitVectorLattice(matrix, 0, 1);
+    BitVectorLattice third = new BitVectorLattice(matrix, 2, 1);
+    assertEquals(first, third);
+    assertEquals(first.hashCode(), third.hashCode());
+    assertFalse(first.equals(new BitVectorLattice(matrix, 1, 1)));
+    matrix[2] = 2L;
+    assertFalse(first.equals(third));
+    assertTrue(third.get(1));
+    assertEquals("{1}", third.toString());
+  }
+
+  public void testNextSetBit() {
+    long[] matrix = {0L, 0L, 1L << 3, 0L, 1L << 63, 1L};
+    BitVectorLattice first = new BitVectorLattice(matrix, 0, 3);
+    BitVectorLattice second = new BitVectorLattice(matrix, 1, 3);
+    assertEquals(131, first.nextSetBit(0));
+    assertEquals(-1, first.nextSetBit(132));
+    assertEquals(-1, first.nextSetBit(192));
+    assertEquals(127, second.nextSetBit(0));
+    assertEquals(128, second.nextSetBit(128));
+    assertEquals(1L << 63, second.getWord(1));
+  }
+
+  public void testMaxIterationsExceededException() {
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("+1", true, true);
+    cfg.createNode("+1");
+    cfg.createNode("+2");
+    cfg.connect("+1", Branch.UNCOND, "+2");
+    cfg.connect("+2", Branch.UNCOND, "+1");
+    try {
+      new MayAnalysis(cfg, true, 3).analyze(1);
+      fail("Expected MaxIterationsExceededException to be thrown.");
+    } catch (MaxIterationsExceededException e) {
+      assertEquals("Analysis did not terminate after 1 iterations",
+          e.getMessage());
+    }
+  }
+
+  private static void assertState(
+      ControlFlowGraph<String> cfg, String node, String in, String out) {
+    FlowState<BitVectorLattice> state = cfg.getNode(node).getAnnotation();
+    assertEquals(in, state.getIn().toString());
+    assertEquals(out, state.getOut().toString());
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.rhino.IR;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link CodeSizeEstimator}.
+ */
+public final class CodeSizeEstimatorTest extends TestCase {
+
+  private static Node parse(String... scripts) {
+    Compiler compiler = new Compiler();
+    Node root = new Node(Token.BLOCK);
+    for (String js : scripts) {
+      Node script = compiler.parseTestCode(js);
+      assertEquals(0, compiler.getErrorCount());
+      root.addChildToBack(script);
+    }
+    return root;
+  }
+
+  private static int printedSize(Node root) {
+    final int[] size = {0};
+    final char[] lastChar = {'\0'};
+    CodeGenerator.forCostEstimation(new CodeConsumer() {
+      @Override
+      void append(String str) {
+        size[0] += str.length();
+        lastChar[0] = str.charAt(str.length() - 1);
+      }
+
+      @Override
+      char getLastChar() {
+        return lastChar[0];
+      }
+    }).add(root);
+    return size[0];
+  }
+
+  private static Node findFunction(Node n, String name) {
+    if (n.isFunction() && n.getFirstChild().getString().equals(name)) {
+      return n;
+    }
+    for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
+      Node result = findFunction(c, name);
+      if (result != null) {
+        return result;
+      }
+    }
+    return null;
+  }
+
+  public void testSameSizeAsFullPrint() {
+    Node root = parse(
+        "var a = 1; function f(x) { return function g() { return x; }; }",
+        "f(2); (function() { var y = f; })()",
+        "if (a) function h() {} else a++");
+    CodeSizeEstimator estimator = new CodeSizeEstimator(root);
+    assertEquals(printedSize(root), estimator.estimateSize(1));
+    // Nothing changed, all the units are reused.
+    assertEquals(printedSize(root), estimator.estimateSize(2));
+  }
+
+  public void testChangedFunctionIsReprinted() {
+    Node root = parse(
+        "function f() { var x = 1; function g() { return 2; } return g(); }",
+        "function k() { return 3; }");
+    CodeSizeEstimator estimator = new CodeSizeEstimator(root);
+    int initialSize = estimator.estimateSize(1);
+
+    Node g = findFunction(root, "g");
+    Node returnValue = g.getLastChild().getFirstChild().getFirstChild();
+    returnValue.getParent().replaceChild(returnValue, IR.number(123));
+    g.setChangeTime(1);
+
+    assertEquals(initialSize + 2, estimator.estimateSize(2));
+    assertEquals(printedSize(root), estimator.estimateSize(2));
+  }
+
+  public void testChangeInGlobalScopeIsReprinted() {
+    Node root = parse("var a = 1; function f() { return a; }", "a = 2");
+    CodeSizeEstimator estimator = new CodeSizeEstimator(root);
+    estimator.estimateSize(1);
+
+    Node secondScript = root.getLastChild();
+    secondScript.addChildToBack(IR.exprResult(IR.name("bcd")));
+    root.setChangeTime(1);
+
+    assertEquals(printedSize(root), estimator.estimateSize(2));
+  }
+
+  public void testUnmarkedChangeIsNotSeen() {
+    Node root = parse("function f() { return 1; }");
+    CodeSizeEstimator estimator = new CodeSizeEstimator(root);
+    int initialSize = estimator.estimateSize(1);
+
+    Node f = findFunction(root, "f");
+    f.getLastChild().addChildToBack(IR.exprResult(IR.name("x")));
+
+    // The change time of f didn't move, so the cached size is used.
+    assertEquals(initialSize, estimator.estimateSize(2));
+
+    estimator.invalidate();
+    assertEquals(printedSize(root), estimator.estimateSize(3));
+  }
+
+  public void testRemovedFunction() {
+    Node root = parse("function f() { function g() { return 1; } }");
+    CodeSizeEstimator estimator = new CodeSizeEstimator(root);
+    estimator.estimateSize(1);
+
+    Node f = findFunction(root, "f");
+    Node g = findFunction(root, "g");
+    g.detachFromParent();
+    f.setChangeTime(1);
+
+    assertEquals(printedSize(root), estimator.estimateSize(2));
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link CommandLineWorker}.
+ */
+public final class CommandLineWorkerTest extends TestCase {
+
+  private File tempDir;
+  private CommandLineWorker worker;
+
+  @Override
+  public void setUp() {
+    tempDir = Files.createTempDir();
+  }
+
+  @Override
+  public void tearDown() {
+    for (File file : tempDir.listFiles()) {
+      file.delete();
+    }
+    tempDir.delete();
+  }
+
+  private String writeFile(String name, String contents) throws IOException {
+    File file = new File(tempDir, name);
+    Files.write(contents, file, UTF_8);
+    return file.getPath();
+  }
+
+  private static final class Response {
+    final int status;
+    final String out;
+    final String err;
+
+    Response(int status, String out, String err) {
+      this.status = status;
+      this.out = out;
+      this.err = err;
+    }
+  }
+
+  private List<Response> runWorker(String... requests) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    worker = new CommandLineWorker(
+        new BufferedReader(new StringReader(Joiner.on('\n').join(requests))),
+        new PrintStream(bytes, true, UTF_8.name()));
+    worker.run();
+
+    // The outputs in these tests are ASCII, so the lengths are in chars.
+    String responses = new String(bytes.toByteArray(), UTF_8);
+    List<Response> result = new ArrayList<>();
+    int pos = 0;
+    while (pos < responses.length()) {
+      int endOfHeader = responses.indexOf('\n', pos);
+      String[] header = responses.substring(pos, endOfHeader).split(" ");
+      int outStart = endOfHeader + 1;
+      int errStart = outStart + Integer.parseInt(header[1]);
+      pos = errStart + Integer.parseInt(header[2]);
+      result.add(new Response(
+          Integer.parseInt(header[0]),
+          responses.substring(outStart, errStart),
+          responses.substring(errStart, pos)));
+    }
+    return result;
+  }
+
+  public void testEachRequestIsCompiled() throws IOException {
+    String externs = writeFile("externs.js", "function alert(x) {}");
+    String first = writeFile("first.js", "var a = 1; alert(a);");
+    String second = writeFile("second.js", "alert('second')");
+
+    List<Response> responses = runWorker(
+        "--use_only_custom_externs --externs " + externs + " --js " + first,
+        "",
+        "--use_only_custom_externs --externs " + externs + " --js " + second);
+
+    assertEquals(2, responses.size());
+    assertEquals(0, responses.get(0).status);
+    assertEquals("var a=1;alert(a);\n", responses.get(0).out);
+    assertEquals("", responses.get(0).err);
+    assertEquals(0, responses.get(1).status);
+    assertEquals("alert(\"second\");\n", responses.get(1).out);
+
+    // The externs were parsed once.
+    assertEquals(1, worker.getExternsAstCache().size());
+  }
+
+  public void testQuotedArguments() throws IOException {
+    String input = writeFile("input.js", "alert(1)");
+    List<Response> responses = runWorker(
+        "--use_only_custom_externs --js " + input
+        + " --output_wrapper \"(function() {%output%})()\"");
+
+    assertEquals(1, responses.size());
+    assertEquals("(function() {alert(1);})()\n", responses.get(0).out);
+  }
+
+  public void testExternsWarningsAreReportedEachTime() throws IOException {
+    String externs = writeFile("externs.js", "/** @type {number */ var x;");
+    String input = writeFile("input.js", "x = 1");
+    String request =
+        "--use_only_custom_externs --externs " + externs + " --js " + input;
+    String verbose = request + " --warning_level VERBOSE";
+
+    List<Response> responses = runWorker(request, verbose, verbose);
+
+    // The warning is only reported at the verbose level, but it is reported
+    // even though the externs were parsed by the first compilation.
+    assertEquals(3, responses.size());
+    assertFalse(responses.get(0).err.contains("Bad type annotation"));
+    assertTrue(responses.get(1).err.contains("Bad type annotation"));
+    assertEquals(responses.get(1).err, responses.get(2).err);
+    assertEquals(responses.get(0).out, responses.get(2).out);
+    assertEquals(1, worker.getExternsAstCache().size());
+  }
+
+  public void testChangedExternsAreParsedAgain() throws IOException {
+    String externs = writeFile("externs.js", "var x;");
+    String input = writeFile("input.js", "var y = x;");
+    String request = "--use_only_custom_externs --compilation_level ADVANCED"
+        + " --externs " + externs + " --js " + input;
+
+    List<Response> responses = runWorker(request);
+    assertEquals(0, responses.get(0).status);
+
+    // The same worker compiles again after the externs changed.
+    writeFile("externs.js", "var z;");
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    int status = worker.compile(
+        (request + " --jscomp_error=undefinedVars").split(" "),
+        new PrintStream(new ByteArrayOutputStream(), true, UTF_8.name()),
+        new PrintStream(err, true, UTF_8.name()));
+
+    assertEquals(1, status);
+    assertTrue(new String(err.toByteArray(), UTF_8).contains(
+        "variable x is undeclared"));
+  }
+
+  public void testBadFlags() throws IOException {
+    List<Response> responses = runWorker("--no_such_flag");
+
+    assertEquals(1, responses.size());
+    assertEquals(-1, responses.get(0).status);
+    assertTrue(responses.get(0).err.contains("no_such_flag"));
+  }
+}
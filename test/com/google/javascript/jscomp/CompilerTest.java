@@ -25,6 +25,8 @@ import com.google.common.collect.ImmutableMap;
 import com.google.debugging.sourcemap.FilePosition;
 import com.google.debugging.sourcemap.SourceMapGeneratorV3;
 import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.google.javascript.rhino.InputId;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
@@ -37,7 +39,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -361,6 +365,213 @@ public final class CompilerTest extends TestCase {
     assertFalse(compiler.getInput(new InputId("in2")).isExtern());
   }
 
+  public void testParallelParsing() {
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i,
+          "/** @param {number} x */ function f" + i + "(x) { return x + "
+          + i + "; } f" + i + "(1);"));
+    }
+    CompilerOptions options = new CompilerOptions();
+    options.sourceMapOutputPath = "out.map";
+    assertThat(assertSameDiagnosticsWithThreads(
+        options, EMPTY_EXTERNS, inputs)).isEmpty();
+  }
+
+  public void testParallelParsingReportsErrorsInInputOrder() {
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i,
+          i % 3 == 0 ? "var x" + i + " = ;" : "var x" + i + " = 1;"));
+    }
+    List<String> reported = assertSameDiagnosticsWithThreads(
+        new CompilerOptions(), EMPTY_EXTERNS, inputs);
+    assertEquals(7, reported.size());
+    for (int i = 0; i < reported.size(); i++) {
+      assertThat(reported.get(i)).startsWith("in" + (i * 3) + ":");
+    }
+  }
+
+  public void testParallelParsingOfExterns() {
+    List<SourceFile> externs = ImmutableList.of(
+        SourceFile.fromCode("e1", "var a;"),
+        SourceFile.fromCode("e2", "var b = ;"),
+        SourceFile.fromCode("e3", "var c = ;"));
+    CompilerOptions options = new CompilerOptions();
+    options.setNumParallelParseThreads(4);
+    Compiler compiler = new Compiler();
+    Result result = compiler.compile(
+        externs, ImmutableList.of(SourceFile.fromCode("in", "a = b;")),
+        options);
+
+    // Like a sequential parse, the compiler stops at the first bad extern.
+    assertFalse(result.success);
+    assertEquals(1, result.errors.length);
+    assertEquals("e2", result.errors[0].sourceName);
+  }
+
+  /**
+   * Compiles the inputs, then compiles them again with four parsing and
+   * optimization threads. Checks that both report the same diagnostics in
+   * the same order and print the same code, and returns the diagnostics.
+   */
+  private static List<String> assertSameDiagnosticsWithThreads(
+      CompilerOptions options, List<SourceFile> externs,
+      List<SourceFile> inputs) {
+    final List<String> reported = new ArrayList<>();
+    options.setErrorHandler(new ErrorHandler() {
+      @Override
+      public void report(CheckLevel level, JSError error) {
+        reported.add(error.sourceName + ":" + error.getCharno() + ":"
+            + error.description);
+      }
+    });
+    Compiler compiler = new Compiler();
+    compiler.compile(externs, inputs, options);
+    String expectedSource = compiler.toSource();
+    List<String> expected = new ArrayList<>(reported);
+
+    reported.clear();
+    options.setNumParallelParseThreads(4);
+    options.setNumParallelOptimizationThreads(4);
+    compiler = new Compiler();
+    compiler.compile(externs, inputs, options);
+    assertEquals(expected, reported);
+    assertEquals(expectedSource, compiler.toSource());
+    return expected;
+  }
+
+  public void testParallelPeepholeOptimizations() {
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i,
+          "function f" + i + "(x) {"
+          + "  if (true) { x = 1 + 2 + x; } else { x = 3; }"
+          + "  var g = function() { return !!(x && !!x) ? void 0 : 'a' + 'b'; };"
+          + "  return [g, g()];"
+          + "}"
+          + "alert(f" + i + "(1));"));
+    }
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(
+        options);
+    assertSameDiagnosticsWithThreads(options, EMPTY_EXTERNS, inputs);
+  }
+
+  public void testParallelScopesRunAfterTheFunctionsInThem() {
+    CompilerOptions options = new CompilerOptions();
+    options.setNumParallelOptimizationThreads(4);
+    Compiler compiler = new Compiler();
+    compiler.initOptions(options);
+    Node script = compiler.parseTestCode(
+        "function f() { function g() {} } function h() {} f(); h();");
+    Node f = script.getFirstChild();
+    Node g = f.getLastChild().getFirstChild();
+    Node h = f.getNext();
+    final Map<Node, List<Node>> nested = ImmutableMap.<Node, List<Node>>of(
+        g, ImmutableList.<Node>of(),
+        f, ImmutableList.of(g),
+        h, ImmutableList.<Node>of(),
+        script, ImmutableList.of(g, f, h));
+    final List<Node> done =
+        Collections.synchronizedList(new ArrayList<Node>());
+    final List<Node> early =
+        Collections.synchronizedList(new ArrayList<Node>());
+    compiler.processScopesInParallel(ImmutableList.of(g, f, h, script),
+        new NodeTraversal.FunctionCallback() {
+          @Override
+          public void enterFunction(AbstractCompiler compiler, Node root) {
+            if (!done.containsAll(nested.get(root))) {
+              early.add(root);
+            }
+            // Gives a scope that starts too early the time to see it.
+            try {
+              Thread.sleep(20);
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+            done.add(root);
+          }
+        });
+    assertThat(early).isEmpty();
+    assertThat(done).hasSize(4);
+  }
+
+  public void testParallelPeepholeReportsWarningsInScopeOrder() {
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i,
+          "function f" + i + "() { return [0, 1][" + (i + 2) + "]; }"
+          + "alert(f" + i + "());"));
+    }
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(
+        options);
+    assertThat(assertSameDiagnosticsWithThreads(
+        options, EMPTY_EXTERNS, inputs)).isNotEmpty();
+  }
+
+  public void testParallelNewTypeInferenceReportsWarningsInScopeOrder() {
+    List<SourceFile> externs = ImmutableList.of(SourceFile.fromCode(
+        "externs", NewTypeInferenceTestBase.DEFAULT_EXTERNS));
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i,
+          "/** @param {number} x */"
+          + "function f" + i + "(x) {"
+          + "  function g(y) { return y - 1; }"
+          + "  function h(z) { return g(z) + 'a'; }"
+          + "  var s = h(x);"
+          + "  s = s - 1;"
+          + "  return g('" + i + "');"
+          + "}"
+          + "function k" + i + "(y) { return y * 2; }"
+          + "k" + i + "('a');"
+          + "f" + i + "('b');"));
+    }
+    CompilerOptions options = new CompilerOptions();
+    options.setNewTypeInference(true);
+    assertThat(assertSameDiagnosticsWithThreads(options, externs, inputs)
+        .size()).isGreaterThan(20);
+  }
+
+  public void testAstMemoryReport() throws Exception {
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(
+        options);
+    options.setCheckTypes(true);
+    options.setAstMemoryReport(true);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Compiler compiler = new Compiler(new PrintStream(out, true, "UTF-8"));
+    compiler.compile(EMPTY_EXTERNS, ImmutableList.of(SourceFile.fromCode(
+        "in", "/** @param {number} x */ function f(x) { alert(x + 1); }")),
+        options);
+
+    JsonArray passes =
+        compiler.getAstMemoryReport().toJson().getAsJsonArray("passes");
+    JsonObject parsing = passes.get(0).getAsJsonObject();
+    assertEquals(
+        Compiler.PARSING_PASS_NAME, parsing.get("pass").getAsString());
+    assertEquals(1, parsing.getAsJsonObject("nodesByToken").get("CALL")
+        .getAsInt());
+    assertEquals(1, parsing.getAsJsonObject("propsByType").get("free_call")
+        .getAsInt());
+    assertEquals(1, parsing.get("jsDocInfos").getAsInt());
+    assertEquals(0, parsing.get("types").getAsInt());
+
+    // The types are reported once the type checker ran.
+    JsonObject last = passes.get(passes.size() - 1).getAsJsonObject();
+    assertTrue(last.get("types").getAsInt() > 0);
+    assertTrue(last.getAsJsonObject("typeRegistry").get("namesToTypes")
+        .getAsInt() > 0);
+
+    // The report is written after the JVM metrics.
+    String output = out.toString("UTF-8");
+    assertTrue(output.contains("\"pass\": \"" + Compiler.PARSING_PASS_NAME));
+    assertTrue(output.indexOf("{") > output.indexOf("Memory"));
+  }
+
   public void testRebuildInputsFromModule() {
     List<JSModule> modules = ImmutableList.of(
         new JSModule("m1"), new JSModule("m2"));
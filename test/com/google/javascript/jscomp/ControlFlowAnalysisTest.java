@@ -1332,6 +1332,53 @@ public final class ControlFlowAnalysisTest extends TestCase {
             Token.SCRIPT, Token.BLOCK, Token.VAR, Token.DO, Token.EXPR_RESULT));
   }
 
+  public void testNodesAreInPriorityOrder() {
+    ControlFlowGraph<Node> cfg =
+        createCfg("var x; while (x) { if (x) { x--; } else { break; } } x;");
+    List<DiGraphNode<Node, Branch>> cfgNodes =
+        ImmutableList.copyOf(cfg.getDirectedGraphNodes());
+    assertTrue(Ordering.from(cfg.getOptionalNodeComparator(true))
+        .isStrictlyOrdered(cfgNodes));
+    assertSame(cfg.getEntry(), cfgNodes.get(0));
+    assertSame(cfg.getImplicitReturn(), cfgNodes.get(cfgNodes.size() - 1));
+
+    int numEdges = 0;
+    for (DiGraphNode<Node, Branch> n : cfgNodes) {
+      assertSame(n, cfg.getDirectedGraphNode(n.getValue()));
+      for (DiGraphEdge<Node, Branch> edge : n.getOutEdges()) {
+        assertSame(n, edge.getSource());
+        assertThat(edge.getDestination().getInEdges()).contains(edge);
+      }
+      for (DiGraphEdge<Node, Branch> edge : n.getInEdges()) {
+        assertSame(n, edge.getDestination());
+      }
+      numEdges += n.getOutEdges().size();
+    }
+    assertThat(cfg.getEdges()).hasSize(numEdges);
+  }
+
+  public void testEdgesAreInTheOrderTheyWereAdded() {
+    ControlFlowGraph<Node> cfg = createCfg("if (x) { x(); } else { x(); }");
+    Node ifNode = cfg.getEntry().getValue().getFirstChild();
+    List<DiGraphEdge<Node, Branch>> edges = cfg.getOutEdges(ifNode);
+    assertThat(edges).hasSize(2);
+    assertEquals(Branch.ON_TRUE, edges.get(0).getValue());
+    assertEquals(Branch.ON_FALSE, edges.get(1).getValue());
+  }
+
+  public void testGraphCannotBeChanged() {
+    ControlFlowGraph<Node> cfg = createCfg("var x; x;");
+    Node script = cfg.getEntry().getValue();
+    Node name = script.getFirstChild().getFirstChild();
+    assertNull(cfg.getDirectedGraphNode(name));
+    try {
+      cfg.connect(script, Branch.UNCOND, null);
+      fail("Expected UnsupportedOperationException");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
   public void testBreakInFinally1() {
     String src =
         "f = function() {\n" +
@@ -27,7 +27,7 @@ import com.google.javascript.rhino.jstype.JSType;
  * @author nicksantos@google.com (Nick Santos)
  */
 
-public final class LinkedFlowScopeTest extends CompilerTypeTestCase {
+public class LinkedFlowScopeTest extends CompilerTypeTestCase {
 
   private final Node blockNode = new Node(Token.BLOCK);
   private final Node functionNode = new Node(Token.FUNCTION);
@@ -51,8 +51,16 @@ public final class LinkedFlowScopeTest extends CompilerTypeTestCase {
     localScope.declare("localA", null, null, null);
     localScope.declare("localB", null, null, null);
 
-    globalEntry = LinkedFlowScope.createEntryLattice(globalScope);
-    localEntry = LinkedFlowScope.createEntryLattice(localScope);
+    globalEntry = createEntryLattice(globalScope);
+    localEntry = createEntryLattice(localScope);
+  }
+
+  FlowScope createEntryLattice(TypedScope scope) {
+    return LinkedFlowScope.createEntryLattice(scope);
+  }
+
+  JoinOp<FlowScope> createJoinOp() {
+    return new LinkedFlowScope.FlowScopeJoinOp();
   }
 
   public void testOptimize() {
@@ -319,7 +327,6 @@ public final class LinkedFlowScopeTest extends CompilerTypeTestCase {
 
   @SuppressWarnings("unchecked")
   private FlowScope join(FlowScope a, FlowScope b) {
-    return (new LinkedFlowScope.FlowScopeJoinOp()).apply(
-        ImmutableList.of(a, b));
+    return createJoinOp().apply(ImmutableList.of(a, b));
   }
 }
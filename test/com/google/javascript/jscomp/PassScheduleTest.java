@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+/**
+ * Tests for {@link PassSchedule}.
+ */
+public final class PassScheduleTest extends TestCase {
+
+  public void testShouldSkip() {
+    PassSchedule schedule = PassSchedule.fromJson("{'passes': {"
+        + "'useless': {'runs': 5, 'changes': 0, 'runtimeMillis': 50, "
+        + "    'reduction': 0},"
+        + "'useful': {'runs': 5, 'changes': 5, 'runtimeMillis': 50, "
+        + "    'reduction': 50},"
+        + "'rarelyRun': {'runs': 1, 'changes': 0, 'runtimeMillis': 50, "
+        + "    'reduction': 0}}}");
+
+    assertTrue(schedule.shouldSkip("useless"));
+    assertFalse(schedule.shouldSkip("useful"));
+    assertFalse(schedule.shouldSkip("rarelyRun"));
+    assertFalse(schedule.shouldSkip("unknown"));
+
+    // 50 bytes in 50 milliseconds.
+    schedule.setMinBytesPerSecond(1000);
+    assertTrue(schedule.shouldSkip("useful"));
+  }
+
+  public void testLoopOrder() {
+    PassSchedule schedule = PassSchedule.fromJson("{'passes': {"
+        + "'slow': {'runs': 1, 'changes': 1, 'runtimeMillis': 100, "
+        + "    'reduction': 10},"
+        + "'fast': {'runs': 1, 'changes': 1, 'runtimeMillis': 0, "
+        + "    'reduction': 10}}}");
+
+    assertThat(schedule.getLoopOrder().compare("fast", "slow")).isLessThan(0);
+    assertThat(schedule.getLoopOrder().compare("new", "fast")).isLessThan(0);
+    assertEquals(0, schedule.getLoopOrder().compare("new", "other"));
+  }
+
+  public void testRecordAndJson() {
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.ADVANCED_OPTIMIZATIONS
+        .setOptionsForCompilationLevel(options);
+    options.setPassScheduleProfiling(true);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Compiler compiler = new Compiler(new PrintStream(out));
+    compiler.compile(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(SourceFile.fromCode("in.js",
+            "function f(x) { return x + 1; } window['y'] = f(1 + 2);")),
+        options);
+    // The tracer is off, so there is no report.
+    assertEquals(0, out.size());
+
+    PassSchedule schedule = new PassSchedule();
+    schedule.setLoopTimeBudgetMillis(100);
+    schedule.record(compiler.tracker);
+    schedule.record(compiler.tracker);
+    JsonObject json =
+        new JsonParser().parse(schedule.toJson()).getAsJsonObject();
+
+    assertEquals(100, json.get("loopTimeBudgetMillis").getAsLong());
+    JsonObject passes = json.getAsJsonObject("passes");
+    // Only the loopable passes are recorded.
+    assertTrue(passes.has("inlineFunctions"));
+    assertFalse(passes.has("renameVars"));
+    JsonObject inlineFunctions = passes.getAsJsonObject("inlineFunctions");
+    assertEquals(
+        2 * compiler.tracker.getStats().get("inlineFunctions").runs,
+        inlineFunctions.get("runs").getAsInt());
+    assertThat(inlineFunctions.get("reduction").getAsLong()).isGreaterThan(0L);
+
+    assertEquals(schedule.toJson(),
+        PassSchedule.fromJson(schedule.toJson()).toJson());
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.type.FlowScope;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+
+/**
+ * Tests for {@link PersistentFlowScope}. It runs the tests of
+ * {@link LinkedFlowScope} too.
+ */
+public final class PersistentFlowScopeTest extends LinkedFlowScopeTest {
+
+  @Override
+  FlowScope createEntryLattice(TypedScope scope) {
+    return PersistentFlowScope.createEntryLattice(scope);
+  }
+
+  @Override
+  JoinOp<FlowScope> createJoinOp() {
+    return new PersistentFlowScope.FlowScopeJoinOp();
+  }
+
+  public void testNamesWithTheSameHash() {
+    // "Aa" and "BB" have the same hash code, and so do "AaAa" and "BBBB".
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    TypedScope scope = TypedScope.createGlobalScope(new Node(Token.BLOCK));
+    FlowScope entry = createEntryLattice(scope);
+    FlowScope childA = entry.createChildFlowScope();
+    childA.inferSlotType("Aa", NUMBER_TYPE);
+    childA.inferSlotType("BB", STRING_TYPE);
+    childA.inferSlotType("AaAa", BOOLEAN_TYPE);
+    childA.inferSlotType("BBBB", NUMBER_TYPE);
+
+    FlowScope childB = childA.createChildFlowScope();
+    childB.inferSlotType("BB", BOOLEAN_TYPE);
+
+    assertTypeEquals(NUMBER_TYPE, childB.getSlot("Aa").getType());
+    assertTypeEquals(BOOLEAN_TYPE, childB.getSlot("BB").getType());
+    assertTypeEquals(STRING_TYPE, childA.getSlot("BB").getType());
+    assertTypeEquals(BOOLEAN_TYPE, childB.getSlot("AaAa").getType());
+    assertTypeEquals(NUMBER_TYPE, childB.getSlot("BBBB").getType());
+    assertNull(childB.getSlot("AaBB"));
+    assertEquals("BB", childB.findUniqueRefinedSlot(childA).getName());
+
+    FlowScope joined = createJoinOp().apply(ImmutableList.of(childA, childB));
+    assertTypeEquals(createUnionType(STRING_TYPE, BOOLEAN_TYPE),
+        joined.getSlot("BB").getType());
+    assertTypeEquals(NUMBER_TYPE, joined.getSlot("Aa").getType());
+    assertFalse(joined.equals(childA));
+    assertFalse(childA.equals(childB));
+  }
+}
@@ -159,6 +159,44 @@ public final class PhaseOptimizerTest extends TestCase {
     assertEquals(PhaseOptimizer.OPTIMAL_ORDER, passesRun);
   }
 
+  public void testPassScheduleOrdersAndSkipsLoopablePasses() {
+    optimizer.setPassSchedule(PassSchedule.fromJson("{'passes': {"
+        + "'x': {'runs': 10, 'changes': 5, 'runtimeMillis': 100, "
+        + "    'reduction': 100},"
+        + "'y': {'runs': 10, 'changes': 5, 'runtimeMillis': 10, "
+        + "    'reduction': 100},"
+        + "'z': {'runs': 10, 'changes': 0, 'runtimeMillis': 100, "
+        + "    'reduction': 0}}}"));
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, "x", 0);
+    addLoopedPass(loop, "y", 0);
+    addLoopedPass(loop, "z", 0);
+    addLoopedPass(loop, "w", 0);
+    // w isn't in the profile, y reduces the code faster than x, and z
+    // doesn't reduce it.
+    assertPasses("w", "y", "x");
+  }
+
+  public void testPassScheduleStopsLoopsAfterTheTimeBudget() {
+    PassSchedule schedule = new PassSchedule();
+    schedule.setLoopTimeBudgetMillis(1);
+    optimizer.setPassSchedule(schedule);
+    Loop loop = optimizer.addFixedPointLoop();
+    // Without the budget, the loop would never reach a fixed point.
+    loop.addLoopedPass(createPassFactory("x", new CompilerPass() {
+      @Override public void process(Node externs, Node root) {
+        passesRun.add("x");
+        compiler.reportCodeChange();
+        try {
+          Thread.sleep(2);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }, false));
+    assertPasses("x");
+  }
+
   public void testProgress() {
     final List<Double> progressList = new ArrayList<>();
     compiler = new Compiler() {
@@ -181,6 +219,80 @@ public final class PhaseOptimizerTest extends TestCase {
     assertEquals(100, Math.round(progressList.get(3)));
   }
 
+  public void testControlFlowGraphsOfUnchangedFunctionsAreShared() {
+    Node f = initFunctions();
+    Node g = f.getNext();
+    List<ControlFlowGraph<Node>> graphs = new ArrayList<>();
+    PassFactory cfgOfF = createControlFlowGraphPassFactory(f, graphs);
+    PassFactory cfgOfG = createControlFlowGraphPassFactory(g, graphs);
+    // The graphs built at the start time aren't reused, since a change could
+    // still happen at that time; the first pass moves the clock forward.
+    runPasses(
+        createPassFactory("x", 1, true),
+        cfgOfF, cfgOfG, cfgOfF, cfgOfG,
+        createScopedChangePassFactory(f.getLastChild()), cfgOfF, cfgOfG,
+        createPassFactory("y", 1, true), cfgOfF, cfgOfG);
+    assertThat(graphs).hasSize(8);
+    assertSame(graphs.get(0), graphs.get(2));
+    assertSame(graphs.get(1), graphs.get(3));
+    // Only the graph of f is built again after f changes.
+    assertNotSame(graphs.get(2), graphs.get(4));
+    assertSame(graphs.get(3), graphs.get(5));
+    // Unscoped changes may have changed any function.
+    assertNotSame(graphs.get(4), graphs.get(6));
+    assertNotSame(graphs.get(5), graphs.get(7));
+  }
+
+  public void testControlFlowGraphsAreNotSharedOutsideOfTheOptimizer() {
+    Node f = initFunctions();
+    assertNotSame(
+        compiler.getControlFlowGraph(f), compiler.getControlFlowGraph(f));
+  }
+
+  /**
+   * Parses two functions into the compiler, and returns the first one.
+   */
+  private Node initFunctions() {
+    compiler = new Compiler();
+    compiler.init(ImmutableList.<SourceFile>of(),
+        ImmutableList.of(
+            SourceFile.fromCode("in.js", "function f() {} function g() {}")),
+        new CompilerOptions());
+    compiler.parse();
+    return compiler.getJsRoot().getFirstChild().getFirstChild();
+  }
+
+  /** Runs the passes with a new optimizer, like Compiler#optimize. */
+  private void runPasses(PassFactory... factories) {
+    PhaseOptimizer phaseOptimizer = new PhaseOptimizer(compiler, null, null);
+    compiler.setPhaseOptimizer(phaseOptimizer);
+    phaseOptimizer.consume(ImmutableList.copyOf(factories));
+    phaseOptimizer.process(compiler.externsRoot, compiler.jsRoot);
+    compiler.setPhaseOptimizer(null);
+  }
+
+  /**
+   * Creates a one-time pass that adds the control flow graph of a function
+   * to the given list.
+   */
+  private PassFactory createControlFlowGraphPassFactory(
+      final Node function, final List<ControlFlowGraph<Node>> graphs) {
+    return createPassFactory("cfg", new CompilerPass() {
+      @Override public void process(Node externs, Node root) {
+        graphs.add(compiler.getControlFlowGraph(function));
+      }
+    }, true);
+  }
+
+  /** Creates a one-time pass that reports a change to the scope of n. */
+  private PassFactory createScopedChangePassFactory(final Node n) {
+    return createPassFactory("scopedChange", new CompilerPass() {
+      @Override public void process(Node externs, Node root) {
+        compiler.reportChangeToEnclosingScope(n);
+      }
+    }, true);
+  }
+
   public void assertPasses(String ... names) {
     optimizer.process(null, dummyRoot);
     assertEquals(ImmutableList.copyOf(names), passesRun);
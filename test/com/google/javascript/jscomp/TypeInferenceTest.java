@@ -56,7 +56,7 @@ import java.util.Map;
  * Tests {@link TypeInference}.
  *
  */
-public final class TypeInferenceTest extends TestCase {
+public class TypeInferenceTest extends TestCase {
 
   private Compiler compiler;
   private JSTypeRegistry registry;
@@ -72,12 +72,23 @@ public final class TypeInferenceTest extends TestCase {
     }
   }
 
+  private final boolean persistentFlowScopes;
+
+  public TypeInferenceTest() {
+    this(false);
+  }
+
+  TypeInferenceTest(boolean persistentFlowScopes) {
+    this.persistentFlowScopes = persistentFlowScopes;
+  }
+
   @Override
   public void setUp() {
     compiler = new Compiler();
     CompilerOptions options = new CompilerOptions();
     options.setClosurePass(true);
     options.setLanguageIn(LanguageMode.ECMASCRIPT5);
+    options.setPersistentFlowScopes(persistentFlowScopes);
     compiler.initOptions(options);
     registry = compiler.getTypeRegistry();
     assumptions = new HashMap<>();
@@ -166,6 +166,28 @@ public final class TypeValidatorTest extends CompilerTestCase {
     assertMismatches(Collections.<TypeMismatch>emptyList());
   }
 
+  public void testMismatchesOfDisabledWarnings() {
+    CompilerOptions options = new CompilerOptions();
+    options.setCheckTypes(true);
+    options.setWarningLevel(
+        DiagnosticGroup.forType(TYPE_MISMATCH_WARNING), CheckLevel.OFF);
+    compiler = new Compiler();
+    compiler.compile(
+        SourceFile.fromCode("externs", ""),
+        SourceFile.fromCode("in",
+            "/** @param {number} x */ function f(x) {} f('a'); f('b');"),
+        options);
+    assertEquals(0, compiler.getWarningCount());
+    assertMismatches(ImmutableList.of(fromNatives(STRING_TYPE, NUMBER_TYPE)));
+    // The error of the mismatch is neither formatted nor reported, but gives
+    // its location.
+    JSError error = compiler.getTypeMismatches().iterator().next().src;
+    assertEquals("actual parameter 1 of f does not match formal parameter",
+        error.description);
+    assertEquals("in", error.sourceName);
+    assertEquals(44, error.getCharno());
+  }
+
   private TypeMismatch fromNatives(JSTypeNative a, JSTypeNative b) {
     JSTypeRegistry registry = compiler.getTypeRegistry();
     return new TypeMismatch(
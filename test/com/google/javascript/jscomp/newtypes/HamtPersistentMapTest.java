@@ -0,0 +1,230 @@
+/*
+ * Copyright 2015 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.newtypes;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests for {@link HamtPersistentMap} and {@link HamtPersistentSet}.
+ */
+public final class HamtPersistentMapTest extends TestCase {
+
+  /** A key with a chosen hash code, to make collisions. */
+  private static final class Key {
+    final String name;
+    final int hash;
+
+    Key(String name, int hash) {
+      this.name = name;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key) o).name.equals(name);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  public void testWithAndWithout() {
+    PersistentMap<String, Integer> empty = PersistentMap.create();
+    PersistentMap<String, Integer> m1 = empty.with("a", 1);
+    PersistentMap<String, Integer> m2 = m1.with("b", 2);
+    PersistentMap<String, Integer> m3 = m2.with("a", 3);
+
+    assertTrue(empty.isEmpty());
+    assertEquals(1, m1.size());
+    assertEquals(2, m2.size());
+    assertEquals(2, m3.size());
+    assertEquals(1, (int) m1.get("a"));
+    assertEquals(1, (int) m2.get("a"));
+    assertEquals(3, (int) m3.get("a"));
+    assertNull(m1.get("b"));
+    assertNull(m1.get(null));
+
+    assertSame(m2, m2.without("c"));
+    assertEquals(m1, m2.without("b"));
+    assertSame(empty, m1.without("a"));
+  }
+
+  public void testWithTheSameValueKeepsTheMap() {
+    Integer value = 1000;
+    PersistentMap<String, Integer> m = PersistentMap.of("a", value);
+    assertSame(m, m.with("a", value));
+  }
+
+  public void testCollisions() {
+    Key a = new Key("a", 42);
+    Key b = new Key("b", 42);
+    Key c = new Key("c", 42);
+    // Agrees with the others on the first five bits only.
+    Key d = new Key("d", 42 + (1 << 5));
+    PersistentMap<Key, String> m = PersistentMap.<Key, String>create()
+        .with(a, "a").with(b, "b").with(d, "d").with(c, "c");
+    assertEquals(4, m.size());
+    assertEquals("a", m.get(a));
+    assertEquals("b", m.get(b));
+    assertEquals("c", m.get(c));
+    assertEquals("d", m.get(d));
+    assertNull(m.get(new Key("e", 42)));
+    assertEquals(ImmutableSet.of(a, b, c, d), m.keySet());
+
+    PersistentMap<Key, String> m2 = m.without(b).without(a);
+    assertEquals(ImmutableSet.of(c, d), m2.keySet());
+    assertEquals("c", m2.get(c));
+    assertTrue(m2.without(c).without(d).isEmpty());
+    assertEquals(4, m.size());
+  }
+
+  public void testBuilderDoesNotChangeItsMaps() {
+    PersistentMap<String, Integer> m = PersistentMap.of("a", 1);
+    PersistentMap.Builder<String, Integer> builder = m.toBuilder();
+    builder.put("b", 2).put("a", 3);
+    PersistentMap<String, Integer> built = builder.build();
+    assertEquals(1, m.size());
+    assertEquals(1, (int) m.get("a"));
+    assertEquals(2, built.size());
+    assertEquals(3, (int) built.get("a"));
+
+    // The built map shares its nodes with the builder.
+    builder.put("c", 4).remove("a");
+    assertEquals(2, built.size());
+    assertEquals(3, (int) built.get("a"));
+    assertNull(built.get("c"));
+    assertEquals(4, (int) builder.get("c"));
+    assertEquals(ImmutableSet.of("b", "c"), builder.build().keySet());
+  }
+
+  public void testAgainstHashMap() {
+    Random random = new Random(1);
+    Map<Key, Integer> expected = new HashMap<>();
+    PersistentMap<Key, Integer> map = PersistentMap.create();
+    PersistentMap.Builder<Key, Integer> builder = PersistentMap.builder();
+    for (int i = 0; i < 5000; i++) {
+      // Few hash codes, so that there are collisions at every level.
+      int n = random.nextInt(500);
+      Key key = new Key("k" + n, n * 0x9e3779b9 & 0xff0f0f0f);
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.without(key);
+        builder.remove(key);
+      } else {
+        expected.put(key, i);
+        map = map.with(key, i);
+        builder.put(key, i);
+      }
+      if (i % 1000 == 0) {
+        assertEquals(expected, map);
+        assertEquals(expected, builder.build());
+      }
+    }
+    assertEquals(expected, map);
+    assertEquals(expected, builder.build());
+    assertEquals(expected.hashCode(), map.hashCode());
+  }
+
+  public void testAddChangedKeys() {
+    Key a = new Key("a", 42);
+    Key b = new Key("b", 42);
+    Key c = new Key("c", 42 + (1 << 5));
+    PersistentMap<Key, String> m = PersistentMap.<Key, String>create()
+        .with(a, "a").with(c, "c");
+    Set<Key> changed = new HashSet<>();
+    m.addChangedKeys(m.with(b, "b").with(c, "c2"), changed);
+    assertEquals(ImmutableSet.of(b, c), changed);
+
+    changed.clear();
+    m.addChangedKeys(PersistentMap.<Key, String>create(), changed);
+    assertEquals(ImmutableSet.of(a, c), changed);
+
+    // Equal values of different maps are not the same.
+    changed.clear();
+    m.addChangedKeys(m.with(a, new String("a")), changed);
+    assertEquals(ImmutableSet.of(a), changed);
+
+    Random random = new Random(2);
+    PersistentMap<Key, Integer> base = PersistentMap.create();
+    for (int i = 0; i < 2000; i++) {
+      int n = random.nextInt(1000);
+      base = base.with(new Key("k" + n, n * 0x9e3779b9 & 0xff0f0f0f), i);
+    }
+    for (int round = 0; round < 20; round++) {
+      PersistentMap<Key, Integer> mapA = base;
+      PersistentMap.Builder<Key, Integer> builderB = base.toBuilder();
+      for (int i = 0; i < round * 5; i++) {
+        int n = random.nextInt(1000);
+        Key key = new Key("k" + n, n * 0x9e3779b9 & 0xff0f0f0f);
+        if (random.nextBoolean()) {
+          mapA = random.nextBoolean()
+              ? mapA.with(key, 2000 + i) : mapA.without(key);
+        } else if (random.nextBoolean()) {
+          builderB.put(key, 3000 + i);
+        } else {
+          builderB.remove(key);
+        }
+      }
+      PersistentMap<Key, Integer> mapB = builderB.build();
+      Set<Key> expected = new HashSet<>();
+      for (Key key : Sets.union(mapA.keySet(), mapB.keySet())) {
+        if (mapA.get(key) != mapB.get(key)) {
+          expected.add(key);
+        }
+      }
+      changed.clear();
+      mapA.addChangedKeys(mapB, changed);
+      assertEquals(expected, changed);
+    }
+  }
+
+  public void testSet() {
+    PersistentSet<String> empty = PersistentSet.create();
+    PersistentSet<String> s = empty.with("a").with("b");
+    assertSame(s, s.with("a"));
+    assertEquals(ImmutableSet.of("a", "b"), s);
+    assertEquals(ImmutableSet.of("b"), s.without("a"));
+    assertSame(empty, s.without("a").without("b"));
+
+    Set<String> expected = new HashSet<>();
+    PersistentSet.Builder<String> builder = s.toBuilder();
+    for (int i = 0; i < 100; i++) {
+      expected.add("x" + i);
+      builder.add("x" + i);
+    }
+    builder.remove("a");
+    expected.add("b");
+    assertEquals(expected, builder.build());
+    assertEquals(ImmutableSet.of("a", "b"), s);
+  }
+}
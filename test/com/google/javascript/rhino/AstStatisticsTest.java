@@ -0,0 +1,91 @@
+/*
+ *
+ * ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Rhino code, released
+ * May 6, 1999.
+ *
+ * The Initial Developer of the Original Code is
+ * Netscape Communications Corporation.
+ * Portions created by the Initial Developer are Copyright (C) 1997-1999
+ * the Initial Developer. All Rights Reserved.
+ *
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * the GNU General Public License Version 2 or later (the "GPL"), in which
+ * case the provisions of the GPL are applicable instead of those above. If
+ * you wish to allow use of your version of this file only under the terms of
+ * the GPL and not to allow others to use your version of this file under the
+ * MPL, indicate your decision by deleting the provisions above and replacing
+ * them with the notice and other provisions required by the GPL. If you do
+ * not delete the provisions above, a recipient may use your version of this
+ * file under either the MPL or the GPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package com.google.javascript.rhino;
+
+import com.google.common.collect.ImmutableList;
+
+import junit.framework.TestCase;
+
+public final class AstStatisticsTest extends TestCase {
+
+  public void testCounts() {
+    Node template = new Node(Token.SCRIPT);
+    template.setSourceFileForTesting("a.js");
+    Node call = IR.call(IR.name("f"), IR.number(1));
+    Node var = IR.var(IR.name("x"), call);
+    Node script = IR.script(var, IR.exprResult(IR.name("x")));
+    for (Node n : ImmutableList.of(script, var, var.getFirstChild(), call,
+        call.getFirstChild(), call.getLastChild())) {
+      n.clonePropsFrom(template);
+    }
+    call.putBooleanProp(Node.FREE_CALL, true);
+    JSDocInfoBuilder builder = new JSDocInfoBuilder(false);
+    builder.recordConstancy();
+    var.setJSDocInfo(builder.build());
+
+    AstStatistics stats = new AstStatistics();
+    stats.add(script);
+
+    assertEquals(8, stats.getNodeCount());
+    assertEquals(3, (int) stats.getNodeCountsByToken().get("NAME"));
+    assertEquals(1, (int) stats.getNodeCountsByToken().get("CALL"));
+    assertEquals(1, (int) stats.getPropCountsByType().get("free_call"));
+    assertEquals(1, (int) stats.getPropCountsByType().get("jsdoc_info"));
+    assertEquals(6, (int) stats.getPropCountsByType().get("source_file"));
+    // The item of the template is shared, and the JSDoc and the free call
+    // need one more each.
+    assertEquals(3, stats.getPropListItemCount());
+    assertEquals(1, stats.getJSDocInfoCount());
+    assertEquals(0, stats.getTypeCount());
+  }
+
+  public void testSharedObjectsAreCountedOnce() {
+    JSDocInfoBuilder builder = new JSDocInfoBuilder(false);
+    builder.recordConstancy();
+    JSDocInfo info = builder.build();
+    Node first = IR.name("a");
+    first.setJSDocInfo(info);
+    Node second = first.cloneNode();
+
+    AstStatistics stats = new AstStatistics();
+    stats.add(IR.block(IR.exprResult(first), IR.exprResult(second)));
+
+    assertEquals(2, (int) stats.getPropCountsByType().get("jsdoc_info"));
+    assertEquals(1, stats.getPropListItemCount());
+    assertEquals(1, stats.getJSDocInfoCount());
+  }
+}
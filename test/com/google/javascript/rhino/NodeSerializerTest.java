@@ -0,0 +1,190 @@
+/*
+ *
+ * ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Rhino code, released
+ * May 6, 1999.
+ *
+ * The Initial Developer of the Original Code is
+ * Netscape Communications Corporation.
+ * Portions created by the Initial Developer are Copyright (C) 1997-1999
+ * the Initial Developer. All Rights Reserved.
+ *
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * the GNU General Public License Version 2 or later (the "GPL"), in which
+ * case the provisions of the GPL are applicable instead of those above. If
+ * you wish to allow use of your version of this file only under the terms of
+ * the GPL and not to allow others to use your version of this file under the
+ * MPL, indicate your decision by deleting the provisions above and replacing
+ * them with the notice and other provisions required by the GPL. If you do
+ * not delete the provisions above, a recipient may use your version of this
+ * file under either the MPL or the GPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package com.google.javascript.rhino;
+
+import com.google.javascript.rhino.jstype.JSTypeNative;
+import com.google.javascript.rhino.jstype.JSTypeRegistry;
+import com.google.javascript.rhino.testing.TestErrorReporter;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public final class NodeSerializerTest extends TestCase {
+  private static final StaticSourceFile FILE =
+      new SimpleSourceFile("file.js", false);
+
+  private static byte[] serialize(Node root) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    NodeSerializer.serialize(root, FILE, bytes);
+    return bytes.toByteArray();
+  }
+
+  private static Node roundTrip(Node root) throws IOException {
+    return NodeSerializer.deserialize(ByteBuffer.wrap(serialize(root)), FILE);
+  }
+
+  private static void assertRoundTrip(Node root) throws IOException {
+    Node copy = roundTrip(root);
+    assertNull(root.checkTreeEquals(copy));
+    assertTrue(root.isEquivalentToTyped(copy));
+  }
+
+  public void testStatements() throws IOException {
+    Node name = IR.name("a");
+    name.putProp(Node.ORIGINALNAME_PROP, "b");
+    name.setLineno(3);
+    name.setCharno(7);
+    Node key = IR.stringKey("c", IR.number(2));
+    key.setQuotedString();
+    Node script = IR.script(
+        IR.var(name, IR.number(-0.0)),
+        IR.exprResult(IR.call(IR.getprop(IR.name("a"), IR.string("d")),
+            IR.objectlit(key), IR.number(1e300), IR.string("\u2603"))));
+
+    assertRoundTrip(script);
+    Node copy = roundTrip(script);
+    Node copiedName = copy.getFirstChild().getFirstChild();
+    assertEquals("b", copiedName.getProp(Node.ORIGINALNAME_PROP));
+    assertEquals(3, copiedName.getLineno());
+    assertEquals(7, copiedName.getCharno());
+    assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(
+        copiedName.getFirstChild().getDouble()));
+  }
+
+  public void testSourceFileIsReplaced() throws IOException {
+    Node root = IR.script(IR.exprResult(IR.name("a")));
+    root.setStaticSourceFile(FILE);
+    root.getFirstChild().setStaticSourceFile(FILE);
+
+    StaticSourceFile otherFile = new SimpleSourceFile("other.js", false);
+    Node copy = NodeSerializer.deserialize(
+        ByteBuffer.wrap(serialize(root)), otherFile);
+    assertSame(otherFile, copy.getStaticSourceFile());
+    assertSame(otherFile, copy.getFirstChild().getStaticSourceFile());
+  }
+
+  public void testNodesShareTheSourceFile() throws IOException {
+    // Like the parser, the nodes share the list item of the source file.
+    Node template = new Node(Token.SCRIPT);
+    template.setStaticSourceFile(FILE);
+    Node name = IR.name("a").clonePropsFrom(template);
+    name.putProp(Node.ORIGINALNAME_PROP, "b");
+    Node root = IR.script(IR.exprResult(name).clonePropsFrom(template))
+        .clonePropsFrom(template);
+
+    AstStatistics before = new AstStatistics();
+    before.add(root);
+    Node copy = roundTrip(root);
+    AstStatistics after = new AstStatistics();
+    after.add(copy);
+    assertEquals(2, before.getPropListItemCount());
+    assertEquals(2, after.getPropListItemCount());
+    assertSame(FILE, copy.getFirstChild().getFirstChild().getStaticSourceFile());
+    assertEquals("b", copy.getFirstChild().getFirstChild()
+        .getProp(Node.ORIGINALNAME_PROP));
+  }
+
+  public void testDirectives() throws IOException {
+    Node root = IR.script();
+    root.setDirectives(new HashSet<>(Arrays.asList("use strict")));
+
+    Set<String> directives = roundTrip(root).getDirectives();
+    assertEquals(1, directives.size());
+    assertTrue(directives.contains("use strict"));
+  }
+
+  public void testJSDocInfo() throws IOException {
+    Node typeExpr = Node.newString("number");
+    typeExpr.setStaticSourceFile(FILE);
+    JSDocInfoBuilder builder = new JSDocInfoBuilder(false);
+    builder.recordType(new JSTypeExpression(typeExpr, "file.js"));
+    builder.recordConstancy();
+    Node var = IR.var(IR.name("a"));
+    var.setJSDocInfo(builder.build());
+
+    Node root = IR.script(var);
+    assertRoundTrip(root);
+
+    StaticSourceFile otherFile = new SimpleSourceFile("other.js", false);
+    JSDocInfo info = NodeSerializer.deserialize(
+        ByteBuffer.wrap(serialize(root)), otherFile)
+        .getFirstChild().getJSDocInfo();
+    assertTrue(info.isConstant());
+    assertSame(otherFile, info.getType().getRoot().getStaticSourceFile());
+  }
+
+  public void testTypeDeclarations() throws IOException {
+    Node name = IR.name("a");
+    name.setDeclaredTypeExpression(TypeDeclarationsIR.arrayType(
+        TypeDeclarationsIR.namedType("Foo")));
+    assertRoundTrip(IR.script(IR.var(name)));
+  }
+
+  public void testTypedNodesAreNotSerialized() throws IOException {
+    Node root = IR.script(IR.exprResult(IR.number(1)));
+    JSTypeRegistry registry = new JSTypeRegistry(new TestErrorReporter(null, null));
+    root.getFirstChild().getFirstChild().setJSType(
+        registry.getNativeType(JSTypeNative.NUMBER_TYPE));
+    try {
+      serialize(root);
+      fail();
+    } catch (NotSerializableException expected) {}
+  }
+
+  public void testCorruptedBuffer() throws IOException {
+    byte[] bytes = serialize(IR.script(IR.exprResult(IR.name("a"))));
+    try {
+      NodeSerializer.deserialize(
+          ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 2)), FILE);
+      fail();
+    } catch (StreamCorruptedException expected) {}
+
+    bytes[0] = 0;
+    try {
+      NodeSerializer.deserialize(ByteBuffer.wrap(bytes), FILE);
+      fail();
+    } catch (StreamCorruptedException expected) {}
+  }
+}
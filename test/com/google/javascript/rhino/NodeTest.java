@@ -45,6 +45,8 @@ import com.google.javascript.rhino.testing.TestErrorReporter;
 
 import junit.framework.TestCase;
 
+import java.util.Arrays;
+
 public class NodeTest extends TestCase {
   public void testMergeExtractNormal() throws Exception {
     testMergeExtract(5, 6);
@@ -429,6 +431,51 @@ public class NodeTest extends TestCase {
     assertFalse(n.getBooleanProp(Node.IS_CONSTANT_NAME));
   }
 
+  public void testProps() {
+    Node n = getVarRef("a");
+    n.putIntProp(Node.SIDE_EFFECT_FLAGS, 1);
+    n.putIntProp(Node.INCRDECR_PROP, 3);
+    n.putProp(Node.ORIGINALNAME_PROP, "b");
+    n.putBooleanProp(Node.FREE_CALL, true);
+    n.setSourceFileForTesting("a.js");
+
+    assertEquals(1, n.getIntProp(Node.SIDE_EFFECT_FLAGS));
+    assertEquals(3, n.getIntProp(Node.INCRDECR_PROP));
+    assertEquals("b", n.getProp(Node.ORIGINALNAME_PROP));
+    assertTrue(n.getBooleanProp(Node.FREE_CALL));
+    assertTrue(n.isIntProp(Node.INCRDECR_PROP));
+    assertFalse(n.isIntProp(Node.ORIGINALNAME_PROP));
+    assertEquals("a.js", n.getProp(Node.STATIC_SOURCE_FILE).toString());
+    assertEquals(
+        "[" + Node.INCRDECR_PROP + ", " + Node.ORIGINALNAME_PROP + ", "
+        + Node.SIDE_EFFECT_FLAGS + ", " + Node.FREE_CALL + ", "
+        + Node.STATIC_SOURCE_FILE + "]",
+        Arrays.toString(n.getSortedPropTypes()));
+
+    n.removeProp(Node.INCRDECR_PROP);
+    assertEquals(0, n.getIntProp(Node.INCRDECR_PROP));
+    assertEquals("b", n.getProp(Node.ORIGINALNAME_PROP));
+    n.removeProp(Node.ORIGINALNAME_PROP);
+    n.removeProp(Node.SIDE_EFFECT_FLAGS);
+    n.removeProp(Node.FREE_CALL);
+    n.removeProp(Node.STATIC_SOURCE_FILE);
+    assertFalse(n.hasProps());
+  }
+
+  public void testWrongKindOfProp() {
+    Node n = getVarRef("a");
+    n.putIntProp(Node.INCRDECR_PROP, 1);
+    n.putProp(Node.ORIGINALNAME_PROP, "b");
+    try {
+      n.getProp(Node.INCRDECR_PROP);
+      fail();
+    } catch (UnsupportedOperationException expected) {}
+    try {
+      n.getIntProp(Node.ORIGINALNAME_PROP);
+      fail();
+    } catch (UnsupportedOperationException expected) {}
+  }
+
   // Verify that annotations on cloned nodes are properly handled.
   public void testCloneAnnontations2() {
     Node n = getVarRef("a");
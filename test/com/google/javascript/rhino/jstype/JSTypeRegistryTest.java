@@ -84,6 +84,77 @@ public class JSTypeRegistryTest extends TestCase {
     assertFalse(typeRegistry.getGreatestSubtypeWithProperty(type, "foo").isUnknownType());
   }
 
+  public void testTypeRelationCache() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    TypeRelationCache cache = typeRegistry.getTypeRelationCache();
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType string = typeRegistry.getNativeType(JSTypeNative.STRING_TYPE);
+    JSType numberOrString = typeRegistry.createUnionType(number, string);
+
+    warmUpTypeRelationCache(typeRegistry);
+    int misses = cache.getMisses();
+    assertTrue(number.isSubtype(numberOrString));
+    assertFalse(numberOrString.isSubtype(number));
+    assertTrue(cache.getMisses() > misses);
+
+    // Asked again, the answers come from the cache.
+    misses = cache.getMisses();
+    int hits = cache.getHits();
+    assertTrue(number.isSubtype(numberOrString));
+    assertFalse(numberOrString.isSubtype(number));
+    assertEquals(hits + 2, cache.getHits());
+    assertEquals(misses, cache.getMisses());
+  }
+
+  public void testTypeRelationCacheForgetsWhenATypeChanges() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    RecordTypeBuilder builder = new RecordTypeBuilder(typeRegistry);
+    builder.addProperty("a", number, null);
+    JSType record = builder.build();
+    ObjectType object = typeRegistry.createAnonymousObjectType(null);
+
+    warmUpTypeRelationCache(typeRegistry);
+    assertFalse(object.isSubtype(record));
+    assertFalse(object.isSubtype(record));
+    object.defineDeclaredProperty("a", number, null);
+    warmUpTypeRelationCache(typeRegistry);
+    assertTrue(object.isSubtype(record));
+    assertTrue(object.isSubtype(record));
+    object.removeProperty("a");
+    warmUpTypeRelationCache(typeRegistry);
+    assertFalse(object.isSubtype(record));
+  }
+
+  public void testTypeRelationCacheReplacesAnswers() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    // All the answers share the only slot.
+    TypeRelationCache cache = new TypeRelationCache(1, 0);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType string = typeRegistry.getNativeType(JSTypeNative.STRING_TYPE);
+    TypeRelationCache.Relation subtype = TypeRelationCache.Relation.SUBTYPE;
+
+    cache.put(subtype, number, string, false);
+    assertEquals(Boolean.FALSE, cache.get(subtype, number, string));
+    assertNull(cache.get(subtype, string, number));
+    assertNull(cache.get(TypeRelationCache.Relation.IDENTITY, number, string));
+    cache.put(subtype, string, number, true);
+    assertNull(cache.get(subtype, number, string));
+    assertEquals(Boolean.TRUE, cache.get(subtype, string, number));
+    cache.invalidate();
+    assertNull(cache.get(subtype, string, number));
+  }
+
+  /** The cache only remembers answers a while after the types change. */
+  private static void warmUpTypeRelationCache(JSTypeRegistry typeRegistry) {
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType string = typeRegistry.getNativeType(JSTypeNative.STRING_TYPE);
+    for (int i = 0;
+         i < TypeRelationCache.DEFAULT_MIN_LOOKUPS_SINCE_CHANGE; i++) {
+      number.isSubtype(string);
+    }
+  }
+
   private void assertTypeEquals(JSType a, JSType b) {
     Asserts.assertTypeEquals(a, b);
   }
@@ -120,6 +120,16 @@ public class UnionTypeBuilderTest extends BaseJSTypeTestCase {
     assertEquals("(Error|function (): Error)", union.toString());
   }
 
+  public void testInternedUnions() {
+    JSType union = registry.createUnionType(NULL_TYPE, STRING_TYPE, VOID_TYPE);
+    assertSame(union,
+        registry.createUnionType(VOID_TYPE, STRING_TYPE, NULL_TYPE));
+    assertSame(union, registry.createUnionType(
+        registry.createUnionType(STRING_TYPE, NULL_TYPE), VOID_TYPE));
+    assertSame(union, registry.createUnionType(union, STRING_TYPE));
+    assertNotSame(union, registry.createUnionType(NULL_TYPE, STRING_TYPE));
+  }
+
   public void assertUnion(String expected, JSType ... types) {
     UnionTypeBuilder builder = new UnionTypeBuilder(registry);
     for (JSType type : types) {